@@ -0,0 +1,33 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Точка входа {@code benchmarks.jar}. Принимает те же аргументы, что и {@code org.openjdk.jmh.Main}, но всегда
+ * включает профилировщик выделения памяти ({@link GCProfiler}), поэтому в результатах есть
+ * {@code gc.alloc.rate.norm} -- байты, выделенные за одну операцию.
+ * <p>
+ * Сборка и запуск: {@code mvn -P jmh package -DskipTests}, затем, например,
+ * {@code java -jar target/benchmarks.jar GraphBenchmark -p fileCount=1000,100000}.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        CommandLineOptions commandLineOptions;
+        try {
+            commandLineOptions = new CommandLineOptions(args);
+        } catch (CommandLineOptionException commandLineOptionException) {
+            System.err.println("Error parsing command line: " + commandLineOptionException.getMessage());
+            System.exit(1);
+            return;
+        }
+        new Runner(new OptionsBuilder()
+                .parent(commandLineOptions)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
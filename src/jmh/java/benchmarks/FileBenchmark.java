@@ -0,0 +1,166 @@
+package benchmarks;
+
+import graph.DependencyGraph;
+import graph.FrozenDependencyGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import util.CombineOptions;
+import util.DependencyUtils;
+import util.FileUtils;
+import util.GraphSnapshot;
+import util.PathTrie;
+import util.PipelinedCombiner;
+import util.PositionalCombiner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки сканирования и компоновки ацикличного {@link SyntheticTree}, записанного во временную директорию.
+ * Дерево записывается один раз на каждый набор параметров. Большие деревья записываются долго и занимают
+ * {@code fileCount * fileSize} байт, поэтому нужные размеры лучше выбирать параметром {@code -p fileCount=...}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class FileBenchmark {
+    /**
+     * Число файлов.
+     */
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int fileCount;
+    /**
+     * Глубина вложенности директорий.
+     */
+    @Param({"3"})
+    public int depth;
+    /**
+     * Наибольшее число зависимостей одного файла.
+     */
+    @Param({"4"})
+    public int fanOut;
+    /**
+     * Размер файла в байтах.
+     */
+    @Param({"1024"})
+    public int fileSize;
+
+    /**
+     * Временная директория, в которой лежат дерево и выходной файл.
+     */
+    private Path workDirectory;
+    /**
+     * Корневая директория дерева.
+     */
+    private File rootDirectory;
+    /**
+     * Выходной файл.
+     */
+    private Path outputPath;
+    /**
+     * Файлы дерева в порядке компоновки.
+     */
+    private List<File> orderedFiles;
+    /**
+     * Снимок графа зависимостей дерева.
+     */
+    private Path snapshotPath;
+
+    /**
+     * Записывает дерево и находит порядок компоновки.
+     *
+     * @throws IOException если не удалось записать дерево.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        workDirectory = Files.createTempDirectory("filecombiner-benchmark");
+        Path root = workDirectory.resolve("root");
+        new SyntheticTree(fileCount, depth, fanOut, 0, fileSize, 42).writeTo(root);
+        rootDirectory = root.toFile();
+        outputPath = workDirectory.resolve("output");
+        orderedFiles = DependencyUtils.getDependencies(rootDirectory, ForkJoinPool.commonPool()).toOrderedList();
+        snapshotPath = workDirectory.resolve("graph.snapshot");
+        PathTrie paths = new PathTrie();
+        GraphSnapshot.FileStamps stamps = GraphSnapshot.FileStamps.capture(rootDirectory);
+        GraphSnapshot.save(DependencyUtils.getDependencies(rootDirectory, paths, null, ForkJoinPool.commonPool()),
+                paths, stamps, snapshotPath);
+    }
+
+    /**
+     * Удаляет временную директорию.
+     *
+     * @throws IOException если не удалось удалить файлы.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        SyntheticTree.delete(workDirectory);
+    }
+
+    @Benchmark
+    public DependencyGraph<File> getDependencies() throws IOException {
+        return DependencyUtils.getDependencies(rootDirectory);
+    }
+
+    @Benchmark
+    public DependencyGraph<File> getDependenciesInParallel() throws IOException {
+        return DependencyUtils.getDependencies(rootDirectory, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public FrozenDependencyGraph<Integer> getDependencyIdsInParallel() throws IOException {
+        return DependencyUtils.getDependencies(rootDirectory, new PathTrie(), null, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Загрузка графа из снимка и порядок компоновки без проверки отметок файлов; проверка обходит дерево так же,
+     * как этап обхода сканирования.
+     */
+    @Benchmark
+    public List<File> loadSnapshot() throws IOException {
+        return GraphSnapshot.load(snapshotPath).toOrderedList();
+    }
+
+    @Benchmark
+    public long combineFiles() throws IOException {
+        FileUtils.combineFiles(orderedFiles, outputPath);
+        return Files.size(outputPath);
+    }
+
+    @Benchmark
+    public long transferFiles() throws IOException {
+        FileUtils.transferFiles(orderedFiles, outputPath, CombineOptions.compatible());
+        return Files.size(outputPath);
+    }
+
+    @Benchmark
+    public long pipelinedCombine() throws IOException {
+        PipelinedCombiner.combine(orderedFiles, outputPath, CombineOptions.compatible());
+        return Files.size(outputPath);
+    }
+
+    @Benchmark
+    public long positionalCombine() throws IOException {
+        String newline = System.lineSeparator();
+        PositionalCombiner.combine(orderedFiles, outputPath, new CombineOptions(newline, newline),
+                ForkJoinPool.commonPool());
+        return Files.size(outputPath);
+    }
+}
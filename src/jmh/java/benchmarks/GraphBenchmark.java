@@ -0,0 +1,110 @@
+package benchmarks;
+
+import graph.DependencyGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки анализа графа зависимостей, построенного в памяти по {@link SyntheticTree}. Граф сохраняет результат
+ * анализа до первого изменения, поэтому перед каждым вызовом он сбрасывается добавлением и удалением
+ * вспомогательной вершины, и каждый вызов анализирует граф заново.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class GraphBenchmark {
+    /**
+     * Вспомогательная вершина, которой нет в графе.
+     */
+    private static final String SENTINEL = "";
+
+    /**
+     * Число файлов.
+     */
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int fileCount;
+    /**
+     * Наибольшее число зависимостей одного файла.
+     */
+    @Param({"4"})
+    public int fanOut;
+    /**
+     * Число внедрённых циклов.
+     */
+    @Param({"0", "10"})
+    public int cycles;
+
+    /**
+     * Граф зависимостей.
+     */
+    private DependencyGraph<String> graph;
+
+    /**
+     * Строит граф.
+     */
+    @Setup
+    public void setUp() {
+        graph = new SyntheticTree(fileCount, 3, fanOut, cycles, 0, 42).toGraph();
+    }
+
+    /**
+     * Сбрасывает сохранённый результат анализа графа.
+     */
+    private void invalidate() {
+        graph.add(SENTINEL);
+        graph.remove(SENTINEL);
+    }
+
+    @Benchmark
+    public boolean hasCycles() {
+        invalidate();
+        return graph.hasCycles();
+    }
+
+    @Benchmark
+    public List<String> toOrderedList() {
+        invalidate();
+        return graph.toOrderedList();
+    }
+
+    /**
+     * Послойная сортировка. На графе с циклами сортировка проходит все слои и только затем выбрасывает
+     * исключение, поэтому замер включает ту же работу.
+     */
+    @Benchmark
+    public List<List<String>> toLayeredList() {
+        try {
+            return graph.toLayeredList(ForkJoinPool.commonPool());
+        } catch (IllegalStateException illegalStateException) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public List<List<String>> findStronglyConnectedComponents() {
+        invalidate();
+        return graph.findStronglyConnectedComponents();
+    }
+
+    @Benchmark
+    public List<List<String>> findStronglyConnectedComponentsInParallel() {
+        invalidate();
+        return graph.findStronglyConnectedComponents(ForkJoinPool.commonPool());
+    }
+}
@@ -1,13 +1,20 @@
-package graph.algorithm;
+package benchmarks;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
- * Класс, реализующий алгоритм тополгоической сортировки.
+ * Прежняя рекурсивная топологическая сортировка, которую заменил итеративный
+ * {@link TopologicalSortAlgorithm}. Сохранена без изменений как эталон для
+ * {@link TopologicalSortBenchmark}: обход в глубину рекурсивен и проверяет посещённые вершины по
+ * {@link HashSet}, поэтому на длинных цепочках зависимостей переполняет стек.
  *
  * @param <T> тип значений-вершин в графе.
  */
-public class TopologicalSortAlgorithm<T> {
+public class RecursiveTopologicalSort<T> {
     /**
      * Храним в множестве посещенные вершины.
      */
@@ -0,0 +1,138 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import util.RequireDirectiveScanner;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки поиска директив require в одном файле без обхода директорий и построения графа:
+ * {@link RequireDirectiveScanner} против прежнего поиска регулярным выражением по строкам. Файл из
+ * {@link #LINE_COUNT} строк записывается один раз и читается из кэша страниц, поэтому сравнивается только
+ * разбор. Одна операция -- одна строка файла, так что время и {@code gc.alloc.rate.norm} приводятся в расчёте
+ * на строку.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+public class ScannerBenchmark {
+    /**
+     * Число строк файла.
+     */
+    private static final int LINE_COUNT = 10_000;
+
+    /**
+     * Длина строки без директивы в символах.
+     */
+    @Param({"80"})
+    public int lineLength;
+    /**
+     * Каждая какая строка содержит директиву: 1 -- каждая, 1000 -- почти ни одна.
+     */
+    @Param({"1", "20", "1000"})
+    public int directiveInterval;
+
+    /**
+     * Временная директория, в которой лежит файл.
+     */
+    private Path workDirectory;
+    /**
+     * Файл с директивами.
+     */
+    private File file;
+
+    /**
+     * Записывает файл.
+     *
+     * @throws IOException если не удалось записать файл.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        workDirectory = Files.createTempDirectory("filecombiner-scanner-benchmark");
+        Random random = new Random(42);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < LINE_COUNT; ++i) {
+            if (i % directiveInterval == 0) {
+                content.append("require 'dir").append(i % 7).append("/file").append(i).append('\'');
+            } else {
+                for (int j = 0; j < lineLength; ++j) {
+                    content.append(j % 8 == 7 ? ' ' : (char) ('a' + random.nextInt(26)));
+                }
+            }
+            content.append('\n');
+        }
+        Path path = workDirectory.resolve("file");
+        Files.writeString(path, content, StandardCharsets.UTF_8);
+        file = path.toFile();
+    }
+
+    /**
+     * Удаляет временную директорию.
+     *
+     * @throws IOException если не удалось удалить файл.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        SyntheticTree.delete(workDirectory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINE_COUNT)
+    public List<String> scanBytes() throws IOException {
+        return RequireDirectiveScanner.findRequiredPaths(file);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINE_COUNT)
+    public List<String> scanLinesWithRegex() throws IOException {
+        return findWithRegex(file);
+    }
+
+    /**
+     * Прежний поиск директив, который заменил {@link RequireDirectiveScanner}: каждая строка декодируется, и по
+     * ней ищется регулярное выражение {@code require '(.*)'} через {@link Scanner}.
+     *
+     * @param file файл, в котором производится поиск директив.
+     * @return пути из директив в порядке их следования в файле.
+     * @throws IOException если не удалось прочитать файл.
+     */
+    private static List<String> findWithRegex(File file) throws IOException {
+        List<String> result = new ArrayList<>();
+        try (FileReader fileReader = new FileReader(file, StandardCharsets.UTF_8);
+             BufferedReader bufferedReader = new BufferedReader(fileReader)) {
+            String line = bufferedReader.readLine();
+            while (line != null) {
+                Scanner scanner = new Scanner(line);
+                scanner.findAll("require '(.*)'").map(x -> x.group(1)).forEach(result::add);
+                line = bufferedReader.readLine();
+            }
+        }
+        return result;
+    }
+}
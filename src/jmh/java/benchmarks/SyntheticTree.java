@@ -0,0 +1,201 @@
+package benchmarks;
+
+import graph.DependencyGraph;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Синтетическое дерево файлов с директивами require для бенчмарков. Файл с номером {@code i} зависит не более
+ * чем от {@code fanOut} случайных файлов с меньшими номерами, поэтому без внедрённых циклов граф ацикличен.
+ * Каждый внедрённый цикл -- обратное ребро от зависимости к зависимому файлу, замыкающее цикл из двух файлов.
+ * Файлы раскладываются по {@code depth} уровням вложенных директорий, по {@link #FILES_PER_DIRECTORY} файлов в
+ * директории. Дерево детерминировано: одинаковые параметры и зерно дают одинаковые файлы.
+ */
+public class SyntheticTree {
+    /**
+     * Число файлов в одной директории.
+     */
+    public static final int FILES_PER_DIRECTORY = 64;
+    /**
+     * Число поддиректорий в одной директории на всех уровнях, кроме верхнего.
+     */
+    private static final int DIRECTORIES_PER_DIRECTORY = 16;
+
+    /**
+     * Число файлов.
+     */
+    private final int fileCount;
+    /**
+     * Глубина вложенности директорий.
+     */
+    private final int depth;
+    /**
+     * Размер файла в байтах, до которого файл дополняется строками-заполнителями.
+     */
+    private final int fileSize;
+    /**
+     * Зависимости файлов по номерам.
+     */
+    private final int[][] dependencies;
+
+    /**
+     * Генерирует дерево.
+     *
+     * @param fileCount число файлов.
+     * @param depth     глубина вложенности директорий; 0 -- все файлы в корневой директории.
+     * @param fanOut    наибольшее число зависимостей одного файла.
+     * @param cycles    число внедрённых циклов.
+     * @param fileSize  размер файла в байтах; если директивы длиннее, файл не дополняется.
+     * @param seed      зерно генератора случайных чисел.
+     * @throws IllegalArgumentException если параметры некорректны.
+     */
+    public SyntheticTree(int fileCount, int depth, int fanOut, int cycles, int fileSize, long seed)
+            throws IllegalArgumentException {
+        if (fileCount < 1 || depth < 0 || fanOut < 0 || cycles < 0 || fileSize < 0) {
+            throw new IllegalArgumentException("Tree parameters must be non-negative and the tree must contain "
+                    + "at least one file.");
+        }
+        this.fileCount = fileCount;
+        this.depth = depth;
+        this.fileSize = fileSize;
+
+        Random random = new Random(seed);
+        dependencies = new int[fileCount][];
+        for (int file = 0; file < fileCount; ++file) {
+            int count = Math.min(file, fanOut);
+            dependencies[file] = random.ints(0, Math.max(file, 1)).distinct().limit(count).toArray();
+        }
+        for (int i = 0; i < cycles && fileCount > 1; ++i) {
+            int file = 1 + random.nextInt(fileCount - 1);
+            if (dependencies[file].length == 0) {
+                continue;
+            }
+            int dependency = dependencies[file][0];
+            int[] closing = Arrays.copyOf(dependencies[dependency], dependencies[dependency].length + 1);
+            closing[closing.length - 1] = file;
+            dependencies[dependency] = closing;
+        }
+    }
+
+    /**
+     * Возвращает число файлов.
+     *
+     * @return число файлов.
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * Возвращает путь к файлу относительно корневой директории.
+     *
+     * @param file номер файла.
+     * @return относительный путь с разделителем {@code '/'}.
+     */
+    public String getPath(int file) {
+        StringBuilder path = new StringBuilder();
+        int directory = file / FILES_PER_DIRECTORY;
+        for (int level = depth - 1; level >= 0; --level) {
+            int divisor = (int) Math.pow(DIRECTORIES_PER_DIRECTORY, level);
+            int component = level == depth - 1
+                    ? directory / divisor
+                    : directory / divisor % DIRECTORIES_PER_DIRECTORY;
+            path.append('d').append(component).append('/');
+        }
+        return path.append('f').append(file).toString();
+    }
+
+    /**
+     * Возвращает зависимости файла.
+     *
+     * @param file номер файла.
+     * @return номера файлов, от которых зависит файл.
+     */
+    public int[] getDependencies(int file) {
+        return dependencies[file];
+    }
+
+    /**
+     * Строит граф зависимостей дерева в памяти, без файлов на диске.
+     *
+     * @return граф, вершины которого -- относительные пути файлов.
+     */
+    public DependencyGraph<String> toGraph() {
+        DependencyGraph<String> graph = new DependencyGraph<>();
+        for (int file = 0; file < fileCount; ++file) {
+            List<String> fileDependencies = new ArrayList<>(dependencies[file].length);
+            for (var dependency : dependencies[file]) {
+                fileDependencies.add(getPath(dependency));
+            }
+            graph.addDependencies(getPath(file), fileDependencies);
+        }
+        return graph;
+    }
+
+    /**
+     * Записывает дерево в директорию.
+     *
+     * @param rootDirectory корневая директория; создаётся, если её нет.
+     * @return записанные файлы в порядке номеров.
+     * @throws IOException если не удалось записать файлы.
+     */
+    public List<File> writeTo(Path rootDirectory) throws IOException {
+        List<File> files = new ArrayList<>(fileCount);
+        for (int file = 0; file < fileCount; ++file) {
+            Path path = rootDirectory.resolve(getPath(file));
+            Files.createDirectories(path.getParent());
+            int written = 0;
+            try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                for (var dependency : dependencies[file]) {
+                    String line = "require '" + getPath(dependency) + "'\n";
+                    writer.write(line);
+                    written += line.length();
+                }
+                String filler = "filler line of file " + file + "\n";
+                while (written + filler.length() <= fileSize) {
+                    writer.write(filler);
+                    written += filler.length();
+                }
+            }
+            files.add(path.toFile());
+        }
+        return files;
+    }
+
+    /**
+     * Удаляет директорию со всем содержимым.
+     *
+     * @param directory директория.
+     * @throws IOException если не удалось удалить файлы.
+     */
+    public static void delete(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exception) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package benchmarks;
+
+import graph.algorithm.IndexedGraph;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Класс, реализующий алгоритм тополгоической сортировки.
+ * <p>
+ * Обход в глубину выполняется без рекурсии, с явным стеком вызовов, по графу с пронумерованными вершинами
+ * {@link IndexedGraph}, поэтому сортировка работает на цепочках зависимостей любой глубины.
+ * <p>
+ * Граф зависимостей получает топологический порядок из того же прохода, что и компоненты сильной связности
+ * ({@link graph.GraphAnalysis}), поэтому эта сортировка хранится только как итеративный вариант для
+ * {@link TopologicalSortBenchmark}.
+ *
+ * @param <T> тип значений-вершин в графе.
+ */
+public class TopologicalSortAlgorithm<T> {
+    /**
+     * Храним посещенные вершины в битовом множестве.
+     */
+    private BitSet visited;
+    /**
+     * Стек вызовов обхода в глубину, заменяющий рекурсию.
+     */
+    private int[] callStack;
+    /**
+     * Для каждой вершины на стеке вызовов храним позицию следующего непросмотренного соседа.
+     */
+    private int[] nextEdges;
+    /**
+     * Храним в списке отсортированные вершины.
+     */
+    private List<T> sortedObjects;
+    /**
+     * Представление графа с пронумерованными вершинами.
+     */
+    private IndexedGraph<T> graph;
+
+    /**
+     * Восстанавливает состояние алгоритма к исходному.
+     */
+    private void resetToInitialState() {
+        int size = graph.size();
+        visited = new BitSet(size);
+        callStack = new int[size];
+        nextEdges = new int[size];
+        sortedObjects = new ArrayList<>(size);
+    }
+
+    /**
+     * Запускает обход в глубину от вершины {@code start}.
+     *
+     * @param start вершина, от которой запускается обход.
+     */
+    private void runDepthFirstSearch(int start) {
+        int callStackSize = 0;
+        visited.set(start);
+        nextEdges[start] = graph.getOffset(start);
+        callStack[callStackSize++] = start;
+
+        while (callStackSize > 0) {
+            int vertex = callStack[callStackSize - 1];
+            if (nextEdges[vertex] < graph.getOffset(vertex + 1)) {
+                int neighbour = graph.getTarget(nextEdges[vertex]++);
+                if (!visited.get(neighbour)) {
+                    visited.set(neighbour);
+                    nextEdges[neighbour] = graph.getOffset(neighbour);
+                    callStack[callStackSize++] = neighbour;
+                }
+                continue;
+            }
+
+            --callStackSize;
+            sortedObjects.add(graph.getVertex(vertex));
+        }
+    }
+
+    /**
+     * Возвращает список вершин в топологическом порядке.
+     *
+     * @param graphRepresentation представление графа в виде списка смежности.
+     * @return список вершин в топологическом порядке.
+     */
+    public List<T> getSortedList(Map<T, List<T>> graphRepresentation) {
+        return getSortedList(IndexedGraph.of(graphRepresentation));
+    }
+
+    /**
+     * Возвращает список вершин в топологическом порядке.
+     *
+     * @param graph граф с пронумерованными вершинами.
+     * @return список вершин в топологическом порядке.
+     */
+    public List<T> getSortedList(IndexedGraph<T> graph) {
+        this.graph = graph;
+        resetToInitialState();
+
+        for (int vertex = 0; vertex < graph.size(); ++vertex) {
+            if (!visited.get(vertex)) {
+                runDepthFirstSearch(vertex);
+            }
+        }
+
+        return sortedObjects;
+    }
+}
@@ -0,0 +1,134 @@
+package benchmarks;
+
+import graph.DependencyGraph;
+import graph.algorithm.IndexedGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки итеративной топологической сортировки ({@link TopologicalSortAlgorithm}) против прежней
+ * рекурсивной ({@link RecursiveTopologicalSort}) на одних и тех же графах: ацикличном {@link SyntheticTree} и
+ * цепочке, в которой каждая вершина зависит от следующей, так что глубина обхода равна числу вершин. Размеры
+ * ограничены теми, на которых рекурсивная сортировка не переполняет стек потока; это проверяется при
+ * подготовке графа.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+public class TopologicalSortBenchmark {
+    /**
+     * Число вершин.
+     */
+    @Param({"1000", "5000"})
+    public int vertexCount;
+    /**
+     * Форма графа: {@code tree} -- {@link SyntheticTree}, {@code chain} -- цепочка.
+     */
+    @Param({"tree", "chain"})
+    public String shape;
+
+    /**
+     * Граф в виде списка смежности, который принимают обе сортировки.
+     */
+    private Map<String, List<String>> graphRepresentation;
+    /**
+     * Тот же граф с пронумерованными вершинами.
+     */
+    private IndexedGraph<String> indexedGraph;
+
+    /**
+     * Строит граф и проверяет, что рекурсивная сортировка его выдерживает и совпадает с итеративной.
+     */
+    @Setup
+    public void setUp() {
+        graphRepresentation = switch (shape) {
+            case "tree" -> toRepresentation(new SyntheticTree(vertexCount, 3, 4, 0, 0, 42).toGraph());
+            case "chain" -> createChain(vertexCount);
+            default -> throw new IllegalArgumentException("Unknown shape: " + shape);
+        };
+        indexedGraph = IndexedGraph.of(graphRepresentation);
+
+        List<String> expected;
+        try {
+            expected = new RecursiveTopologicalSort<String>().getSortedList(graphRepresentation);
+        } catch (StackOverflowError stackOverflowError) {
+            throw new IllegalStateException("The recursive sort overflows the stack on a " + shape + " of "
+                    + vertexCount + " vertices.");
+        }
+        if (!expected.equals(new TopologicalSortAlgorithm<String>().getSortedList(graphRepresentation))) {
+            throw new IllegalStateException("The iterative sort returns a different order.");
+        }
+    }
+
+    @Benchmark
+    public List<String> sortRecursively() {
+        return new RecursiveTopologicalSort<String>().getSortedList(graphRepresentation);
+    }
+
+    /**
+     * Итеративная сортировка вместе с нумерацией вершин списка смежности, то есть с той же работой, что и
+     * {@link #sortRecursively()}.
+     */
+    @Benchmark
+    public List<String> sortIteratively() {
+        return new TopologicalSortAlgorithm<String>().getSortedList(graphRepresentation);
+    }
+
+    /**
+     * Итеративная сортировка уже пронумерованного графа, как в {@link graph.FrozenDependencyGraph}.
+     */
+    @Benchmark
+    public List<String> sortIndexedGraph() {
+        return new TopologicalSortAlgorithm<String>().getSortedList(indexedGraph);
+    }
+
+    /**
+     * Возвращает список смежности графа зависимостей.
+     *
+     * @param graph граф зависимостей.
+     * @return список смежности.
+     */
+    private static Map<String, List<String>> toRepresentation(DependencyGraph<String> graph) {
+        Map<String, List<String>> representation = new LinkedHashMap<>();
+        for (var vertex : graph.getVertices()) {
+            representation.put(vertex, graph.getDependencies(vertex));
+        }
+        return representation;
+    }
+
+    /**
+     * Строит цепочку, в которой вершина {@code i} зависит от вершины {@code i + 1}.
+     *
+     * @param length число вершин.
+     * @return список смежности цепочки.
+     */
+    private static Map<String, List<String>> createChain(int length) {
+        Map<String, List<String>> representation = new LinkedHashMap<>();
+        for (int i = 0; i < length; ++i) {
+            List<String> dependencies = new ArrayList<>(1);
+            if (i + 1 < length) {
+                dependencies.add(Integer.toString(i + 1));
+            }
+            representation.put(Integer.toString(i), dependencies);
+        }
+        return representation;
+    }
+}
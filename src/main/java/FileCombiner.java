@@ -1,12 +1,16 @@
 import graph.DependencyGraph;
+import graph.GraphAnalysis;
+import util.CombineOptions;
 import util.DependencyUtils;
 import util.FileUtils;
+import util.PipelinedCombiner;
 
 import java.io.*;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Класс, реализующий консольное приложение "Файловый компоновщик".
@@ -36,6 +40,22 @@ public class FileCombiner {
         return false;
     }
 
+    /**
+     * Задаёт пользователю вопрос, на который нужно ответить "да" или "нет".
+     *
+     * @param question вопрос.
+     * @return {@code true}, если пользователь ответил утвердительно, иначе {@code false}.
+     */
+    private boolean isUserAgreed(String question) {
+        System.out.print(question + "\n>> ");
+        Scanner scanner = new Scanner(System.in);
+        if (scanner.hasNextLine()) {
+            String line = scanner.nextLine().toLowerCase(Locale.ROOT);
+            return line.contains("y");
+        }
+        return false;
+    }
+
     /**
      * Метод, который последовательно запрашивает у пользователя информацию для ввода и обрабатывает её.
      * Необходим для удобного прерывания работы с помощью {@code return}, а также для того, чтобы не помещать
@@ -75,6 +95,24 @@ public class FileCombiner {
 
         if (tryCombineFiles(finalList, outputPath.get())) {
             System.out.println("Files have been successfully combined");
+            if (isUserAgreed("Do you want to watch the root directory and recombine the files on changes? [y/n]")) {
+                tryWatch(rootDirectory.get(), outputPath.get());
+            }
+        }
+    }
+
+    /**
+     * Запускает наблюдение за корневой директорией, при котором файлы перекомпоновываются при каждом изменении.
+     *
+     * @param rootDirectory корневая директория.
+     * @param outputPath    путь к выходному файлу.
+     */
+    private void tryWatch(File rootDirectory, Path outputPath) {
+        System.out.println("Watching " + rootDirectory + " for changes. Press Ctrl+C to stop.");
+        try {
+            new WatchLinker(rootDirectory, outputPath).run();
+        } catch (IOException ioException) {
+            System.out.println("It is not possible to watch the root directory: " + ioException.getMessage());
         }
     }
 
@@ -85,20 +123,19 @@ public class FileCombiner {
      * @return {@code true}, если граф зависимостей удовлетворяет условиям, иначе в стандартный поток вывода
      * печатается информация о несоответствии и из метода возвращается {@code false}.
      */
-    private boolean validateDependencyGraph(DependencyGraph<File> fileDependencyGraph) {
-        if (fileDependencyGraph.hasCycles()) {
+    static boolean validateDependencyGraph(DependencyGraph<File> fileDependencyGraph) {
+        GraphAnalysis<File> analysis = DependencyUtils.analyze(fileDependencyGraph);
+        if (analysis.hasCycles()) {
             System.out.println("Error! The files contain cyclic dependencies.");
-            List<List<File>> stronglyConnectedComponents = fileDependencyGraph.findStronglyConnectedComponents();
             System.out.println("The following groups of files cause cyclic dependencies:");
             int groupIndex = 1;
-            for (var component : stronglyConnectedComponents) {
-                if (component.size() == 1 && fileDependencyGraph.isDependencyLooped(component.get(0))) {
+            for (var component : analysis.getCyclicComponents()) {
+                if (component.size() == 1) {
                     System.out.println(component.get(0) + " refers to itself.");
-                    ++groupIndex;
-                } else if (component.size() > 1) {
+                } else {
                     System.out.println(groupIndex + ". " + FileUtils.joinFilenames(" | ", component));
-                    ++groupIndex;
                 }
+                ++groupIndex;
             }
             return false;
         } else if (fileDependencyGraph.isEmpty()) {
@@ -159,7 +196,7 @@ public class FileCombiner {
      */
     private boolean tryCombineFiles(List<File> sortedList, Path outputPath) {
         try {
-            FileUtils.combineFiles(sortedList, outputPath);
+            PipelinedCombiner.combine(sortedList, outputPath, CombineOptions.compatible());
             return true;
         } catch (SecurityException securityException) {
             System.out.println("Not enough rights to get an absolute path. " +
@@ -207,7 +244,7 @@ public class FileCombiner {
      */
     private Optional<DependencyGraph<File>> tryGetDependencies(File rootDirectory) {
         try {
-            return Optional.of(DependencyUtils.getDependencies(rootDirectory));
+            return Optional.of(DependencyUtils.getDependenciesIncrementally(rootDirectory, ForkJoinPool.commonPool()));
         } catch (InvalidPathException invalidPathException) {
             System.out.println(invalidPathException.getInput());
         } catch (FileNotFoundException fileNotFoundException) {
@@ -0,0 +1,441 @@
+import graph.DependencyGraph;
+import graph.FrozenDependencyGraph;
+import util.BatchLinker;
+import util.CombineOptions;
+import util.ContentCache;
+import util.DaemonServer;
+import util.DependencyUtils;
+import util.FileUtils;
+import util.GraphSnapshot;
+import util.LinkMetrics;
+import util.LinkSession;
+import util.LinkTarget;
+import util.PathTrie;
+import util.ScanIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Класс, реализующий неинтерактивную компоновку, заданную аргументами командной строки. Одна команда
+ * компонует одну или несколько целей по одному сканированию корневой директории ({@link BatchLinker}).
+ * Команду можно выполнить в текущем процессе или передать процессу {@link LinkDaemon}, который хранит индекс
+ * сканирования, граф зависимостей и кэш содержимого файлов в памяти между запросами ({@link LinkSession}).
+ */
+public class LinkCommand {
+    /**
+     * Код завершения при успешной компоновке всех целей.
+     */
+    public static final int EXIT_SUCCESS = 0;
+    /**
+     * Код завершения, если хотя бы одну цель скомпоновать не удалось.
+     */
+    public static final int EXIT_FAILURE = 1;
+    /**
+     * Код завершения при некорректных аргументах.
+     */
+    public static final int EXIT_USAGE = 2;
+    /**
+     * Справка по аргументам командной строки.
+     */
+    public static final String USAGE = """
+            Usage:
+              java Main
+                  Interactive mode.
+              java Main link --root DIR --output FILE [--entry FILE]... [LINK OPTIONS]
+                  Combine the files reachable from the entry files (all files if none are given) into FILE.
+              java Main link --root DIR --target ENTRY[,ENTRY]...=FILE... [LINK OPTIONS]
+                  Combine several targets from one scan of DIR.
+              Link options:
+                  --keep-line-endings  Keep the line separators of the files.
+                  --metrics FILE       Write the time and counters of every phase to FILE as JSON.
+                  --snapshot FILE      Take the dependency graph from FILE while the files of DIR are unchanged,
+                                       otherwise scan DIR and save the graph to FILE. FILE must be outside DIR.
+              java Main link --connect SOCKET <link arguments>
+                  Send the link arguments to a running daemon.
+              java Main daemon --socket SOCKET
+                  Serve link requests on a Unix domain socket, keeping dependency graphs in memory.""";
+
+    /**
+     * Корневая директория.
+     */
+    private final File rootDirectory;
+    /**
+     * Цели компоновки.
+     */
+    private final List<LinkTarget> targets;
+    /**
+     * Параметры компоновки.
+     */
+    private final CombineOptions options;
+    /**
+     * Путь к файлу, в который записывается сводка этапов ({@link LinkMetrics}), или {@code null}.
+     */
+    private final Path metricsPath;
+    /**
+     * Путь к файлу снимка графа зависимостей ({@link GraphSnapshot}) или {@code null}.
+     */
+    private final Path snapshotPath;
+
+    /**
+     * @param rootDirectory корневая директория.
+     * @param targets       цели компоновки.
+     * @param options       параметры компоновки.
+     * @param metricsPath   путь к файлу сводки этапов или {@code null}, если сводка не нужна.
+     * @param snapshotPath  путь к файлу снимка графа или {@code null}, если снимок не нужен.
+     */
+    private LinkCommand(File rootDirectory, List<LinkTarget> targets, CombineOptions options, Path metricsPath,
+                        Path snapshotPath) {
+        this.rootDirectory = rootDirectory;
+        this.targets = targets;
+        this.options = options;
+        this.metricsPath = metricsPath;
+        this.snapshotPath = snapshotPath;
+    }
+
+    /**
+     * Разбирает аргументы команды {@code link}. Относительные пути разрешаются относительно рабочей директории
+     * и приводятся к абсолютному виду.
+     *
+     * @param arguments        аргументы команды без её имени.
+     * @param workingDirectory рабочая директория, относительно которой заданы пути.
+     * @return разобранная команда.
+     * @throws IllegalArgumentException если аргументы некорректны.
+     */
+    public static LinkCommand parse(List<String> arguments, Path workingDirectory) throws IllegalArgumentException {
+        File rootDirectory = null;
+        Path outputPath = null;
+        Path metricsPath = null;
+        Path snapshotPath = null;
+        List<File> entryFiles = new ArrayList<>();
+        List<LinkTarget> targets = new ArrayList<>();
+        CombineOptions options = CombineOptions.compatible();
+        try {
+            for (int i = 0; i < arguments.size(); ++i) {
+                String argument = arguments.get(i);
+                switch (argument) {
+                    case "--root" -> rootDirectory = resolve(workingDirectory, getValue(arguments, ++i)).toFile();
+                    case "--output" -> outputPath = resolve(workingDirectory, getValue(arguments, ++i));
+                    case "--entry" -> entryFiles.add(resolve(workingDirectory, getValue(arguments, ++i)).toFile());
+                    case "--target" -> targets.add(parseTarget(getValue(arguments, ++i), workingDirectory));
+                    case "--metrics" -> metricsPath = resolve(workingDirectory, getValue(arguments, ++i));
+                    case "--snapshot" -> snapshotPath = resolve(workingDirectory, getValue(arguments, ++i));
+                    case "--keep-line-endings" -> options = new CombineOptions(System.lineSeparator(),
+                            System.lineSeparator());
+                    default -> throw new IllegalArgumentException("Unknown argument: " + argument);
+                }
+            }
+        } catch (InvalidPathException invalidPathException) {
+            throw new IllegalArgumentException("Invalid path: " + invalidPathException.getMessage());
+        }
+
+        if (rootDirectory == null) {
+            throw new IllegalArgumentException("The root directory is not specified (--root).");
+        }
+        if (snapshotPath != null && snapshotPath.startsWith(rootDirectory.toPath())) {
+            throw new IllegalArgumentException("The snapshot file (--snapshot) must be outside the root directory.");
+        }
+        if (outputPath != null) {
+            targets.add(0, new LinkTarget(entryFiles, outputPath));
+        } else if (!entryFiles.isEmpty()) {
+            throw new IllegalArgumentException("Entry files are given without an output file (--output).");
+        }
+        if (targets.isEmpty()) {
+            throw new IllegalArgumentException("Neither an output file (--output) nor targets (--target) are "
+                    + "specified.");
+        }
+        return new LinkCommand(rootDirectory, targets, options, metricsPath, snapshotPath);
+    }
+
+    /**
+     * Возвращает корневую директорию команды.
+     *
+     * @return абсолютный путь к корневой директории.
+     */
+    public File getRootDirectory() {
+        return rootDirectory;
+    }
+
+    /**
+     * Выполняет команду: строит граф зависимостей и компонует все цели. Ошибка в одной цели не мешает
+     * компоновке остальных. Если состояние корневой директории ({@link LinkSession}) передано, граф и кэш
+     * содержимого берутся из него и строятся заново, только если файлы корневой директории изменились; снимок
+     * графа в этом случае не загружается, а лишь сохраняется после перестроения графа. Иначе, если у всех целей
+     * заданы входные файлы, разбираются только файлы, достижимые из входных
+     * ({@link DependencyUtils#getDependenciesReachableFrom(File, List)}), а в остальных случаях сканируется вся
+     * корневая директория. Если задан файл снимка ({@link GraphSnapshot}) и файлы корневой директории не
+     * изменились, граф берётся из снимка без сканирования; иначе вся директория сканируется, и граф сохраняется
+     * в снимок. Если задан файл сводки, в него записываются время и счётчики этапов, даже если компоновка не
+     * удалась.
+     *
+     * @param session  состояние корневой директории, хранящееся в памяти между командами, или {@code null}, если
+     *                 команда выполняется один раз и нужно использовать индекс в файле {@link ScanIndex#FILE_NAME}
+     *                 корневой директории.
+     * @param executor пул потоков, на котором сканируется корневая директория.
+     * @param out      поток, в который печатаются сообщения.
+     * @return код завершения.
+     */
+    public int execute(LinkSession session, ExecutorService executor, PrintStream out) {
+        if (metricsPath == null) {
+            return link(session, executor, out);
+        }
+
+        LinkMetrics metrics = LinkMetrics.start();
+        int exitCode;
+        try {
+            exitCode = link(session, executor, out);
+        } finally {
+            metrics.stop();
+        }
+        try {
+            metrics.writeJson(metricsPath);
+        } catch (IOException ioException) {
+            out.println("It is not possible to write the metrics to " + metricsPath + ": "
+                    + ioException.getMessage());
+            exitCode = EXIT_FAILURE;
+        }
+        return exitCode;
+    }
+
+    /**
+     * Строит граф зависимостей и компонует все цели.
+     *
+     * @param session  состояние корневой директории или {@code null}.
+     * @param executor пул потоков, на котором сканируется корневая директория.
+     * @param out      поток, в который печатаются сообщения.
+     * @return код завершения.
+     */
+    private int link(LinkSession session, ExecutorService executor, PrintStream out) {
+        if (!rootDirectory.isDirectory()) {
+            out.println("The root directory " + rootDirectory + " does not exist or is not a directory.");
+            return EXIT_FAILURE;
+        }
+
+        try {
+            return session != null ? linkInSession(session, executor, out) : linkOnce(executor, out);
+        } catch (InvalidPathException invalidPathException) {
+            out.println(invalidPathException.getInput());
+            return EXIT_FAILURE;
+        } catch (IOException ioException) {
+            out.println(ioException.getMessage());
+            return EXIT_FAILURE;
+        }
+    }
+
+    /**
+     * Компонует все цели по графу и кэшу содержимого, хранящимся в состоянии корневой директории. Граф
+     * проверяется обходом дерева директорий и строится заново, только если файлы изменились; тогда же он
+     * сохраняется в снимок, если тот задан.
+     *
+     * @param session  состояние корневой директории.
+     * @param executor пул потоков, на котором сканируется корневая директория.
+     * @param out      поток, в который печатаются сообщения.
+     * @return код завершения.
+     * @throws InvalidPathException если в директиве require указан некорректный путь.
+     * @throws IOException          если граф не удалось построить.
+     */
+    private int linkInSession(LinkSession session, ExecutorService executor, PrintStream out)
+            throws InvalidPathException, IOException {
+        if (session.refresh(executor) && snapshotPath != null) {
+            saveSnapshot(session.getDependencyGraph(), session.getPaths(), session.getStamps(), out);
+        }
+        BatchLinker batchLinker = new BatchLinker(options, session.getContentCache());
+        FrozenDependencyGraph<Integer> dependencyGraph = session.getDependencyGraph();
+        PathTrie paths = session.getPaths();
+        return linkTargets(target -> batchLinker.link(dependencyGraph, paths, target), out);
+    }
+
+    /**
+     * Компонует все цели по снимку графа или по графу, построенному для этой команды. С
+     * {@code --keep-line-endings} файлы копируются как есть параллельно, так как кэш содержимого команды пуст.
+     *
+     * @param executor пул потоков, на котором сканируется корневая директория и копируются файлы.
+     * @param out      поток, в который печатаются сообщения.
+     * @return код завершения.
+     * @throws InvalidPathException если в директиве require указан некорректный путь.
+     * @throws IOException          если граф не удалось построить.
+     */
+    private int linkOnce(ExecutorService executor, PrintStream out) throws InvalidPathException, IOException {
+        GraphSnapshot snapshot = loadSnapshot();
+        BatchLinker batchLinker = new BatchLinker(options, new ContentCache(BatchLinker.DEFAULT_CACHE_CAPACITY),
+                executor);
+        if (snapshot != null) {
+            return linkTargets(target -> batchLinker.link(snapshot, target), out);
+        }
+
+        List<File> entryFiles = new ArrayList<>();
+        boolean hasEntryFiles = true;
+        for (var target : targets) {
+            entryFiles.addAll(target.entryFiles());
+            hasEntryFiles &= !target.entryFiles().isEmpty();
+        }
+        if (hasEntryFiles && snapshotPath == null) {
+            DependencyGraph<File> dependencyGraph = DependencyUtils.getDependenciesReachableFrom(rootDirectory,
+                    entryFiles);
+            return linkTargets(target -> batchLinker.link(dependencyGraph, target), out);
+        }
+
+        GraphSnapshot.FileStamps stamps = snapshotPath != null
+                ? GraphSnapshot.FileStamps.capture(rootDirectory)
+                : null;
+        PathTrie paths = new PathTrie();
+        FrozenDependencyGraph<Integer> dependencyGraph = DependencyUtils.getDependenciesIncrementally(rootDirectory,
+                paths, executor);
+        if (stamps != null) {
+            saveSnapshot(dependencyGraph, paths,
+                    stamps.withFiles(DependencyUtils.getPathsOutside(rootDirectory, dependencyGraph, paths)), out);
+        }
+        return linkTargets(target -> batchLinker.link(dependencyGraph, paths, target), out);
+    }
+
+    /**
+     * Сохраняет граф зависимостей в файл снимка. Ошибка записи печатается, но не прерывает компоновку.
+     *
+     * @param dependencyGraph граф зависимостей номеров путей.
+     * @param paths           дерево путей, в котором интернированы вершины графа.
+     * @param stamps          отметки файлов, снятые до построения графа.
+     * @param out             поток, в который печатаются сообщения.
+     */
+    private void saveSnapshot(FrozenDependencyGraph<Integer> dependencyGraph, PathTrie paths,
+                              GraphSnapshot.FileStamps stamps, PrintStream out) {
+        try {
+            GraphSnapshot.save(dependencyGraph, paths, stamps, snapshotPath);
+        } catch (IOException ioException) {
+            out.println("It is not possible to write the graph snapshot to " + snapshotPath + ": "
+                    + ioException.getMessage());
+        }
+    }
+
+    /**
+     * Загружает снимок графа зависимостей, если он задан и соответствует текущему состоянию корневой
+     * директории. Отсутствующий, повреждённый или устаревший снимок не считается ошибкой: граф строится заново.
+     * Исключение времени выполнения при чтении снимка тоже приводит к полному сканированию, а не к ошибке
+     * команды или завершению процесса {@link LinkDaemon}.
+     *
+     * @return снимок графа или {@code null}, если граф нужно построить заново.
+     */
+    private GraphSnapshot loadSnapshot() {
+        if (snapshotPath == null || !Files.isRegularFile(snapshotPath)) {
+            return null;
+        }
+        try {
+            GraphSnapshot snapshot = GraphSnapshot.load(snapshotPath);
+            return snapshot.isUpToDate(rootDirectory) ? snapshot : null;
+        } catch (IOException | RuntimeException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Компонует все цели и печатает результат каждой. Ошибка в одной цели не мешает компоновке остальных.
+     *
+     * @param targetLinker способ компоновки одной цели.
+     * @param out          поток, в который печатаются сообщения.
+     * @return код завершения.
+     */
+    private int linkTargets(TargetLinker targetLinker, PrintStream out) {
+        int exitCode = EXIT_SUCCESS;
+        for (var target : targets) {
+            try {
+                BatchLinker.LinkResult result = targetLinker.link(target);
+                if (result.isLinked()) {
+                    out.println("Files have been combined into " + target.outputPath());
+                    continue;
+                }
+                out.println("Error! " + target.outputPath() + " was not combined: the files contain cyclic "
+                        + "dependencies:");
+                for (var component : result.cyclicComponents()) {
+                    out.println(FileUtils.joinFilenames(" | ", component));
+                }
+            } catch (IOException ioException) {
+                out.println("When trying to combine " + target.outputPath() + ", an error occurred: "
+                        + ioException.getMessage());
+            }
+            exitCode = EXIT_FAILURE;
+        }
+        return exitCode;
+    }
+
+    /**
+     * Способ компоновки одной цели: по графу зависимостей или по его снимку.
+     */
+    @FunctionalInterface
+    private interface TargetLinker {
+        /**
+         * Компонует цель.
+         *
+         * @param target цель компоновки.
+         * @return результат компоновки цели.
+         * @throws IOException если возникает некоторая ошибка, связанная с файловым вводом и выводом.
+         */
+        BatchLinker.LinkResult link(LinkTarget target) throws IOException;
+    }
+
+    /**
+     * Передаёт аргументы команды {@code link} процессу {@link LinkDaemon} и печатает его ответ.
+     *
+     * @param socketPath путь к сокету процесса.
+     * @param arguments  аргументы команды без её имени.
+     * @param out        поток, в который печатается ответ.
+     * @return код завершения, который вернул процесс.
+     * @throws IOException если не удалось связаться с процессом.
+     */
+    public static int forward(Path socketPath, List<String> arguments, PrintStream out) throws IOException {
+        return DaemonServer.forward(socketPath, FileUtils.getWorkingDirectoryPath(), arguments, out);
+    }
+
+    /**
+     * Разбирает цель вида {@code ENTRY[,ENTRY]...=FILE}.
+     *
+     * @param value            значение аргумента {@code --target}.
+     * @param workingDirectory рабочая директория, относительно которой заданы пути.
+     * @return цель компоновки.
+     * @throws IllegalArgumentException если значение некорректно.
+     */
+    private static LinkTarget parseTarget(String value, Path workingDirectory) throws IllegalArgumentException {
+        int separator = value.lastIndexOf('=');
+        if (separator <= 0 || separator == value.length() - 1) {
+            throw new IllegalArgumentException("A target must look like ENTRY[,ENTRY]...=FILE: " + value);
+        }
+        List<File> entryFiles = new ArrayList<>();
+        for (var entry : Arrays.asList(value.substring(0, separator).split(","))) {
+            entryFiles.add(resolve(workingDirectory, entry).toFile());
+        }
+        return new LinkTarget(entryFiles, resolve(workingDirectory, value.substring(separator + 1)));
+    }
+
+    /**
+     * Возвращает значение аргумента.
+     *
+     * @param arguments аргументы команды.
+     * @param index     индекс значения.
+     * @return значение аргумента.
+     * @throws IllegalArgumentException если значение не указано.
+     */
+    private static String getValue(List<String> arguments, int index) throws IllegalArgumentException {
+        if (index >= arguments.size()) {
+            throw new IllegalArgumentException("Missing value for " + arguments.get(index - 1));
+        }
+        return arguments.get(index);
+    }
+
+    /**
+     * Разрешает путь относительно рабочей директории.
+     *
+     * @param workingDirectory рабочая директория.
+     * @param path             путь.
+     * @return абсолютный нормализованный путь.
+     * @throws InvalidPathException если путь некорректен.
+     */
+    private static Path resolve(Path workingDirectory, String path) throws InvalidPathException {
+        return workingDirectory.resolve(path).toAbsolutePath().normalize();
+    }
+}
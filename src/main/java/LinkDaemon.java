@@ -0,0 +1,104 @@
+import util.DaemonServer;
+import util.LinkSession;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Класс, реализующий долгоживущий процесс, который выполняет команды {@link LinkCommand}, полученные через
+ * Unix domain socket ({@link DaemonServer}). Процесс хранит в памяти состояние каждой корневой директории
+ * ({@link LinkSession}): индекс сканирования, построенный граф зависимостей и кэш содержимого файлов. Перед
+ * командой проверяются только размеры и времена изменения файлов, поэтому повторная компоновка неизменившегося
+ * дерева не тратит время на запуск JVM, загрузку индекса, построение графа и чтение файлов, а после изменения
+ * разбираются и читаются заново только изменившиеся файлы.
+ * <p>
+ * Каждый клиент обслуживается в своём потоке, а соединение, по которому запрос не пришёл целиком за
+ * {@link DaemonServer#DEFAULT_READ_TIMEOUT_MILLIS} миллисекунд, закрывается. Сами команды выполняются по одному:
+ * сводка этапов ({@link util.LinkMetrics}) собирается одна на процесс, а сканирование и так занимает общий пул
+ * потоков. Исключение при выполнении команды возвращается клиенту с кодом {@link LinkCommand#EXIT_FAILURE} и
+ * не останавливает процесс.
+ */
+public class LinkDaemon {
+    /**
+     * Сервер, принимающий запросы.
+     */
+    private final DaemonServer server;
+    /**
+     * Состояния корневых директорий. Доступны только под {@link #commandLock}.
+     */
+    private final Map<File, LinkSession> sessions = new HashMap<>();
+    /**
+     * Блокировка, под которой выполняются команды.
+     */
+    private final Object commandLock = new Object();
+
+    /**
+     * @param socketPath путь к сокету, на котором нужно принимать запросы.
+     */
+    public LinkDaemon(Path socketPath) {
+        this.server = new DaemonServer(socketPath, DaemonServer.DEFAULT_READ_TIMEOUT_MILLIS, this::handle);
+    }
+
+    /**
+     * Принимает и выполняет запросы, пока поток не будет прерван. При завершении процесса индексы сохраняются в
+     * корневые директории.
+     *
+     * @throws IOException если не удалось открыть сокет.
+     */
+    public void run() throws IOException {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::saveIndexes));
+        server.run();
+    }
+
+    /**
+     * Выполняет один запрос.
+     *
+     * @param workingDirectory рабочая директория клиента или {@code null}, если запрос пуст.
+     * @param arguments        аргументы команды {@code link}.
+     * @param out              поток, в который печатаются сообщения для клиента.
+     * @return код завершения команды.
+     */
+    private int handle(String workingDirectory, List<String> arguments, PrintStream out) {
+        try {
+            if (workingDirectory == null) {
+                throw new IllegalArgumentException("The request is empty.");
+            }
+            LinkCommand command = LinkCommand.parse(arguments, Paths.get(workingDirectory));
+            synchronized (commandLock) {
+                LinkSession session = sessions.computeIfAbsent(command.getRootDirectory(), LinkSession::new);
+                return command.execute(session, ForkJoinPool.commonPool(), out);
+            }
+        } catch (IllegalArgumentException illegalArgumentException) {
+            out.println(illegalArgumentException.getMessage());
+            out.println(LinkCommand.USAGE);
+            return LinkCommand.EXIT_USAGE;
+        } catch (RuntimeException runtimeException) {
+            out.println("The request failed: " + runtimeException);
+            return LinkCommand.EXIT_FAILURE;
+        }
+    }
+
+    /**
+     * Сохраняет индексы сканирования в корневые директории, чтобы ими могли воспользоваться следующие запуски.
+     * Индексы сохраняются после завершения выполняемой команды, чтобы не записать наполовину обновлённый индекс.
+     */
+    private void saveIndexes() {
+        synchronized (commandLock) {
+            for (var session : sessions.values()) {
+                try {
+                    session.saveScanIndex();
+                } catch (IOException ioException) {
+                    // Индекс лишь ускоряет следующий запуск, поэтому невозможность его сохранить не является
+                    // ошибкой.
+                }
+            }
+        }
+    }
+}
@@ -1,6 +1,64 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Точка входа приложения. Без аргументов запускается интерактивный режим, иначе первый аргумент -- команда
+ * ({@code link} или {@code daemon}, см. {@link LinkCommand#USAGE}).
+ */
 public class Main {
     public static void main(String[] args) {
-        FileCombiner fileCombiner = new FileCombiner();
-        fileCombiner.run();
+        if (args.length == 0) {
+            FileCombiner fileCombiner = new FileCombiner();
+            fileCombiner.run();
+            return;
+        }
+
+        List<String> arguments = Arrays.asList(args).subList(1, args.length);
+        try {
+            switch (args[0]) {
+                case "link" -> System.exit(link(arguments));
+                case "daemon" -> daemon(arguments);
+                default -> throw new IllegalArgumentException("Unknown command: " + args[0]);
+            }
+        } catch (IllegalArgumentException illegalArgumentException) {
+            System.out.println(illegalArgumentException.getMessage());
+            System.out.println(LinkCommand.USAGE);
+            System.exit(LinkCommand.EXIT_USAGE);
+        } catch (IOException ioException) {
+            System.out.println(ioException.getMessage());
+            System.exit(LinkCommand.EXIT_FAILURE);
+        }
+    }
+
+    /**
+     * Выполняет команду {@code link} в текущем процессе или передаёт её процессу {@link LinkDaemon}.
+     *
+     * @param arguments аргументы команды без её имени.
+     * @return код завершения.
+     * @throws IOException если не удалось связаться с процессом {@link LinkDaemon}.
+     */
+    private static int link(List<String> arguments) throws IOException {
+        if (arguments.size() >= 2 && arguments.get(0).equals("--connect")) {
+            return LinkCommand.forward(Paths.get(arguments.get(1)), arguments.subList(2, arguments.size()),
+                    System.out);
+        }
+        LinkCommand command = LinkCommand.parse(arguments, Paths.get("").toAbsolutePath());
+        return command.execute(null, ForkJoinPool.commonPool(), System.out);
+    }
+
+    /**
+     * Запускает процесс {@link LinkDaemon}.
+     *
+     * @param arguments аргументы команды без её имени.
+     * @throws IOException если не удалось открыть сокет.
+     */
+    private static void daemon(List<String> arguments) throws IOException {
+        if (arguments.size() != 2 || !arguments.get(0).equals("--socket")) {
+            throw new IllegalArgumentException("The daemon needs a socket path: daemon --socket SOCKET");
+        }
+        new LinkDaemon(Paths.get(arguments.get(1))).run();
     }
 }
@@ -0,0 +1,200 @@
+import graph.DependencyGraph;
+import util.CombineOptions;
+import util.DependencyUtils;
+import util.LiveDependencyGraph;
+import util.PipelinedCombiner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс, реализующий режим наблюдения: граф зависимостей хранится в памяти ({@link LiveDependencyGraph}),
+ * изменения файлов в корневой директории применяются к нему по мере поступления событий {@link WatchService},
+ * после чего граф заново проверяется на циклы и файлы перекомпоновываются в выходной файл. Граф поддерживает
+ * топологический порядок инкрементально ({@link DependencyGraph#enableIncrementalOrder()}), поэтому проверка на
+ * циклы после изменения нескольких файлов не требует обхода всего графа. Инкрементальный порядок зависит от
+ * истории правок, поэтому файлы компонуются в порядке анализа графа ({@link DependencyGraph#analyze()}), как и в
+ * интерактивном режиме: один проход по графу линеен и намного дешевле перезаписи всех файлов.
+ */
+public class WatchLinker {
+    /**
+     * Время в миллисекундах, в течение которого не должно поступать новых событий, чтобы серия событий
+     * считалась завершённой. Редакторы при рефакторинге сохраняют сотни файлов подряд, и такая серия
+     * приводит к одной перекомпоновке.
+     */
+    private static final long QUIET_PERIOD_MILLIS = 200;
+
+    /**
+     * Корневая директория.
+     */
+    private final File rootDirectory;
+    /**
+     * Путь к выходному файлу.
+     */
+    private final Path outputPath;
+    /**
+     * Директории, на которые зарегистрировано наблюдение.
+     */
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    /**
+     * Граф зависимостей файлов корневой директории. Пока в нём есть некорректные файлы, перекомпоновка не
+     * выполняется.
+     */
+    private final LiveDependencyGraph dependencyGraph;
+
+    /**
+     * @param rootDirectory корневая директория, за которой нужно наблюдать.
+     * @param outputPath    путь к выходному файлу.
+     */
+    public WatchLinker(File rootDirectory, Path outputPath) {
+        this.rootDirectory = rootDirectory;
+        this.outputPath = outputPath;
+        this.dependencyGraph = new LiveDependencyGraph(rootDirectory, outputPath);
+    }
+
+    /**
+     * Запускает наблюдение за корневой директорией. Метод возвращает управление только при прерывании потока
+     * или ошибке службы наблюдения.
+     *
+     * @throws IOException если не удалось зарегистрировать наблюдение за директориями.
+     */
+    public void run() throws IOException {
+        try (WatchService watchService = rootDirectory.toPath().getFileSystem().newWatchService()) {
+            rescan(watchService);
+            relink();
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<Path> changedPaths = new LinkedHashSet<>();
+                boolean overflow = collectChanges(watchService, changedPaths);
+                if (overflow) {
+                    rescan(watchService);
+                } else if (!applyChanges(watchService, changedPaths)) {
+                    continue;
+                }
+                relink();
+            }
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException closedWatchServiceException) {
+            System.out.println("Watching has been stopped.");
+        }
+    }
+
+    /**
+     * Дожидается серии событий и собирает пути изменившихся файлов. Серия считается завершённой, если в течение
+     * {@link #QUIET_PERIOD_MILLIS} не поступило новых событий.
+     *
+     * @param watchService служба наблюдения.
+     * @param changedPaths множество, в которое добавляются пути изменившихся файлов и директорий.
+     * @return {@code true}, если часть событий была потеряна и директорию нужно пересканировать целиком.
+     * @throws InterruptedException если ожидание было прервано.
+     */
+    private boolean collectChanges(WatchService watchService, Set<Path> changedPaths) throws InterruptedException {
+        boolean overflow = false;
+        WatchKey key = watchService.take();
+        while (key != null) {
+            Path directory = watchedDirectories.get(key);
+            for (var event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                    overflow = true;
+                } else {
+                    changedPaths.add(directory.resolve((Path) event.context()));
+                }
+            }
+            if (!key.reset()) {
+                watchedDirectories.remove(key);
+            }
+            key = watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return overflow;
+    }
+
+    /**
+     * Регистрирует наблюдение за новыми директориями и применяет изменения файлов к графу зависимостей.
+     * Изменения уже наблюдаемых директорий не влияют на граф: изменения их файлов приходят отдельными
+     * событиями.
+     *
+     * @param watchService служба наблюдения, на которую регистрируются новые директории.
+     * @param changedPaths пути изменившихся файлов и директорий.
+     * @return {@code true}, если граф или набор некорректных файлов изменился, иначе {@code false}.
+     * @throws IOException если не удалось зарегистрировать наблюдение за новой директорией.
+     */
+    private boolean applyChanges(WatchService watchService, Set<Path> changedPaths) throws IOException {
+        List<Path> pathsToApply = new ArrayList<>(changedPaths.size());
+        for (var path : changedPaths) {
+            if (Files.isDirectory(path)) {
+                if (watchedDirectories.containsValue(path) || dependencyGraph.isIgnored(path.toFile())) {
+                    continue;
+                }
+                registerAll(watchService, path);
+            }
+            pathsToApply.add(path);
+        }
+        return dependencyGraph.applyChanges(pathsToApply);
+    }
+
+    /**
+     * Пересканирует корневую директорию целиком и заново регистрирует наблюдение за всеми её поддиректориями.
+     *
+     * @param watchService служба наблюдения.
+     * @throws IOException если не удалось зарегистрировать наблюдение за директориями.
+     */
+    private void rescan(WatchService watchService) throws IOException {
+        for (var key : watchedDirectories.keySet()) {
+            key.cancel();
+        }
+        watchedDirectories.clear();
+        registerAll(watchService, rootDirectory.toPath());
+
+        dependencyGraph.rescan();
+    }
+
+    /**
+     * Регистрирует наблюдение за директорией и всеми её поддиректориями.
+     *
+     * @param watchService служба наблюдения.
+     * @param directory    директория.
+     * @throws IOException если не удалось зарегистрировать наблюдение.
+     */
+    private void registerAll(WatchService watchService, Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                watchedDirectories.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Проверяет граф и перекомпоновывает файлы, если в зависимостях нет ошибок и циклов.
+     */
+    private void relink() {
+        List<String> errors = dependencyGraph.getErrors();
+        if (!errors.isEmpty()) {
+            System.out.println("The files will be combined once the following errors are fixed:");
+            for (var error : errors) {
+                System.out.println(error);
+            }
+            return;
+        }
+        DependencyGraph<File> graph = dependencyGraph.getDependencyGraph();
+        if (graph.hasCycles() || graph.isEmpty()) {
+            FileCombiner.validateDependencyGraph(graph);
+            return;
+        }
+
+        try {
+            PipelinedCombiner.combine(DependencyUtils.analyze(graph).getOrderedList(), outputPath,
+                    CombineOptions.compatible());
+            System.out.println("Files have been combined into " + outputPath);
+        } catch (IOException ioException) {
+            System.out.println("When trying to combine files, a write error occurred: " + ioException.getMessage());
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package graph;
 
-import graph.algorithm.TarjanStronglyConnectedComponentsAlgorithm;
-import graph.algorithm.TopologicalSortAlgorithm;
+import graph.algorithm.IndexedGraph;
+import graph.algorithm.LayeredTopologicalSortAlgorithm;
+import graph.algorithm.ParallelStronglyConnectedComponentsAlgorithm;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Класс, реализующий граф зависимостей.
@@ -15,6 +17,24 @@ public class DependencyGraph<T> {
      * Граф хранится в виде списка смежности.
      */
     private final Map<T, List<T>> data = new HashMap<>();
+    /**
+     * Обратный список смежности: для каждой вершины хранятся вершины, которые от неё зависят, в порядке
+     * добавления первого ребра, и число рёбер от каждой из них. Ребро удаляется из него за постоянное время.
+     */
+    private final Map<T, Map<T, Integer>> reverseData = new HashMap<>();
+    /**
+     * Результат анализа графа, сохранённый до первого изменения графа.
+     */
+    private GraphAnalysis<T> analysis;
+    /**
+     * Включён ли режим инкрементального топологического порядка ({@link #enableIncrementalOrder()}).
+     */
+    private boolean isIncrementalOrderEnabled;
+    /**
+     * Топологический порядок, поддерживаемый при изменениях графа, или {@code null}, если режим выключен или
+     * граф содержит циклы.
+     */
+    private IncrementalOrder<T> incrementalOrder;
 
     /**
      * Добавляет вершину в граф.
@@ -24,6 +44,11 @@ public class DependencyGraph<T> {
     public void add(T key) {
         if (!data.containsKey(key)) {
             data.put(key, new ArrayList<>());
+            reverseData.put(key, new LinkedHashMap<>());
+            analysis = null;
+            if (incrementalOrder != null) {
+                incrementalOrder.add(key);
+            }
         }
     }
 
@@ -36,7 +61,62 @@ public class DependencyGraph<T> {
     public void addDependency(T dependent, T dependency) {
         add(dependent);
         add(dependency);
+        if (incrementalOrder != null && !incrementalOrder.insert(dependent, dependency)) {
+            incrementalOrder = null;
+        }
         data.get(dependent).add(dependency);
+        reverseData.get(dependency).merge(dependent, 1, Integer::sum);
+        analysis = null;
+    }
+
+    /**
+     * Добавляет зависимость в граф, только если она не замыкает цикл или петлю. В режиме инкрементального порядка
+     * проверка занимает время, пропорциональное затронутой части порядка, иначе -- время обхода зависимостей
+     * зависимости.
+     *
+     * @param dependent  зависимая вершина.
+     * @param dependency зависимость вершины.
+     * @return {@code true}, если зависимость добавлена, иначе {@code false}; в этом случае граф не меняется.
+     */
+    public boolean tryAddDependency(T dependent, T dependency) {
+        if (dependent.equals(dependency)) {
+            return false;
+        }
+        if (contains(dependent) && contains(dependency)) {
+            boolean isAcyclic = incrementalOrder != null
+                    ? incrementalOrder.insert(dependent, dependency)
+                    : !dependsOn(dependency, dependent);
+            if (!isAcyclic) {
+                return false;
+            }
+        }
+        addDependency(dependent, dependency);
+        return true;
+    }
+
+    /**
+     * Проверяет, зависит ли вершина от другой непосредственно или через другие вершины.
+     *
+     * @param dependent  вершина, с которой начинается обход зависимостей.
+     * @param dependency искомая зависимость.
+     * @return {@code true}, если обход зависимостей доходит до {@code dependency}, иначе {@code false}.
+     */
+    private boolean dependsOn(T dependent, T dependency) {
+        Set<T> visited = new HashSet<>();
+        Deque<T> stack = new ArrayDeque<>();
+        visited.add(dependent);
+        stack.push(dependent);
+        while (!stack.isEmpty()) {
+            for (var next : data.get(stack.pop())) {
+                if (next.equals(dependency)) {
+                    return true;
+                }
+                if (visited.add(next)) {
+                    stack.push(next);
+                }
+            }
+        }
+        return false;
     }
 
     /**
@@ -56,30 +136,50 @@ public class DependencyGraph<T> {
     }
 
     /**
-     * Удаляет вершину из графа.
+     * Заменяет все зависимости вершины на переданные. Если вершины нет в графе, она добавляется. Время работы
+     * пропорционально числу старых и новых зависимостей.
      *
-     * @param key значение вершины, которую нужно удалить.
+     * @param dependent    зависимая вершина.
+     * @param dependencies новые зависимости вершины.
      */
-    public void remove(T key) {
-        data.remove(key);
-        for (var val : data.values()) {
-            val.remove(key);
+    public void setDependencies(T dependent, Collection<T> dependencies) {
+        add(dependent);
+        List<T> oldDependencies = data.get(dependent);
+        for (T dependency : oldDependencies) {
+            reverseData.get(dependency).computeIfPresent(dependent, (key, count) -> count > 1 ? count - 1 : null);
         }
+        oldDependencies.clear();
+        analysis = null;
+        addDependencies(dependent, dependencies);
     }
 
     /**
-     * Проверяет граф на наличие петель.
+     * Удаляет вершину из графа вместе со всеми рёбрами, в которых она участвует. Рёбра к зависимостям
+     * удаляются за время, пропорциональное их числу, а рёбра от каждой зависимой вершины -- за время,
+     * пропорциональное числу зависимостей этой вершины, так как они хранятся списком в порядке добавления.
      *
-     * @return {@code true}, если в графе есть петли, иначе {@code false}.
+     * @param key значение вершины, которую нужно удалить.
      */
-    private boolean hasSingleLoops() {
-        for (T vertex : data.keySet()) {
-            if (isDependencyLooped(vertex)) {
-                return true;
+    public void remove(T key) {
+        List<T> dependencies = data.remove(key);
+        if (dependencies == null) {
+            return;
+        }
+        analysis = null;
+        if (incrementalOrder != null) {
+            incrementalOrder.remove(key);
+        }
+        Map<T, Integer> dependents = reverseData.remove(key);
+        for (T dependency : dependencies) {
+            if (!dependency.equals(key)) {
+                reverseData.get(dependency).remove(key);
+            }
+        }
+        for (T dependent : dependents.keySet()) {
+            if (!dependent.equals(key)) {
+                data.get(dependent).removeIf(key::equals);
             }
         }
-
-        return false;
     }
 
     /**
@@ -95,11 +195,27 @@ public class DependencyGraph<T> {
     /**
      * Находит <a href="https://en.wikipedia.org/wiki/Strongly_connected_component">компоненты сильной свзяности<a/>
      *
-     * @return компоненты сильной связности.
+     * @return новый изменяемый список компонент сильной связности; без копирования их возвращает
+     *         {@link GraphAnalysis#getStronglyConnectedComponents()}.
      */
     public List<List<T>> findStronglyConnectedComponents() {
-        var algorithm = new TarjanStronglyConnectedComponentsAlgorithm<T>();
-        return algorithm.findStronglyConnectedComponents(data);
+        return analyze().copyStronglyConnectedComponents();
+    }
+
+    /**
+     * Находит компоненты сильной связности параллельно ({@link ParallelStronglyConnectedComponentsAlgorithm}).
+     * Если граф уже проанализирован, возвращается копия сохранённого результата. Порядок компонент и порядок вершин
+     * внутри них не определён.
+     *
+     * @param pool пул потоков, на котором выполняется поиск.
+     * @return компоненты сильной связности.
+     */
+    public List<List<T>> findStronglyConnectedComponents(ForkJoinPool pool) {
+        if (analysis != null) {
+            return analysis.copyStronglyConnectedComponents();
+        }
+        return new ParallelStronglyConnectedComponentsAlgorithm<T>(pool).findStronglyConnectedComponents(
+                IndexedGraph.of(data));
     }
 
     /**
@@ -112,15 +228,154 @@ public class DependencyGraph<T> {
         return new ArrayList<>(data.get(dependent));
     }
 
+    /**
+     * Возвращает вершины, которые непосредственно зависят от данной.
+     *
+     * @param dependency вершина, для которой нужно вернуть зависящие от неё вершины.
+     * @return вершины, зависящие от данной (по одной на каждое ребро).
+     */
+    public List<T> getDependents(T dependency) {
+        List<T> dependents = new ArrayList<>();
+        for (var entry : reverseData.get(dependency).entrySet()) {
+            for (int i = 0; i < entry.getValue(); ++i) {
+                dependents.add(entry.getKey());
+            }
+        }
+        return dependents;
+    }
+
+    /**
+     * Возвращает все вершины, которые зависят от данной непосредственно или через другие вершины, т.е. все
+     * вершины, которые затронет изменение данной.
+     *
+     * @param dependency вершина, для которой нужно вернуть зависящие от неё вершины.
+     * @return вершины, транзитивно зависящие от данной, в порядке обхода в ширину; сама вершина не включается.
+     */
+    public Set<T> getAllDependents(T dependency) {
+        Set<T> visited = new LinkedHashSet<>();
+        Queue<T> queue = new ArrayDeque<>(reverseData.get(dependency).keySet());
+        while (!queue.isEmpty()) {
+            T dependent = queue.poll();
+            if (!dependent.equals(dependency) && visited.add(dependent)) {
+                queue.addAll(reverseData.get(dependent).keySet());
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Возвращает подграф, состоящий из данных вершин и всех вершин, от которых они зависят непосредственно или
+     * через другие вершины. Вершины добавляются в подграф в порядке обхода в ширину.
+     *
+     * @param dependents вершины, с которых начинается обход.
+     * @return подграф транзитивных зависимостей вершин.
+     * @throws NoSuchElementException если какой-либо из вершин нет в графе.
+     */
+    public DependencyGraph<T> getClosure(Collection<T> dependents) throws NoSuchElementException {
+        DependencyGraph<T> closure = new DependencyGraph<>();
+        Set<T> visited = new HashSet<>();
+        Queue<T> queue = new ArrayDeque<>();
+        for (var dependent : dependents) {
+            if (!contains(dependent)) {
+                throw new NoSuchElementException("Vertex " + dependent + " is not in the graph.");
+            }
+            if (visited.add(dependent)) {
+                queue.add(dependent);
+            }
+        }
+        while (!queue.isEmpty()) {
+            T dependent = queue.poll();
+            List<T> dependencies = data.get(dependent);
+            closure.addDependencies(dependent, dependencies);
+            for (var dependency : dependencies) {
+                if (visited.add(dependency)) {
+                    queue.add(dependency);
+                }
+            }
+        }
+        return closure;
+    }
+
     /**
      * Проверяет граф на наличие петель и циклов.
      *
      * @return {@code true}, если граф содержит петли или циклы, иначе {@code false}.
      */
     public boolean hasCycles() {
-        var algorithm = new TarjanStronglyConnectedComponentsAlgorithm<T>();
-        var components = algorithm.findStronglyConnectedComponents(data);
-        return hasSingleLoops() || components.stream().anyMatch(component -> component.size() != 1);
+        if (incrementalOrder != null) {
+            return false;
+        }
+        return analyze().hasCycles();
+    }
+
+    /**
+     * Проверяет граф на наличие петель и циклов, находя компоненты сильной связности параллельно
+     * ({@link ParallelStronglyConnectedComponentsAlgorithm}). Если граф уже проанализирован, возвращается
+     * сохранённый результат.
+     *
+     * @param pool пул потоков, на котором выполняется поиск.
+     * @return {@code true}, если граф содержит петли или циклы, иначе {@code false}.
+     */
+    public boolean hasCycles(ForkJoinPool pool) {
+        if (incrementalOrder != null) {
+            return false;
+        }
+        if (analysis != null) {
+            return analysis.hasCycles();
+        }
+        var algorithm = new ParallelStronglyConnectedComponentsAlgorithm<T>(pool);
+        algorithm.findStronglyConnectedComponents(IndexedGraph.of(data));
+        return algorithm.hasCycles();
+    }
+
+    /**
+     * Анализирует граф за один проход: находит компоненты сильной связности, петли, циклы и топологический
+     * порядок. Результат сохраняется и возвращается повторно, пока граф не изменится.
+     *
+     * @return результат анализа графа.
+     */
+    public GraphAnalysis<T> analyze() {
+        if (analysis == null) {
+            analysis = new GraphAnalysis<>(IndexedGraph.of(data));
+        }
+        if (isIncrementalOrderEnabled && incrementalOrder == null && !analysis.hasCycles()) {
+            incrementalOrder = new IncrementalOrder<>(data, reverseData, analysis.getOrderedList());
+        }
+        return analysis;
+    }
+
+    /**
+     * Включает режим инкрементального топологического порядка: граф поддерживает топологический порядок
+     * вершин при каждом изменении (алгоритм Пирса -- Келли), поэтому {@link #toOrderedList()} и
+     * {@link #hasCycles()} не обходят граф, а {@link #tryAddDependency} отклоняет ребро, замыкающее цикл, за
+     * время, пропорциональное затронутой части порядка. Удобен для долгоживущих графов, которые часто меняются.
+     * <p>
+     * Если {@link #addDependency} замыкает цикл, ребро добавляется, а порядок сбрасывается: пока цикл не
+     * устранён, граф анализируется целиком, как без этого режима. Первый анализ ацикличного графа после этого
+     * снова строит порядок за один проход.
+     */
+    public void enableIncrementalOrder() {
+        isIncrementalOrderEnabled = true;
+        analyze();
+    }
+
+    /**
+     * Проверяет, есть ли вершина в графе.
+     *
+     * @param key значение вершины.
+     * @return {@code true}, если вершина есть в графе, иначе {@code false}.
+     */
+    public boolean contains(T key) {
+        return data.containsKey(key);
+    }
+
+    /**
+     * Возвращает все вершины графа.
+     *
+     * @return множество вершин графа.
+     */
+    public Set<T> getVertices() {
+        return new HashSet<>(data.keySet());
     }
 
     /**
@@ -134,12 +389,45 @@ public class DependencyGraph<T> {
 
     /**
      * Возвращает вершины, отсортированные в топологическом порядке, т.е. если вершина А, зависит от вершины В, то
-     * вершина А в возвращаемом списке имеет индекс больше, чем индекс вершины B.
+     * вершина А в возвращаемом списке имеет индекс больше, чем индекс вершины B. В режиме инкрементального
+     * порядка ({@link #enableIncrementalOrder()}) список строится за линейное время без обхода графа.
      *
-     * @return список вершин в топологическом порядке.
+     * @return новый изменяемый список вершин в топологическом порядке; без копирования его возвращает
+     *         {@link GraphAnalysis#getOrderedList()}.
      */
     public List<T> toOrderedList() {
-        TopologicalSortAlgorithm<T> topologicalSortAlgorithm = new TopologicalSortAlgorithm<>();
-        return topologicalSortAlgorithm.getSortedList(data);
+        if (incrementalOrder != null) {
+            return incrementalOrder.toList();
+        }
+        return new ArrayList<>(analyze().getOrderedList());
+    }
+
+    /**
+     * Разбивает вершины на слои параллельной сортировкой Кана ({@link LayeredTopologicalSortAlgorithm}): каждая
+     * вершина слоя зависит только от вершин предыдущих слоёв, поэтому вершины одного слоя можно обрабатывать
+     * одновременно. Порядок вершин внутри слоя не зависит от числа потоков.
+     *
+     * @param pool пул потоков, на котором выполняется сортировка.
+     * @return список слоёв в порядке, в котором их можно обрабатывать.
+     * @throws IllegalStateException если граф содержит петли или циклы.
+     */
+    public List<List<T>> toLayeredList(ForkJoinPool pool) throws IllegalStateException {
+        var algorithm = new LayeredTopologicalSortAlgorithm<T>(pool);
+        List<List<T>> levels = algorithm.getLevels(IndexedGraph.of(data));
+        if (!algorithm.getUnsortedVertices().isEmpty()) {
+            throw new IllegalStateException("Graph contains cycles: " + algorithm.getUnsortedVertices().size()
+                    + " vertices lie on cycles or depend on them.");
+        }
+        return levels;
+    }
+
+    /**
+     * Возвращает неизменяемую компактную копию графа, в которой вершины пронумерованы, а зависимости хранятся в
+     * массивах. Последующие изменения этого графа на копию не влияют.
+     *
+     * @return неизменяемая копия графа.
+     */
+    public FrozenDependencyGraph<T> freeze() {
+        return new FrozenDependencyGraph<>(IndexedGraph.of(data));
     }
 }
@@ -0,0 +1,301 @@
+package graph;
+
+import graph.algorithm.IndexedGraph;
+import graph.algorithm.IntBuffer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Неизменяемый граф зависимостей, полученный из {@link DependencyGraph#freeze()}. Вершинам сопоставлены номера,
+ * а зависимости хранятся в двух массивах {@code int[]} (сжатое построчное представление), поэтому граф занимает
+ * намного меньше памяти, чем списки смежности, а алгоритмы работают с ним напрямую, без промежуточных структур.
+ * Граф можно построить и без списков смежности, добавляя зависимости в {@link Builder}, а граф, вершины
+ * которого -- плотные номера (например, номера путей), -- в {@link IdBuilder}, который не хранит и не хэширует
+ * вершины: номер вершины и есть её номер в графе.
+ *
+ * @param <T> тип объектов, хранящихся в графе.
+ */
+public class FrozenDependencyGraph<T> {
+    /**
+     * Граф с пронумерованными вершинами.
+     */
+    private final IndexedGraph<T> graph;
+    /**
+     * Результат анализа графа, вычисляемый при первом обращении.
+     */
+    private GraphAnalysis<T> analysis;
+
+    /**
+     * @param graph граф с пронумерованными вершинами.
+     */
+    FrozenDependencyGraph(IndexedGraph<T> graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Возвращает номер вершины, проверяя, что она есть в графе.
+     *
+     * @param key значение вершины.
+     * @return номер вершины.
+     * @throws NoSuchElementException если вершины нет в графе.
+     */
+    private int getExistingId(T key) throws NoSuchElementException {
+        int id = graph.getId(key);
+        if (id < 0) {
+            throw new NoSuchElementException("There is no vertex " + key + " in the graph.");
+        }
+        return id;
+    }
+
+    /**
+     * Проверяет, есть ли петля у некоторой вершины (т.е. зависит ли вершина от себя же).
+     *
+     * @param dependency вершина, которую нужно проверить.
+     * @return {@code true}, если вершина зависит от себя же, иначе {@code false}.
+     */
+    public boolean isDependencyLooped(T dependency) {
+        return graph.hasLoop(getExistingId(dependency));
+    }
+
+    /**
+     * Находит <a href="https://en.wikipedia.org/wiki/Strongly_connected_component">компоненты сильной свзяности<a/>
+     *
+     * @return новый изменяемый список компонент сильной связности; без копирования их возвращает
+     *         {@link GraphAnalysis#getStronglyConnectedComponents()}.
+     */
+    public List<List<T>> findStronglyConnectedComponents() {
+        return analyze().copyStronglyConnectedComponents();
+    }
+
+    /**
+     * Анализирует граф за один проход. Граф неизменяем, поэтому анализ выполняется один раз.
+     *
+     * @return результат анализа графа.
+     */
+    public GraphAnalysis<T> analyze() {
+        if (analysis == null) {
+            analysis = new GraphAnalysis<>(graph);
+        }
+        return analysis;
+    }
+
+    /**
+     * Возвращает зависимости для данной вершины.
+     *
+     * @param dependent вершины, для которой нужно вернуть её зависимости.
+     * @return зависимости вершины.
+     */
+    public List<T> getDependencies(T dependent) {
+        return graph.getNeighbours(getExistingId(dependent));
+    }
+
+    /**
+     * Возвращает подграф, состоящий из данных вершин и всех вершин, от которых они зависят напрямую или
+     * через другие вершины, так же, как {@link DependencyGraph#getClosure(Collection)}.
+     *
+     * @param dependents вершины, с которых начинается обход.
+     * @return подграф транзитивных зависимостей вершин.
+     * @throws NoSuchElementException если какой-либо из вершин нет в графе.
+     */
+    public FrozenDependencyGraph<T> getClosure(Collection<T> dependents) throws NoSuchElementException {
+        boolean[] visited = new boolean[graph.size()];
+        int[] queue = new int[graph.size()];
+        int tail = 0;
+        for (var dependent : dependents) {
+            int id = getExistingId(dependent);
+            if (!visited[id]) {
+                visited[id] = true;
+                queue[tail++] = id;
+            }
+        }
+
+        IndexedGraph.Builder<T> closure = new IndexedGraph.Builder<>();
+        for (int head = 0; head < tail; ++head) {
+            int id = queue[head];
+            int closureId = closure.add(graph.getVertex(id));
+            for (int edge = graph.getOffset(id); edge < graph.getOffset(id + 1); ++edge) {
+                int dependency = graph.getTarget(edge);
+                closure.addEdge(closureId, closure.add(graph.getVertex(dependency)));
+                if (!visited[dependency]) {
+                    visited[dependency] = true;
+                    queue[tail++] = dependency;
+                }
+            }
+        }
+        return new FrozenDependencyGraph<>(closure.build());
+    }
+
+    /**
+     * Проверяет граф на наличие петель и циклов.
+     *
+     * @return {@code true}, если граф содержит петли или циклы, иначе {@code false}.
+     */
+    public boolean hasCycles() {
+        return analyze().hasCycles();
+    }
+
+    /**
+     * Проверяет, есть ли вершина в графе.
+     *
+     * @param key значение вершины.
+     * @return {@code true}, если вершина есть в графе, иначе {@code false}.
+     */
+    public boolean contains(T key) {
+        return graph.getId(key) >= 0;
+    }
+
+    /**
+     * Проверяет, пустой ли граф.
+     *
+     * @return {@code true}, если граф пустой, иначе {@code false}.
+     */
+    public boolean isEmpty() {
+        return graph.size() == 0;
+    }
+
+    /**
+     * Возвращает вершины графа в порядке их номеров.
+     *
+     * @return новый список вершин.
+     */
+    public List<T> getVertices() {
+        List<T> vertices = new ArrayList<>(graph.size());
+        for (int id = 0; id < graph.size(); ++id) {
+            vertices.add(graph.getVertex(id));
+        }
+        return vertices;
+    }
+
+    /**
+     * Возвращает количество вершин в графе.
+     *
+     * @return количество вершин.
+     */
+    public int size() {
+        return graph.size();
+    }
+
+    /**
+     * Возвращает вершины, отсортированные в топологическом порядке, т.е. если вершина А, зависит от вершины В, то
+     * вершина А в возвращаемом списке имеет индекс больше, чем индекс вершины B.
+     *
+     * @return новый изменяемый список вершин в топологическом порядке; без копирования его возвращает
+     *         {@link GraphAnalysis#getOrderedList()}.
+     */
+    public List<T> toOrderedList() {
+        return new ArrayList<>(analyze().getOrderedList());
+    }
+
+    /**
+     * Возвращает количество зависимостей (рёбер) в графе.
+     *
+     * @return количество рёбер.
+     */
+    public int getEdgeCount() {
+        return graph.getEdgeCount();
+    }
+
+    /**
+     * Класс, строящий неизменяемый граф зависимостей напрямую в сжатом построчном виде. Зависимости хранятся
+     * парами номеров до вызова {@link #build()}, поэтому построение не создаёт списков и объектов на каждое
+     * ребро. Зависимости одной вершины можно добавлять несколькими вызовами, как в
+     * {@link DependencyGraph#addDependencies(Object, Collection)}.
+     *
+     * @param <T> тип объектов, хранящихся в графе.
+     */
+    public static class Builder<T> {
+        /**
+         * Построитель нумерованного представления графа.
+         */
+        private final IndexedGraph.Builder<T> graph = new IndexedGraph.Builder<>();
+
+        /**
+         * Добавляет вершину в граф.
+         *
+         * @param key значение вершины.
+         */
+        public void add(T key) {
+            graph.add(key);
+        }
+
+        /**
+         * Добавляет несколько зависимостей вершины в граф.
+         *
+         * @param dependent    зависимая вершина.
+         * @param dependencies зависимости вершины.
+         */
+        public void addDependencies(T dependent, Collection<T> dependencies) {
+            int dependentId = graph.add(dependent);
+            for (var dependency : dependencies) {
+                graph.addEdge(dependentId, graph.add(dependency));
+            }
+        }
+
+        /**
+         * Строит граф. После вызова построитель использовать нельзя.
+         *
+         * @return неизменяемый граф зависимостей.
+         */
+        public FrozenDependencyGraph<T> build() {
+            return new FrozenDependencyGraph<>(graph.build());
+        }
+    }
+
+    /**
+     * Класс, строящий неизменяемый граф, вершины которого -- номера от {@code 0} до {@code n - 1}, где
+     * {@code n} -- наибольший добавленный номер, увеличенный на единицу. Номер вершины совпадает с её номером в
+     * сжатом построчном представлении, поэтому вершины не упаковываются в объекты и не хэшируются, а построение
+     * хранит только по два {@code int} на ребро. Номера должны идти подряд: пропущенный номер становится
+     * вершиной без зависимостей.
+     */
+    public static class IdBuilder {
+        /**
+         * Начала добавленных рёбер.
+         */
+        private final IntBuffer edgeSources = new IntBuffer();
+        /**
+         * Концы добавленных рёбер.
+         */
+        private final IntBuffer edgeTargets = new IntBuffer();
+        /**
+         * Количество вершин: наибольший добавленный номер, увеличенный на единицу.
+         */
+        private int size;
+
+        /**
+         * Добавляет вершину в граф.
+         *
+         * @param id номер вершины.
+         */
+        public void add(int id) {
+            size = Math.max(size, id + 1);
+        }
+
+        /**
+         * Добавляет зависимости вершины в граф.
+         *
+         * @param dependent    номер зависимой вершины.
+         * @param dependencies номера зависимостей вершины.
+         */
+        public void addDependencies(int dependent, int[] dependencies) {
+            add(dependent);
+            for (var dependency : dependencies) {
+                add(dependency);
+                edgeSources.add(dependent);
+                edgeTargets.add(dependency);
+            }
+        }
+
+        /**
+         * Строит граф. После вызова построитель использовать нельзя.
+         *
+         * @return неизменяемый граф зависимостей номеров.
+         */
+        public FrozenDependencyGraph<Integer> build() {
+            return new FrozenDependencyGraph<>(IndexedGraph.ofIds(size, edgeSources, edgeTargets));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package graph;
+
+import graph.algorithm.IndexedGraph;
+import graph.algorithm.TarjanStronglyConnectedComponentsAlgorithm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Результат анализа графа зависимостей за один проход алгоритма Тарьяна: компоненты сильной связности,
+ * вершины с петлями, наличие циклов и топологический порядок вершин. Результат неизменяем.
+ *
+ * @param <T> тип объектов, хранящихся в графе.
+ */
+public class GraphAnalysis<T> {
+    /**
+     * Компоненты сильной связности.
+     */
+    private final List<List<T>> stronglyConnectedComponents;
+    /**
+     * Вершины, зависящие от самих себя.
+     */
+    private final Set<T> loopedVertices;
+    /**
+     * Вершины в порядке завершения обхода в глубину.
+     */
+    private final List<T> orderedList;
+    /**
+     * Содержит ли граф петли или циклы.
+     */
+    private final boolean hasCycles;
+
+    /**
+     * Анализирует граф.
+     *
+     * @param graph граф с пронумерованными вершинами.
+     */
+    GraphAnalysis(IndexedGraph<T> graph) {
+        var algorithm = new TarjanStronglyConnectedComponentsAlgorithm<T>();
+        List<List<T>> components = new ArrayList<>();
+        for (var component : algorithm.findStronglyConnectedComponents(graph)) {
+            components.add(Collections.unmodifiableList(component));
+        }
+        stronglyConnectedComponents = Collections.unmodifiableList(components);
+        loopedVertices = Collections.unmodifiableSet(new HashSet<>(algorithm.getLoopedVertices()));
+        orderedList = Collections.unmodifiableList(algorithm.getFinishOrder());
+        hasCycles = !loopedVertices.isEmpty() || components.size() != graph.size();
+    }
+
+    /**
+     * Возвращает компоненты сильной связности.
+     *
+     * @return неизменяемый список компонент сильной связности.
+     */
+    public List<List<T>> getStronglyConnectedComponents() {
+        return stronglyConnectedComponents;
+    }
+
+    /**
+     * Возвращает изменяемую копию компонент сильной связности.
+     *
+     * @return новый список новых списков вершин компонент.
+     */
+    List<List<T>> copyStronglyConnectedComponents() {
+        List<List<T>> components = new ArrayList<>(stronglyConnectedComponents.size());
+        for (var component : stronglyConnectedComponents) {
+            components.add(new ArrayList<>(component));
+        }
+        return components;
+    }
+
+    /**
+     * Возвращает компоненты, образующие циклы: компоненты из нескольких вершин и вершины, зависящие от себя.
+     *
+     * @return список компонент, образующих циклы.
+     */
+    public List<List<T>> getCyclicComponents() {
+        List<List<T>> cyclicComponents = new ArrayList<>();
+        for (var component : stronglyConnectedComponents) {
+            if (component.size() > 1 || loopedVertices.contains(component.get(0))) {
+                cyclicComponents.add(component);
+            }
+        }
+        return cyclicComponents;
+    }
+
+    /**
+     * Возвращает вершины, зависящие от самих себя.
+     *
+     * @return неизменяемое множество вершин с петлями.
+     */
+    public Set<T> getLoopedVertices() {
+        return loopedVertices;
+    }
+
+    /**
+     * Проверяет граф на наличие петель и циклов.
+     *
+     * @return {@code true}, если граф содержит петли или циклы, иначе {@code false}.
+     */
+    public boolean hasCycles() {
+        return hasCycles;
+    }
+
+    /**
+     * Возвращает вершины, отсортированные в топологическом порядке, т.е. если вершина А, зависит от вершины В, то
+     * вершина А в возвращаемом списке имеет индекс больше, чем индекс вершины B. Если граф содержит циклы,
+     * порядок внутри них произволен.
+     *
+     * @return неизменяемый список вершин в топологическом порядке.
+     */
+    public List<T> getOrderedList() {
+        return orderedList;
+    }
+}
@@ -0,0 +1,198 @@
+package graph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Топологический порядок ацикличного графа зависимостей, поддерживаемый при добавлении рёбер алгоритмом
+ * Пирса -- Келли (динамическая топологическая сортировка). Каждой вершине сопоставлена позиция; зависимость
+ * всегда стоит раньше зависящей от неё вершины.
+ * <p>
+ * Новое ребро, уже согласованное с порядком, ничего не меняет. Иначе ищутся только вершины, позиции которых
+ * лежат между позициями концов ребра: вершины, зависящие от зависимой вершины, и вершины, от которых зависит
+ * зависимость. Если первый поиск доходит до зависимости, ребро замыкает цикл. Иначе найденные вершины
+ * переставляются между собой на занятые ими же позиции, так что время работы пропорционально затронутой
+ * области графа, а не его размеру. Обходы выполняются без рекурсии.
+ * <p>
+ * Удалённая вершина оставляет пустую позицию; когда пустых позиций становится больше, чем вершин, позиции
+ * уплотняются.
+ *
+ * @param <T> тип объектов, хранящихся в графе.
+ */
+class IncrementalOrder<T> {
+    /**
+     * Зависимости каждой вершины; принадлежат графу.
+     */
+    private final Map<T, List<T>> data;
+    /**
+     * Вершины, зависящие от каждой вершины, с числом рёбер от каждой; принадлежат графу.
+     */
+    private final Map<T, Map<T, Integer>> reverseData;
+    /**
+     * Позиция каждой вершины.
+     */
+    private final Map<T, Integer> positions = new HashMap<>();
+    /**
+     * Вершины по позициям; {@code null} -- позиция удалённой вершины.
+     */
+    private List<T> order = new ArrayList<>();
+
+    /**
+     * @param data        зависимости каждой вершины.
+     * @param reverseData вершины, зависящие от каждой вершины, с числом рёбер от каждой.
+     * @param orderedList все вершины графа в топологическом порядке.
+     */
+    IncrementalOrder(Map<T, List<T>> data, Map<T, Map<T, Integer>> reverseData, List<T> orderedList) {
+        this.data = data;
+        this.reverseData = reverseData;
+        for (var vertex : orderedList) {
+            add(vertex);
+        }
+    }
+
+    /**
+     * Добавляет вершину без рёбер в конец порядка.
+     *
+     * @param vertex новая вершина.
+     */
+    void add(T vertex) {
+        positions.put(vertex, order.size());
+        order.add(vertex);
+    }
+
+    /**
+     * Удаляет вершину из порядка. Удаление вершин и рёбер порядок не нарушает.
+     *
+     * @param vertex удаляемая вершина.
+     */
+    void remove(T vertex) {
+        Integer position = positions.remove(vertex);
+        if (position == null) {
+            return;
+        }
+        order.set(position, null);
+        if (order.size() > 2 * positions.size() + 16) {
+            order = toList();
+            for (int i = 0; i < order.size(); ++i) {
+                positions.put(order.get(i), i);
+            }
+        }
+    }
+
+    /**
+     * Переставляет вершины так, чтобы зависимость стояла раньше зависимой вершины. Вызывается до того, как ребро
+     * добавлено в граф; если ребро замыкает цикл, порядок не меняется.
+     *
+     * @param dependent  зависимая вершина.
+     * @param dependency зависимость вершины.
+     * @return {@code true}, если после добавления ребра граф останется ацикличным, иначе {@code false}.
+     */
+    boolean insert(T dependent, T dependency) {
+        if (dependent.equals(dependency)) {
+            return false;
+        }
+        int lower = positions.get(dependent);
+        int upper = positions.get(dependency);
+        if (upper < lower) {
+            return true;
+        }
+
+        List<T> forward = new ArrayList<>();
+        if (!collect(dependent, vertex -> reverseData.get(vertex).keySet(), lower, upper, dependency, forward)) {
+            return false;
+        }
+        List<T> backward = new ArrayList<>();
+        collect(dependency, data::get, lower, upper, null, backward);
+
+        Comparator<T> byPosition = Comparator.comparingInt(positions::get);
+        forward.sort(byPosition);
+        backward.sort(byPosition);
+        int[] freePositions = new int[forward.size() + backward.size()];
+        int index = 0;
+        for (var vertex : backward) {
+            freePositions[index++] = positions.get(vertex);
+        }
+        for (var vertex : forward) {
+            freePositions[index++] = positions.get(vertex);
+        }
+        Arrays.sort(freePositions);
+
+        index = 0;
+        for (var vertex : backward) {
+            place(vertex, freePositions[index++]);
+        }
+        for (var vertex : forward) {
+            place(vertex, freePositions[index++]);
+        }
+        return true;
+    }
+
+    /**
+     * Возвращает вершины в топологическом порядке.
+     *
+     * @return новый список вершин, в котором каждая зависимость стоит раньше зависящих от неё вершин.
+     */
+    List<T> toList() {
+        List<T> orderedList = new ArrayList<>(positions.size());
+        for (var vertex : order) {
+            if (vertex != null) {
+                orderedList.add(vertex);
+            }
+        }
+        return orderedList;
+    }
+
+    /**
+     * Ставит вершину на позицию.
+     *
+     * @param vertex   вершина.
+     * @param position новая позиция вершины.
+     */
+    private void place(T vertex, int position) {
+        positions.put(vertex, position);
+        order.set(position, vertex);
+    }
+
+    /**
+     * Обходит в глубину вершины, достижимые из начальной по переданным рёбрам, не выходя за отрезок позиций.
+     *
+     * @param start   начальная вершина.
+     * @param edges   функция, возвращающая соседей вершины по рёбрам, по которым выполняется обход.
+     * @param lower   наименьшая допустимая позиция.
+     * @param upper   наибольшая допустимая позиция.
+     * @param target  вершина, при достижении которой обход прерывается, или {@code null}.
+     * @param visited список, в который добавляются посещённые вершины.
+     * @return {@code false}, если обход дошёл до {@code target}, иначе {@code true}.
+     */
+    private boolean collect(T start, Function<T, Collection<T>> edges, int lower, int upper, T target,
+                            List<T> visited) {
+        Set<T> seen = new HashSet<>();
+        Deque<T> stack = new ArrayDeque<>();
+        seen.add(start);
+        stack.push(start);
+        while (!stack.isEmpty()) {
+            T vertex = stack.pop();
+            visited.add(vertex);
+            for (var neighbour : edges.apply(vertex)) {
+                if (neighbour.equals(target)) {
+                    return false;
+                }
+                int position = positions.get(neighbour);
+                if (position >= lower && position <= upper && seen.add(neighbour)) {
+                    stack.push(neighbour);
+                }
+            }
+        }
+        return true;
+    }
+}
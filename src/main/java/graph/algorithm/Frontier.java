@@ -0,0 +1,103 @@
+package graph.algorithm;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Параллельная обработка фронта -- множества вершин, обрабатываемых за один шаг обхода в ширину. Используется
+ * параллельными алгоритмами на {@link IndexedGraph}.
+ */
+final class Frontier {
+    /**
+     * Размер фронта, начиная с которого работа делится между задачами.
+     */
+    static final int PARALLEL_THRESHOLD = 2048;
+
+    private Frontier() {
+    }
+
+    /**
+     * Обрабатывает каждую вершину фронта и собирает вершины следующего фронта. Большой фронт делится между
+     * параллельными задачами текущего пула.
+     *
+     * @param frontier вершины фронта.
+     * @param step     обработка одной вершины.
+     * @return вершины следующего фронта.
+     */
+    static int[] expand(int[] frontier, Step step) {
+        if (frontier.length <= PARALLEL_THRESHOLD) {
+            IntBuffer next = new IntBuffer();
+            for (var vertex : frontier) {
+                step.visit(vertex, next);
+            }
+            return next.toArray();
+        }
+        return new ExpandTask(frontier, 0, frontier.length, step).invoke().toArray();
+    }
+
+    /**
+     * Обработка одной вершины фронта. Вызывается одновременно из нескольких потоков.
+     */
+    @FunctionalInterface
+    interface Step {
+        /**
+         * Обрабатывает вершину.
+         *
+         * @param vertex вершина фронта.
+         * @param next   буфер, в который добавляются вершины следующего фронта.
+         */
+        void visit(int vertex, IntBuffer next);
+    }
+
+    /**
+     * Задача, обрабатывающая отрезок фронта.
+     */
+    @SuppressWarnings("serial")
+    private static class ExpandTask extends RecursiveTask<IntBuffer> {
+        /**
+         * Вершины фронта.
+         */
+        private final int[] frontier;
+        /**
+         * Начало отрезка.
+         */
+        private final int from;
+        /**
+         * Конец отрезка (не включительно).
+         */
+        private final int to;
+        /**
+         * Обработка одной вершины.
+         */
+        private final Step step;
+
+        /**
+         * @param frontier вершины фронта.
+         * @param from     начало отрезка.
+         * @param to       конец отрезка (не включительно).
+         * @param step     обработка одной вершины.
+         */
+        ExpandTask(int[] frontier, int from, int to, Step step) {
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.step = step;
+        }
+
+        @Override
+        protected IntBuffer compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                IntBuffer next = new IntBuffer();
+                for (int i = from; i < to; ++i) {
+                    step.visit(frontier[i], next);
+                }
+                return next;
+            }
+            int middle = (from + to) >>> 1;
+            ExpandTask right = new ExpandTask(frontier, middle, to, step);
+            right.fork();
+            IntBuffer next = new ExpandTask(frontier, from, middle, step).compute();
+            next.addAll(right.join());
+            return next;
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package graph.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Неизменяемое представление графа, в котором вершинам сопоставлены номера от {@code 0} до {@code size() - 1},
+ * а рёбра хранятся в сжатом построчном виде (CSR): соседи вершины {@code v} -- это
+ * {@code targets[offsets[v]] ... targets[offsets[v + 1] - 1]} в том же порядке, что и в исходном списке смежности.
+ * Вершины нумеруются в порядке обхода ключей исходного списка смежности.
+ * <p>
+ * Граф, построенный {@link #ofIds(int, IntBuffer, IntBuffer)}, нумерует вершины ими самими: вершина -- это
+ * номер от {@code 0} до {@code size() - 1}, поэтому ни массив вершин, ни хэш-таблица номеров не хранятся.
+ *
+ * @param <T> тип значений-вершин в графе.
+ */
+public class IndexedGraph<T> {
+    /**
+     * Вершины по их номерам или {@code null}, если вершины -- сами номера.
+     */
+    private final Object[] vertices;
+    /**
+     * Хэш-таблица с открытой адресацией: в ячейке хранится номер вершины, увеличенный на единицу, или {@code 0},
+     * если ячейка пуста. Вместе с {@link #vertices} заменяет {@code HashMap<T, Integer>} без объекта на каждую
+     * вершину. Равна {@code null}, если вершины -- сами номера.
+     */
+    private final int[] slots;
+    /**
+     * Начало списка соседей каждой вершины в массиве {@link #targets}; последний элемент равен числу рёбер.
+     */
+    private final int[] offsets;
+    /**
+     * Номера соседей всех вершин подряд.
+     */
+    private final int[] targets;
+
+    /**
+     * @param vertices вершины по их номерам или {@code null}, если вершины -- сами номера.
+     * @param slots    хэш-таблица номеров вершин или {@code null}, если вершины -- сами номера.
+     * @param offsets  начало списка соседей каждой вершины.
+     * @param targets  номера соседей всех вершин подряд.
+     */
+    IndexedGraph(Object[] vertices, int[] slots, int[] offsets, int[] targets) {
+        this.vertices = vertices;
+        this.slots = slots;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Строит нумерованное представление графа по списку смежности. Вершины, которые встречаются только среди
+     * соседей, получают номера после всех ключей и не имеют исходящих рёбер.
+     *
+     * @param graphRepresentation граф, представленный в виде списка смежности.
+     * @param <T>                 тип значений-вершин в графе.
+     * @return нумерованное представление графа.
+     */
+    public static <T> IndexedGraph<T> of(Map<T, List<T>> graphRepresentation) {
+        Builder<T> builder = new Builder<>(graphRepresentation.size());
+        int edgeCount = 0;
+        for (var entry : graphRepresentation.entrySet()) {
+            builder.add(entry.getKey());
+            edgeCount += entry.getValue().size();
+        }
+
+        int keyCount = builder.size;
+        int[] targets = new int[edgeCount];
+        int[] offsets = new int[keyCount + 1];
+        int position = 0;
+        for (int vertex = 0; vertex < keyCount; ++vertex) {
+            offsets[vertex] = position;
+            @SuppressWarnings("unchecked")
+            T key = (T) builder.vertices[vertex];
+            for (T neighbour : graphRepresentation.get(key)) {
+                targets[position++] = builder.add(neighbour);
+            }
+        }
+
+        if (builder.size > keyCount) {
+            offsets = Arrays.copyOf(offsets, builder.size + 1);
+            Arrays.fill(offsets, keyCount, builder.size + 1, position);
+        } else {
+            offsets[keyCount] = position;
+        }
+        return new IndexedGraph<>(Arrays.copyOf(builder.vertices, builder.size), builder.slots, offsets, targets);
+    }
+
+    /**
+     * Строит граф, вершины которого -- номера от {@code 0} до {@code size - 1}, по его рёбрам. Рёбра
+     * раскладываются по вершинам подсчётом, сохраняя порядок их добавления, так же, как в
+     * {@link Builder#build()}, но вершины не хранятся и не хэшируются.
+     *
+     * @param size        количество вершин.
+     * @param edgeSources начала рёбер.
+     * @param edgeTargets концы рёбер в том же порядке.
+     * @return нумерованное представление графа.
+     */
+    public static IndexedGraph<Integer> ofIds(int size, IntBuffer edgeSources, IntBuffer edgeTargets) {
+        return fromEdges(null, null, size, edgeSources, edgeTargets);
+    }
+
+    /**
+     * Раскладывает рёбра по вершинам подсчётом, сохраняя порядок их добавления.
+     *
+     * @param vertices    вершины по их номерам или {@code null}, если вершины -- сами номера.
+     * @param slots       хэш-таблица номеров вершин или {@code null}, если вершины -- сами номера.
+     * @param size        количество вершин.
+     * @param edgeSources начала рёбер.
+     * @param edgeTargets концы рёбер в том же порядке.
+     * @param <T>         тип значений-вершин в графе.
+     * @return нумерованное представление графа.
+     */
+    private static <T> IndexedGraph<T> fromEdges(Object[] vertices, int[] slots, int size, IntBuffer edgeSources,
+                                                 IntBuffer edgeTargets) {
+        int edgeCount = edgeSources.size();
+        int[] offsets = new int[size + 1];
+        for (int edge = 0; edge < edgeCount; ++edge) {
+            ++offsets[edgeSources.get(edge) + 1];
+        }
+        for (int vertex = 0; vertex < size; ++vertex) {
+            offsets[vertex + 1] += offsets[vertex];
+        }
+        int[] positions = Arrays.copyOf(offsets, size);
+        int[] targets = new int[edgeCount];
+        for (int edge = 0; edge < edgeCount; ++edge) {
+            targets[positions[edgeSources.get(edge)]++] = edgeTargets.get(edge);
+        }
+        return new IndexedGraph<>(vertices, slots, offsets, targets);
+    }
+
+    /**
+     * Возвращает количество вершин.
+     *
+     * @return количество вершин.
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Возвращает количество рёбер.
+     *
+     * @return количество рёбер.
+     */
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Возвращает вершину по её номеру.
+     *
+     * @param id номер вершины.
+     * @return вершина.
+     */
+    @SuppressWarnings("unchecked")
+    public T getVertex(int id) {
+        return vertices != null ? (T) vertices[id] : (T) Integer.valueOf(id);
+    }
+
+    /**
+     * Возвращает номер вершины.
+     *
+     * @param vertex вершина.
+     * @return номер вершины или {@code -1}, если такой вершины нет.
+     */
+    public int getId(T vertex) {
+        if (vertices == null) {
+            int id = (Integer) vertex;
+            return id >= 0 && id < size() ? id : -1;
+        }
+        int mask = slots.length - 1;
+        for (int slot = hash(vertex) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            if (vertices[slots[slot] - 1].equals(vertex)) {
+                return slots[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Возвращает начало списка соседей вершины в массиве {@link #getTargets()}.
+     *
+     * @param id номер вершины.
+     * @return индекс первого соседа вершины.
+     */
+    public int getOffset(int id) {
+        return offsets[id];
+    }
+
+    /**
+     * Возвращает номер соседа по индексу в массиве соседей всех вершин.
+     *
+     * @param edge индекс ребра, от {@link #getOffset(int) getOffset(v)} до {@code getOffset(v + 1) - 1} для
+     *             соседей вершины {@code v}.
+     * @return номер соседа.
+     */
+    public int getTarget(int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * Возвращает соседей вершины в порядке исходного списка смежности.
+     *
+     * @param id номер вершины.
+     * @return соседи вершины.
+     */
+    public List<T> getNeighbours(int id) {
+        List<T> neighbours = new ArrayList<>(offsets[id + 1] - offsets[id]);
+        for (int edge = offsets[id]; edge < offsets[id + 1]; ++edge) {
+            neighbours.add(getVertex(targets[edge]));
+        }
+        return neighbours;
+    }
+
+    /**
+     * Проверяет, есть ли у вершины петля.
+     *
+     * @param id номер вершины.
+     * @return {@code true}, если вершина является своим соседом, иначе {@code false}.
+     */
+    public boolean hasLoop(int id) {
+        for (int edge = offsets[id]; edge < offsets[id + 1]; ++edge) {
+            if (targets[edge] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Возвращает граф с теми же вершинами и номерами, в котором все рёбра развёрнуты. Соседи каждой вершины идут
+     * в порядке возрастания их номеров.
+     *
+     * @return развёрнутый граф.
+     */
+    IndexedGraph<T> reverse() {
+        int[] reverseOffsets = new int[size() + 1];
+        for (var target : targets) {
+            ++reverseOffsets[target + 1];
+        }
+        for (int vertex = 0; vertex < size(); ++vertex) {
+            reverseOffsets[vertex + 1] += reverseOffsets[vertex];
+        }
+        int[] positions = Arrays.copyOf(reverseOffsets, size());
+        int[] sources = new int[targets.length];
+        for (int vertex = 0; vertex < size(); ++vertex) {
+            for (int edge = offsets[vertex]; edge < offsets[vertex + 1]; ++edge) {
+                sources[positions[targets[edge]]++] = vertex;
+            }
+        }
+        return new IndexedGraph<>(vertices, slots, reverseOffsets, sources);
+    }
+
+    /**
+     * Возвращает массив начал списков соседей. Массив не копируется и не должен изменяться.
+     *
+     * @return массив начал списков соседей длины {@code size() + 1}.
+     */
+    int[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * Возвращает номера соседей всех вершин подряд. Массив не копируется и не должен изменяться.
+     *
+     * @return номера соседей всех вершин.
+     */
+    int[] getTargets() {
+        return targets;
+    }
+
+    /**
+     * Возвращает перемешанный хэш-код вершины для хэш-таблицы с линейным пробированием.
+     *
+     * @param vertex вершина.
+     * @return хэш-код.
+     */
+    private static int hash(Object vertex) {
+        int hash = vertex.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Класс, строящий нумерованное представление графа по рёбрам без промежуточного списка смежности. Вершины
+     * получают номера в порядке добавления, а соседи каждой вершины хранятся в порядке добавления рёбер, поэтому
+     * на ребро при построении приходится два {@code int}, а не объект.
+     *
+     * @param <T> тип значений-вершин в графе.
+     */
+    public static class Builder<T> {
+        /**
+         * Вершины по их номерам.
+         */
+        private Object[] vertices;
+        /**
+         * Хэш-таблица номеров вершин.
+         */
+        private int[] slots;
+        /**
+         * Количество пронумерованных вершин.
+         */
+        private int size;
+        /**
+         * Начала добавленных рёбер.
+         */
+        private final IntBuffer edgeSources = new IntBuffer();
+        /**
+         * Концы добавленных рёбер.
+         */
+        private final IntBuffer edgeTargets = new IntBuffer();
+
+        /**
+         * Создаёт построитель пустого графа.
+         */
+        public Builder() {
+            this(16);
+        }
+
+        /**
+         * @param expectedSize ожидаемое количество вершин.
+         */
+        Builder(int expectedSize) {
+            vertices = new Object[Math.max(expectedSize, 16)];
+            slots = new int[tableSizeFor(vertices.length)];
+        }
+
+        /**
+         * Возвращает номер вершины, присваивая ей новый номер, если она встречается впервые.
+         *
+         * @param vertex вершина.
+         * @return номер вершины.
+         */
+        public int add(T vertex) {
+            int mask = slots.length - 1;
+            int slot = hash(vertex) & mask;
+            while (slots[slot] != 0) {
+                if (vertices[slots[slot] - 1].equals(vertex)) {
+                    return slots[slot] - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            if (size == vertices.length) {
+                vertices = Arrays.copyOf(vertices, size * 2);
+            }
+            vertices[size] = vertex;
+            slots[slot] = ++size;
+            if (size * 2 > slots.length) {
+                rehash();
+            }
+            return size - 1;
+        }
+
+        /**
+         * Добавляет ребро между пронумерованными вершинами.
+         *
+         * @param source номер начала ребра.
+         * @param target номер конца ребра.
+         */
+        public void addEdge(int source, int target) {
+            edgeSources.add(source);
+            edgeTargets.add(target);
+        }
+
+        /**
+         * Строит граф по добавленным вершинам и рёбрам. Рёбра раскладываются по вершинам подсчётом, сохраняя
+         * порядок их добавления. Граф разделяет с построителем хэш-таблицу, поэтому после построения
+         * построитель использовать нельзя.
+         *
+         * @return нумерованное представление графа.
+         */
+        public IndexedGraph<T> build() {
+            return fromEdges(Arrays.copyOf(vertices, size), slots, size, edgeSources, edgeTargets);
+        }
+
+        /**
+         * Увеличивает хэш-таблицу вдвое.
+         */
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int id = 0; id < size; ++id) {
+                int slot = hash(vertices[id]) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = id + 1;
+            }
+        }
+
+        /**
+         * Возвращает размер хэш-таблицы, при котором она заполнена не более чем наполовину.
+         *
+         * @param count количество вершин.
+         * @return степень двойки, не меньшая удвоенного количества вершин.
+         */
+        private static int tableSizeFor(int count) {
+            return Integer.highestOneBit(Math.max(count * 2 - 1, 1)) << 1;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package graph.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Расширяемый массив номеров вершин.
+ */
+public class IntBuffer {
+    /**
+     * Элементы.
+     */
+    private int[] data = new int[16];
+    /**
+     * Количество элементов.
+     */
+    private int size;
+
+    /**
+     * Добавляет элемент.
+     *
+     * @param value элемент.
+     */
+    public void add(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, size * 2);
+        }
+        data[size++] = value;
+    }
+
+    /**
+     * Добавляет все элементы другого буфера.
+     *
+     * @param other буфер.
+     */
+    public void addAll(IntBuffer other) {
+        if (size + other.size > data.length) {
+            data = Arrays.copyOf(data, Math.max(size + other.size, size * 2));
+        }
+        System.arraycopy(other.data, 0, data, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * Возвращает элемент по индексу.
+     *
+     * @param index индекс элемента.
+     * @return элемент.
+     */
+    public int get(int index) {
+        return data[index];
+    }
+
+    /**
+     * Возвращает количество элементов.
+     *
+     * @return количество элементов.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Возвращает элементы массивом.
+     *
+     * @return копия элементов.
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
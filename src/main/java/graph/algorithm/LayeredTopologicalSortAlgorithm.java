@@ -0,0 +1,135 @@
+package graph.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Класс, реализующий параллельную послойную топологическую сортировку алгоритмом Кана на {@link ForkJoinPool}.
+ * <p>
+ * Для каждой вершины хранится атомарный счётчик ещё не отсортированных зависимостей. Первый слой -- вершины без
+ * зависимостей. Вершины очередного слоя обрабатываются параллельно: для каждой вершины уменьшаются счётчики
+ * зависящих от неё вершин, и вершина, счётчик которой стал нулевым, попадает в следующий слой. Уменьшение
+ * счётчика атомарно, поэтому каждая вершина попадает ровно в один слой. Каждая вершина слоя зависит только от
+ * вершин предыдущих слоёв, поэтому вершины одного слоя можно обрабатывать независимо друг от друга.
+ * <p>
+ * Вершины, которые лежат на цикле или петле или зависят от них, ни в один слой не попадают; их возвращает
+ * {@link #getUnsortedVertices()}.
+ *
+ * @param <T> тип значений-вершин в графе.
+ */
+public class LayeredTopologicalSortAlgorithm<T> {
+    /**
+     * Пул потоков, на котором выполняется сортировка.
+     */
+    private final ForkJoinPool pool;
+    /**
+     * Представление графа с пронумерованными вершинами.
+     */
+    private IndexedGraph<T> graph;
+    /**
+     * Начало списка входящих рёбер каждой вершины в массиве {@link #sources}.
+     */
+    private int[] reverseOffsets;
+    /**
+     * Номера вершин, из которых выходят рёбра, сгруппированные по концам рёбер.
+     */
+    private int[] sources;
+    /**
+     * Число ещё не отсортированных зависимостей каждой вершины.
+     */
+    private AtomicIntegerArray counters;
+    /**
+     * Слои вершин.
+     */
+    private List<List<T>> levels;
+    /**
+     * Вершины, не попавшие ни в один слой.
+     */
+    private List<T> unsortedVertices;
+
+    /**
+     * @param pool пул потоков, на котором выполняется сортировка.
+     */
+    public LayeredTopologicalSortAlgorithm(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Разбивает вершины графа на слои: каждая вершина слоя зависит только от вершин предыдущих слоёв, а каждая
+     * вершина слоя, кроме первого, зависит хотя бы от одной вершины предыдущего слоя. Внутри слоя вершины идут в
+     * порядке возрастания их номеров.
+     *
+     * @param graph граф с пронумерованными вершинами.
+     * @return список слоёв в порядке, в котором их можно обрабатывать.
+     */
+    public List<List<T>> getLevels(IndexedGraph<T> graph) {
+        this.graph = graph;
+        IndexedGraph<T> reverseGraph = graph.reverse();
+        reverseOffsets = reverseGraph.getOffsets();
+        sources = reverseGraph.getTargets();
+        levels = new ArrayList<>();
+        pool.invoke(ForkJoinTask.adapt(this::sortLevels));
+        collectUnsortedVertices();
+        return levels;
+    }
+
+    /**
+     * Возвращает вершины, которые при последней сортировке не попали ни в один слой, т.е. лежат на цикле или
+     * петле или зависят от них, в порядке возрастания их номеров.
+     *
+     * @return неотсортированные вершины; пустой список, если граф ацикличен.
+     */
+    public List<T> getUnsortedVertices() {
+        return unsortedVertices;
+    }
+
+    /**
+     * Заполняет счётчики зависимостей и строит слои, начиная с вершин без зависимостей.
+     */
+    private void sortLevels() {
+        int[] offsets = graph.getOffsets();
+        counters = new AtomicIntegerArray(graph.size());
+        IntBuffer first = new IntBuffer();
+        for (int vertex = 0; vertex < graph.size(); ++vertex) {
+            int dependencyCount = offsets[vertex + 1] - offsets[vertex];
+            counters.set(vertex, dependencyCount);
+            if (dependencyCount == 0) {
+                first.add(vertex);
+            }
+        }
+
+        int[] level = first.toArray();
+        while (level.length > 0) {
+            Arrays.sort(level);
+            List<T> values = new ArrayList<>(level.length);
+            for (var vertex : level) {
+                values.add(graph.getVertex(vertex));
+            }
+            levels.add(values);
+            level = Frontier.expand(level, (vertex, next) -> {
+                for (int edge = reverseOffsets[vertex]; edge < reverseOffsets[vertex + 1]; ++edge) {
+                    int dependent = sources[edge];
+                    if (counters.decrementAndGet(dependent) == 0) {
+                        next.add(dependent);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Собирает вершины, счётчики зависимостей которых так и не стали нулевыми.
+     */
+    private void collectUnsortedVertices() {
+        unsortedVertices = new ArrayList<>();
+        for (int vertex = 0; vertex < graph.size(); ++vertex) {
+            if (counters.get(vertex) > 0) {
+                unsortedVertices.add(graph.getVertex(vertex));
+            }
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package graph.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Класс, реализующий параллельный поиск компонент сильной связности алгоритмом Forward-Backward с отсечением
+ * (FW-BW-Trim) на {@link ForkJoinPool}. Результат совпадает с {@link TarjanStronglyConnectedComponentsAlgorithm}
+ * с точностью до порядка компонент и порядка вершин внутри них.
+ * <p>
+ * Вершины разбиты на части, каждая из которых состоит из целых компонент; сначала часть одна -- весь граф. В
+ * каждой части сначала отсекаются вершины, у которых внутри части нет входящих или исходящих рёбер: каждая из них
+ * -- отдельная компонента. В ацикличном графе так отсекаются все вершины. Затем от опорной вершины выполняются
+ * обходы в ширину по рёбрам и по обратным рёбрам; пересечение достижимых множеств -- компонента опорной вершины,
+ * а три оставшихся множества -- новые части, которые обрабатываются параллельно. Опорная вершина выбирается
+ * случайно, поэтому, как и в быстрой сортировке, глубина деления в среднем логарифмическая. Фронты обходов и
+ * отсечения, превышающие {@link Frontier#PARALLEL_THRESHOLD}, тоже обрабатываются параллельно.
+ * <p>
+ * Принадлежность вершины части хранится в общем массиве меток, который меняется только сравнением с обменом,
+ * поэтому каждая вершина попадает ровно в одно множество.
+ *
+ * @param <T> тип значений-вершин в графе.
+ */
+public class ParallelStronglyConnectedComponentsAlgorithm<T> {
+    /**
+     * Метка вершины, компонента которой уже найдена.
+     */
+    private static final int DONE = -1;
+
+    /**
+     * Пул потоков, на котором выполняется поиск.
+     */
+    private final ForkJoinPool pool;
+    /**
+     * Представление графа с пронумерованными вершинами.
+     */
+    private IndexedGraph<T> graph;
+    /**
+     * Начало списка входящих рёбер каждой вершины в массиве {@link #sources}.
+     */
+    private int[] reverseOffsets;
+    /**
+     * Номера вершин, из которых выходят рёбра, сгруппированные по концам рёбер.
+     */
+    private int[] sources;
+    /**
+     * Метка части, в которой находится вершина, или {@link #DONE}.
+     */
+    private AtomicIntegerArray labels;
+    /**
+     * Счётчик новых меток частей.
+     */
+    private AtomicInteger nextLabel;
+    /**
+     * Число входящих рёбер вершины внутри её части, не считая петель и рёбер из отсечённых вершин.
+     */
+    private AtomicIntegerArray inDegrees;
+    /**
+     * Число исходящих рёбер вершины внутри её части, не считая петель и рёбер в отсечённые вершины.
+     */
+    private AtomicIntegerArray outDegrees;
+    /**
+     * Для каждой вершины -- номер вершины-представителя её компоненты.
+     */
+    private int[] representatives;
+    /**
+     * Есть ли у вершины петля.
+     */
+    private boolean[] looped;
+    /**
+     * Компоненты сильной связности.
+     */
+    private List<List<T>> stronglyConnectedComponents;
+    /**
+     * Вершины, зависящие от самих себя.
+     */
+    private List<T> loopedVertices;
+
+    /**
+     * @param pool пул потоков, на котором выполняется поиск.
+     */
+    public ParallelStronglyConnectedComponentsAlgorithm(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Находит компоненты сильной связности в переданном графе. Порядок компонент и порядок вершин внутри
+     * компонент не определён.
+     *
+     * @param graph граф с пронумерованными вершинами.
+     * @return список компонент сильной связности.
+     */
+    public List<List<T>> findStronglyConnectedComponents(IndexedGraph<T> graph) {
+        this.graph = graph;
+        int size = graph.size();
+        IndexedGraph<T> reverseGraph = graph.reverse();
+        reverseOffsets = reverseGraph.getOffsets();
+        sources = reverseGraph.getTargets();
+        labels = new AtomicIntegerArray(size);
+        nextLabel = new AtomicInteger(1);
+        inDegrees = new AtomicIntegerArray(size);
+        outDegrees = new AtomicIntegerArray(size);
+        representatives = new int[size];
+        looped = new boolean[size];
+
+        int[] vertices = new int[size];
+        Arrays.setAll(vertices, vertex -> vertex);
+        pool.invoke(new PartitionTask(vertices, 0));
+        collectComponents();
+        return stronglyConnectedComponents;
+    }
+
+    /**
+     * Возвращает вершины, которые зависят от самих себя, найденные при последнем поиске компонент.
+     *
+     * @return вершины с петлями.
+     */
+    public List<T> getLoopedVertices() {
+        return loopedVertices;
+    }
+
+    /**
+     * Проверяет, были ли в графе при последнем поиске компонент петли или циклы.
+     *
+     * @return {@code true}, если есть петля или компонента из нескольких вершин, иначе {@code false}.
+     */
+    public boolean hasCycles() {
+        return !loopedVertices.isEmpty() || stronglyConnectedComponents.size() != graph.size();
+    }
+
+    /**
+     * Группирует вершины по представителям их компонент.
+     */
+    private void collectComponents() {
+        int[] componentIndexes = new int[graph.size()];
+        Arrays.fill(componentIndexes, -1);
+        stronglyConnectedComponents = new ArrayList<>();
+        loopedVertices = new ArrayList<>();
+        for (int vertex = 0; vertex < graph.size(); ++vertex) {
+            int representative = representatives[vertex];
+            if (componentIndexes[representative] == -1) {
+                componentIndexes[representative] = stronglyConnectedComponents.size();
+                stronglyConnectedComponents.add(new ArrayList<>(1));
+            }
+            stronglyConnectedComponents.get(componentIndexes[representative]).add(graph.getVertex(vertex));
+            if (looped[vertex]) {
+                loopedVertices.add(graph.getVertex(vertex));
+            }
+        }
+    }
+
+    /**
+     * Отмечает вершину как найденную компоненту, если она всё ещё находится в части.
+     *
+     * @param vertex         вершина.
+     * @param label          метка части.
+     * @param representative представитель компоненты вершины.
+     * @return {@code true}, если метка вершины изменена этим вызовом, иначе {@code false}.
+     */
+    private boolean complete(int vertex, int label, int representative) {
+        if (!labels.compareAndSet(vertex, label, DONE)) {
+            return false;
+        }
+        representatives[vertex] = representative;
+        return true;
+    }
+
+    /**
+     * Отсекает вершины части без входящих или исходящих рёбер внутри неё, пока такие вершины есть.
+     *
+     * @param vertices вершины части.
+     * @param label    метка части.
+     */
+    private void trim(int[] vertices, int label) {
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        int[] frontier = Frontier.expand(vertices, (vertex, next) -> {
+            int inDegree = 0;
+            for (int edge = reverseOffsets[vertex]; edge < reverseOffsets[vertex + 1]; ++edge) {
+                if (sources[edge] != vertex && labels.get(sources[edge]) == label) {
+                    ++inDegree;
+                }
+            }
+            int outDegree = 0;
+            for (int edge = offsets[vertex]; edge < offsets[vertex + 1]; ++edge) {
+                if (targets[edge] == vertex) {
+                    looped[vertex] = true;
+                } else if (labels.get(targets[edge]) == label) {
+                    ++outDegree;
+                }
+            }
+            inDegrees.set(vertex, inDegree);
+            outDegrees.set(vertex, outDegree);
+            if (inDegree == 0 || outDegree == 0) {
+                next.add(vertex);
+            }
+        });
+        // Степени всех вершин части должны быть посчитаны до того, как первая вершина будет отсечена.
+        frontier = Frontier.expand(frontier, (vertex, next) -> {
+            if (complete(vertex, label, vertex)) {
+                next.add(vertex);
+            }
+        });
+
+        while (frontier.length > 0) {
+            frontier = Frontier.expand(frontier, (vertex, next) -> {
+                for (int edge = offsets[vertex]; edge < offsets[vertex + 1]; ++edge) {
+                    int target = targets[edge];
+                    if (target != vertex && labels.get(target) == label && inDegrees.decrementAndGet(target) == 0
+                            && complete(target, label, target)) {
+                        next.add(target);
+                    }
+                }
+                for (int edge = reverseOffsets[vertex]; edge < reverseOffsets[vertex + 1]; ++edge) {
+                    int source = sources[edge];
+                    if (source != vertex && labels.get(source) == label && outDegrees.decrementAndGet(source) == 0
+                            && complete(source, label, source)) {
+                        next.add(source);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Находит компоненту опорной вершины части и делит остальные вершины части на три новые части. Опорная
+     * вершина выбирается случайно: иначе на цепочке компонент каждое деление могло бы отделять одну компоненту,
+     * и время работы было бы квадратичным.
+     *
+     * @param vertices вершины части, оставшиеся после отсечения.
+     * @param label    метка части.
+     * @return новые части.
+     */
+    private List<PartitionTask> split(int[] vertices, int label) {
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        int pivot = vertices[ThreadLocalRandom.current().nextInt(vertices.length)];
+        int forwardLabel = nextLabel.getAndIncrement();
+        int backwardLabel = nextLabel.getAndIncrement();
+
+        labels.set(pivot, forwardLabel);
+        int[] frontier = {pivot};
+        while (frontier.length > 0) {
+            frontier = Frontier.expand(frontier, (vertex, next) -> {
+                for (int edge = offsets[vertex]; edge < offsets[vertex + 1]; ++edge) {
+                    if (labels.compareAndSet(targets[edge], label, forwardLabel)) {
+                        next.add(targets[edge]);
+                    }
+                }
+            });
+        }
+
+        complete(pivot, forwardLabel, pivot);
+        frontier = new int[]{pivot};
+        while (frontier.length > 0) {
+            frontier = Frontier.expand(frontier, (vertex, next) -> {
+                for (int edge = reverseOffsets[vertex]; edge < reverseOffsets[vertex + 1]; ++edge) {
+                    int source = sources[edge];
+                    if (complete(source, forwardLabel, pivot) || labels.compareAndSet(source, label, backwardLabel)) {
+                        next.add(source);
+                    }
+                }
+            });
+        }
+
+        IntBuffer forward = new IntBuffer();
+        IntBuffer backward = new IntBuffer();
+        IntBuffer remaining = new IntBuffer();
+        for (var vertex : vertices) {
+            int vertexLabel = labels.get(vertex);
+            if (vertexLabel == forwardLabel) {
+                forward.add(vertex);
+            } else if (vertexLabel == backwardLabel) {
+                backward.add(vertex);
+            } else if (vertexLabel == label) {
+                remaining.add(vertex);
+            }
+        }
+        return List.of(new PartitionTask(forward.toArray(), forwardLabel),
+                new PartitionTask(backward.toArray(), backwardLabel),
+                new PartitionTask(remaining.toArray(), label));
+    }
+
+    /**
+     * Задача, находящая все компоненты одной части. Самая большая из новых частей обрабатывается в той же
+     * задаче, а остальные -- в дочерних, поэтому глубина вложенности задач логарифмическая.
+     */
+    @SuppressWarnings("serial")
+    private class PartitionTask extends RecursiveAction {
+        /**
+         * Вершины части.
+         */
+        private int[] vertices;
+        /**
+         * Метка части.
+         */
+        private int label;
+
+        /**
+         * @param vertices вершины части.
+         * @param label    метка части.
+         */
+        PartitionTask(int[] vertices, int label) {
+            this.vertices = vertices;
+            this.label = label;
+        }
+
+        @Override
+        protected void compute() {
+            List<ForkJoinTask<?>> children = new ArrayList<>();
+            while (vertices.length > 0) {
+                trim(vertices, label);
+                IntBuffer remaining = new IntBuffer();
+                for (var vertex : vertices) {
+                    if (labels.get(vertex) == label) {
+                        remaining.add(vertex);
+                    }
+                }
+                if (remaining.size() == 0) {
+                    break;
+                }
+
+                PartitionTask largest = null;
+                for (var part : split(remaining.toArray(), label)) {
+                    if (largest == null || part.vertices.length > largest.vertices.length) {
+                        if (largest != null && largest.vertices.length > 0) {
+                            children.add(largest.fork());
+                        }
+                        largest = part;
+                    } else if (part.vertices.length > 0) {
+                        children.add(part.fork());
+                    }
+                }
+                vertices = largest.vertices;
+                label = largest.label;
+            }
+            for (var child : children) {
+                child.join();
+            }
+        }
+    }
+}
@@ -7,50 +7,90 @@ import java.util.*;
  * Материал был взят из следующих источников:
  * <a href="https://en.wikipedia.org/wiki/Tarjan%27s_strongly_connected_components_algorithm">wikipedia<a/>,
  * <a href="https://github.com/mission-peace/interview/blob/master/src/com/interview/graph/TarjanStronglyConnectedComponent.java">github<a/>
+ * <p>
+ * Обход в глубину выполняется без рекурсии, с явным стеком вызовов, поэтому алгоритм работает на цепочках
+ * зависимостей любой глубины. Состояние вершин хранится в массивах, индексированных номерами вершин
+ * {@link IndexedGraph}.
+ * <p>
+ * Попутно алгоритм запоминает порядок завершения обхода вершин (зависимости завершаются раньше зависящих от
+ * них вершин, т.е. это топологический порядок ацикличного графа) и вершины с петлями, чтобы один проход давал
+ * всю информацию о графе.
  *
  * @param <T> тип значений-вершин в графе.
  */
 public class TarjanStronglyConnectedComponentsAlgorithm<T> {
     /**
-     * Храним индексы для каждой из вершин.
+     * Храним индексы для каждой из вершин; {@code -1} означает, что вершина ещё не посещена.
      */
-    private Map<T, Integer> indexesOfVertexes = new HashMap<>();
+    private int[] indexesOfVertexes;
     /**
      * Для каждой вершины v храним наименьший индекс любой другой вершины на стеке, до которой можно добраться из v
      * через обход в глубину (причем сама вершина v также учитывается).
      */
-    private Map<T, Integer> lowlinkOfVertexes = new HashMap<>();
+    private int[] lowlinkOfVertexes;
     /**
      * Для получения информации о том, есть ли вершина на стеке за O(1), дополнительно храним такие вершины в
-     * хэш-таблице.
+     * битовом множестве.
      */
-    private Set<T> onStack = new HashSet<>();
+    private BitSet onStack;
     /**
      * Поддерживаем стек, на который будут попадать вершины в порядке обхода.
      */
-    private Stack<T> stack = new Stack<>();
+    private int[] stack;
+    /**
+     * Размер стека {@link #stack}.
+     */
+    private int stackSize;
+    /**
+     * Стек вызовов обхода в глубину, заменяющий рекурсию.
+     */
+    private int[] callStack;
+    /**
+     * Для каждой вершины на стеке вызовов храним позицию следующего непросмотренного соседа.
+     */
+    private int[] nextEdges;
     /**
      * Компоненты сильной связности.
      */
-    private List<List<T>> stronglyConnectedComponents = new ArrayList<>();
+    private List<List<T>> stronglyConnectedComponents;
+    /**
+     * Вершины в порядке завершения их обхода.
+     */
+    private List<T> finishOrder;
+    /**
+     * Вершины, зависящие от самих себя.
+     */
+    private List<T> loopedVertices;
+    /**
+     * Номера вершин, уже добавленных в {@link #loopedVertices}.
+     */
+    private BitSet hasLoop;
     /**
      * Счётчик обработанных вершин.
      */
-    private int index = 0;
+    private int index;
     /**
-     * Представление графа в виде списка смежности.
+     * Представление графа с пронумерованными вершинами.
      */
-    private Map<T, List<T>> graphRepresentation;
+    private IndexedGraph<T> graph;
 
     /**
      * Восстанавливает состояние алгоритма к исходному.
      */
     private void resetToInitialState() {
-        indexesOfVertexes = new HashMap<>();
-        lowlinkOfVertexes = new HashMap<>();
-        onStack = new HashSet<>();
-        stack = new Stack<>();
+        int size = graph.size();
+        indexesOfVertexes = new int[size];
+        Arrays.fill(indexesOfVertexes, -1);
+        lowlinkOfVertexes = new int[size];
+        onStack = new BitSet(size);
+        stack = new int[size];
+        stackSize = 0;
+        callStack = new int[size];
+        nextEdges = new int[size];
         stronglyConnectedComponents = new ArrayList<>();
+        finishOrder = new ArrayList<>(size);
+        loopedVertices = new ArrayList<>();
+        hasLoop = new BitSet(size);
         index = 0;
     }
 
@@ -61,10 +101,20 @@ public class TarjanStronglyConnectedComponentsAlgorithm<T> {
      * @return список компонент сильной связности.
      */
     public List<List<T>> findStronglyConnectedComponents(Map<T, List<T>> graphRepresentation) {
+        return findStronglyConnectedComponents(IndexedGraph.of(graphRepresentation));
+    }
+
+    /**
+     * Находит компоненты сильной свзяности в переданном графе.
+     *
+     * @param graph граф с пронумерованными вершинами.
+     * @return список компонент сильной связности.
+     */
+    public List<List<T>> findStronglyConnectedComponents(IndexedGraph<T> graph) {
+        this.graph = graph;
         resetToInitialState();
-        this.graphRepresentation = graphRepresentation;
-        for (var vertex : graphRepresentation.keySet()) {
-            if (!indexesOfVertexes.containsKey(vertex)) {
+        for (int vertex = 0; vertex < graph.size(); ++vertex) {
+            if (indexesOfVertexes[vertex] == -1) {
                 runFind(vertex);
             }
         }
@@ -75,36 +125,90 @@ public class TarjanStronglyConnectedComponentsAlgorithm<T> {
     /**
      * Запускает обход для поиска компонент сильной связности.
      *
-     * @param vertex вершина, от которой запускается обход.
+     * @param start вершина, от которой запускается обход.
      */
-    private void runFind(T vertex) {
-        indexesOfVertexes.put(vertex, index);
-        lowlinkOfVertexes.put(vertex, index);
-        index += 1;
-        stack.push(vertex);
-        onStack.add(vertex);
+    private void runFind(int start) {
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        int callStackSize = 0;
+        callStack[callStackSize++] = visit(start);
 
-        for (var neighbour : graphRepresentation.get(vertex)) {
-            if (!indexesOfVertexes.containsKey(neighbour)) {
-                runFind(neighbour);
-                int newLowlink = Math.min(lowlinkOfVertexes.get(vertex), lowlinkOfVertexes.get(neighbour));
-                lowlinkOfVertexes.put(vertex, newLowlink);
-            } else if (onStack.contains(neighbour)) {
-                int newLowlink = Math.min(lowlinkOfVertexes.get(vertex), indexesOfVertexes.get(neighbour));
-                lowlinkOfVertexes.put(vertex, newLowlink);
+        while (callStackSize > 0) {
+            int vertex = callStack[callStackSize - 1];
+            if (nextEdges[vertex] < offsets[vertex + 1]) {
+                int neighbour = targets[nextEdges[vertex]++];
+                if (neighbour == vertex && !hasLoop.get(vertex)) {
+                    hasLoop.set(vertex);
+                    loopedVertices.add(graph.getVertex(vertex));
+                }
+                if (indexesOfVertexes[neighbour] == -1) {
+                    callStack[callStackSize++] = visit(neighbour);
+                } else if (onStack.get(neighbour)) {
+                    lowlinkOfVertexes[vertex] = Math.min(lowlinkOfVertexes[vertex], indexesOfVertexes[neighbour]);
+                }
+                continue;
             }
-        }
 
-        if (lowlinkOfVertexes.get(vertex).equals(indexesOfVertexes.get(vertex))) {
-            List<T> component = new ArrayList<>();
-            T last;
-            do {
-                last = stack.pop();
-                onStack.remove(last);
-                component.add(last);
-            } while (last != vertex);
-            stronglyConnectedComponents.add(component);
+            --callStackSize;
+            finishOrder.add(graph.getVertex(vertex));
+            if (lowlinkOfVertexes[vertex] == indexesOfVertexes[vertex]) {
+                popComponent(vertex);
+            }
+            if (callStackSize > 0) {
+                int parent = callStack[callStackSize - 1];
+                lowlinkOfVertexes[parent] = Math.min(lowlinkOfVertexes[parent], lowlinkOfVertexes[vertex]);
+            }
         }
+    }
 
+    /**
+     * Возвращает вершины в порядке завершения их обхода при последнем поиске компонент. Если граф не содержит
+     * циклов, это топологический порядок: каждая вершина идёт после всех своих зависимостей.
+     *
+     * @return вершины в порядке завершения обхода.
+     */
+    public List<T> getFinishOrder() {
+        return finishOrder;
+    }
+
+    /**
+     * Возвращает вершины, которые зависят от самих себя, найденные при последнем поиске компонент.
+     *
+     * @return вершины с петлями.
+     */
+    public List<T> getLoopedVertices() {
+        return loopedVertices;
+    }
+
+    /**
+     * Присваивает вершине индекс и кладёт её на стек.
+     *
+     * @param vertex вершина, в которую вошёл обход.
+     * @return та же вершина.
+     */
+    private int visit(int vertex) {
+        indexesOfVertexes[vertex] = index;
+        lowlinkOfVertexes[vertex] = index;
+        index += 1;
+        stack[stackSize++] = vertex;
+        onStack.set(vertex);
+        nextEdges[vertex] = graph.getOffset(vertex);
+        return vertex;
+    }
+
+    /**
+     * Снимает со стека компоненту сильной связности, корнем которой является вершина.
+     *
+     * @param root корень компоненты.
+     */
+    private void popComponent(int root) {
+        List<T> component = new ArrayList<>();
+        int last;
+        do {
+            last = stack[--stackSize];
+            onStack.clear(last);
+            component.add(graph.getVertex(last));
+        } while (last != root);
+        stronglyConnectedComponents.add(component);
     }
 }
@@ -0,0 +1,268 @@
+package util;
+
+import graph.DependencyGraph;
+import graph.FrozenDependencyGraph;
+import graph.GraphAnalysis;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+/**
+ * Класс, компонующий несколько целей по одному графу зависимостей. Корневая директория сканируется один раз,
+ * для каждой цели из графа выделяются её входные файлы со всеми зависимостями, и они компонуются в выходной
+ * файл цели. Содержимое файлов читается через общий {@link ContentCache}, поэтому зависимости, общие для
+ * нескольких целей, читаются с диска один раз. При сканировании вершины графа -- номера путей в {@link PathTrie};
+ * файлы восстанавливаются по номерам только для компоновки и сообщений о циклах.
+ * <p>
+ * Если задан пул потоков для компоновки и переводы строк не заменяются, файлы копируются как есть параллельно
+ * ({@link PositionalCombiner}) в обход кэша содержимого. Это выгодно для однократной компоновки, когда кэш ещё
+ * пуст, а в долгоживущем процессе пул не задаётся, чтобы файлы брались из кэша.
+ */
+public class BatchLinker {
+    /**
+     * Ограничение размера кэша содержимого по умолчанию в байтах.
+     */
+    public static final long DEFAULT_CACHE_CAPACITY = 64L * 1024 * 1024;
+
+    /**
+     * Параметры компоновки.
+     */
+    private final CombineOptions options;
+    /**
+     * Кэш содержимого файлов, общий для всех целей.
+     */
+    private final ContentCache contentCache;
+    /**
+     * Пул потоков, на котором файлы копируются параллельно, или {@code null}.
+     */
+    private final ExecutorService combineExecutor;
+
+    /**
+     * @param options      параметры компоновки.
+     * @param contentCache кэш содержимого файлов.
+     */
+    public BatchLinker(CombineOptions options, ContentCache contentCache) {
+        this(options, contentCache, null);
+    }
+
+    /**
+     * @param options         параметры компоновки.
+     * @param contentCache    кэш содержимого файлов.
+     * @param combineExecutor пул потоков, на котором файлы копируются параллельно, если переводы строк не
+     *                        заменяются, или {@code null}, если файлы нужно копировать последовательно через кэш.
+     */
+    public BatchLinker(CombineOptions options, ContentCache contentCache, ExecutorService combineExecutor) {
+        this.options = options;
+        this.contentCache = contentCache;
+        this.combineExecutor = combineExecutor;
+    }
+
+    /**
+     * Результат компоновки одной цели.
+     *
+     * @param target           цель компоновки.
+     * @param cyclicComponents циклы в зависимостях цели; если они есть, выходной файл не записывается.
+     */
+    public record LinkResult(LinkTarget target, List<List<File>> cyclicComponents) {
+        /**
+         * Проверяет, была ли цель скомпонована.
+         *
+         * @return {@code true}, если выходной файл записан, иначе {@code false}.
+         */
+        public boolean isLinked() {
+            return cyclicComponents.isEmpty();
+        }
+    }
+
+    /**
+     * Сканирует корневую директорию один раз и компонует все цели. Пути входных файлов приводятся к
+     * абсолютному виду.
+     *
+     * @param rootDirectory корневая директория.
+     * @param targets       цели компоновки.
+     * @param executor      пул потоков, на котором сканируется корневая директория.
+     * @return результаты компоновки целей в том же порядке.
+     * @throws InvalidPathException если в директиве require указан некорректный путь.
+     * @throws IOException          если возникает некоторая ошибка, связанная с файловым вводом и выводом. Например,
+     *                              если входного файла нет в корневой директории.
+     */
+    public List<LinkResult> link(File rootDirectory, List<LinkTarget> targets, ExecutorService executor)
+            throws InvalidPathException, IOException {
+        File root = rootDirectory.toPath().toAbsolutePath().normalize().toFile();
+        PathTrie paths = new PathTrie();
+        FrozenDependencyGraph<Integer> dependencyGraph = DependencyUtils.getDependenciesIncrementally(root, paths,
+                executor);
+
+        List<LinkResult> results = new ArrayList<>(targets.size());
+        for (var target : targets) {
+            List<File> entryFiles = new ArrayList<>(target.entryFiles().size());
+            for (var entryFile : target.entryFiles()) {
+                entryFiles.add(entryFile.toPath().toAbsolutePath().normalize().toFile());
+            }
+            results.add(link(dependencyGraph, paths, new LinkTarget(entryFiles, target.outputPath())));
+        }
+        return results;
+    }
+
+    /**
+     * Компонует одну цель по готовому графу зависимостей: входные файлы и все их зависимости записываются в
+     * выходной файл в топологическом порядке. Если входные файлы не заданы, компонуется весь граф. Если в
+     * зависимостях цели есть циклы, выходной файл не записывается.
+     *
+     * @param dependencyGraph граф зависимостей корневой директории.
+     * @param target          цель компоновки; входные файлы должны быть вершинами графа.
+     * @return результат компоновки цели.
+     * @throws IOException если возникает некоторая ошибка, связанная с файловым вводом и выводом. Например, если
+     *                     входного файла нет в графе.
+     */
+    public LinkResult link(DependencyGraph<File> dependencyGraph, LinkTarget target) throws IOException {
+        for (var entryFile : target.entryFiles()) {
+            if (!dependencyGraph.contains(entryFile)) {
+                throw new FileNotFoundException("Entry file " + entryFile + " is not in the root directory.");
+            }
+        }
+
+        GraphAnalysis<File> analysis = DependencyUtils.analyze(target.entryFiles().isEmpty()
+                ? dependencyGraph
+                : dependencyGraph.getClosure(target.entryFiles()));
+        return link(analysis, ArrayList::new, target);
+    }
+
+    /**
+     * Компонует одну цель по готовому графу зависимостей номеров путей так же, как
+     * {@link #link(DependencyGraph, LinkTarget)}.
+     *
+     * @param dependencyGraph граф зависимостей корневой директории, вершины которого -- номера путей.
+     * @param paths           дерево путей, в котором интернированы вершины графа.
+     * @param target          цель компоновки; входные файлы должны быть вершинами графа.
+     * @return результат компоновки цели.
+     * @throws IOException если возникает некоторая ошибка, связанная с файловым вводом и выводом. Например, если
+     *                     входного файла нет в графе.
+     */
+    public LinkResult link(FrozenDependencyGraph<Integer> dependencyGraph, PathTrie paths, LinkTarget target)
+            throws IOException {
+        List<Integer> entryIds = new ArrayList<>(target.entryFiles().size());
+        for (var entryFile : target.entryFiles()) {
+            int id = paths.find(entryFile.toPath());
+            if (id < 0 || !dependencyGraph.contains(id)) {
+                throw new FileNotFoundException("Entry file " + entryFile + " is not in the root directory.");
+            }
+            entryIds.add(id);
+        }
+
+        GraphAnalysis<Integer> analysis = DependencyUtils.analyze(entryIds.isEmpty()
+                ? dependencyGraph
+                : dependencyGraph.getClosure(entryIds));
+        return link(analysis, paths::getFiles, target);
+    }
+
+    /**
+     * Компонует одну цель по результату анализа графа её зависимостей. Если в зависимостях есть циклы, выходной
+     * файл не записывается.
+     *
+     * @param analysis результат анализа графа зависимостей цели.
+     * @param toFiles  способ получить файлы по вершинам графа.
+     * @param target   цель компоновки.
+     * @param <T>      тип вершин графа.
+     * @return результат компоновки цели.
+     * @throws IOException если возникает некоторая ошибка, связанная с файловым вводом и выводом.
+     */
+    private <T> LinkResult link(GraphAnalysis<T> analysis, Function<List<T>, List<File>> toFiles, LinkTarget target)
+            throws IOException {
+        if (analysis.hasCycles()) {
+            List<List<File>> cyclicComponents = new ArrayList<>();
+            for (var component : analysis.getCyclicComponents()) {
+                cyclicComponents.add(toFiles.apply(component));
+            }
+            return new LinkResult(target, cyclicComponents);
+        }
+        combine(toFiles.apply(analysis.getOrderedList()), target.outputPath());
+        return new LinkResult(target, List.of());
+    }
+
+    /**
+     * Компонует одну цель по снимку графа зависимостей так же, как {@link #link(DependencyGraph, LinkTarget)}.
+     * Ацикличный граф не восстанавливается: файлы берутся в топологическом порядке, сохранённом в снимке. Если в
+     * графе снимка есть циклы, он восстанавливается, чтобы проверить зависимости цели и найти циклы.
+     *
+     * @param snapshot снимок графа зависимостей корневой директории.
+     * @param target   цель компоновки; входные файлы должны быть вершинами графа.
+     * @return результат компоновки цели.
+     * @throws IOException если возникает некоторая ошибка, связанная с файловым вводом и выводом. Например, если
+     *                     входного файла нет в графе.
+     */
+    public LinkResult link(GraphSnapshot snapshot, LinkTarget target) throws IOException {
+        for (var entryFile : target.entryFiles()) {
+            if (snapshot.getId(entryFile) < 0) {
+                throw new FileNotFoundException("Entry file " + entryFile + " is not in the root directory.");
+            }
+        }
+        if (snapshot.hasCycles()) {
+            PathTrie paths = new PathTrie();
+            return link(snapshot.toDependencyGraph(paths), paths, target);
+        }
+
+        combine(target.entryFiles().isEmpty()
+                ? snapshot.toOrderedList()
+                : snapshot.toOrderedList(target.entryFiles()), target.outputPath());
+        return new LinkResult(target, List.of());
+    }
+
+    /**
+     * Компонует файлы в выходной файл, беря содержимое из кэша. Файлы, которые не помещаются в кэш,
+     * копируются напрямую. Если задан пул потоков и переводы строк не заменяются, файлы копируются параллельно
+     * без кэша. Результат побайтово совпадает с {@link FileUtils#transferFiles(List, Path, CombineOptions)}.
+     *
+     * @param filesToCombine файлы в порядке компоновки.
+     * @param outputPath     путь к выходному файлу.
+     * @throws IOException если возникает некоторая ошибка, связанная с файловым вводом и выводом.
+     */
+    private void combine(List<File> filesToCombine, Path outputPath) throws IOException {
+        if (combineExecutor != null && !options.normalizesLineSeparators()) {
+            PositionalCombiner.combine(filesToCombine, outputPath, options, combineExecutor);
+            return;
+        }
+        byte[] separator = options.separator().getBytes(StandardCharsets.UTF_8);
+        byte[] lastLineTerminator = options.lastLineTerminator().getBytes(StandardCharsets.UTF_8);
+        LineSeparatorNormalizer normalizer = options.normalizesLineSeparators()
+                ? new LineSeparatorNormalizer(options.lineSeparator().getBytes(StandardCharsets.UTF_8),
+                FileUtils.COPY_BUFFER_SIZE)
+                : null;
+        ByteBuffer buffer = normalizer != null ? ByteBuffer.allocateDirect(FileUtils.COPY_BUFFER_SIZE) : null;
+        try (LinkMetrics.PhaseTimer combineTimer = FileUtils.beginCombine(filesToCombine);
+             FileChannel output = FileChannel.open(outputPath, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (var fileObject : filesToCombine) {
+                byte[] content = contentCache.getContent(fileObject);
+                boolean needsTerminator;
+                if (content == null) {
+                    needsTerminator = FileUtils.copyFile(fileObject, output, buffer, normalizer);
+                } else {
+                    needsTerminator = content.length > 0 && !FileUtils.isLineBreak(content[content.length - 1]);
+                    if (normalizer != null) {
+                        normalizer.write(ByteBuffer.wrap(content), output);
+                        normalizer.finishFile(output);
+                    } else {
+                        FileUtils.writeFully(output, content);
+                    }
+                }
+                if (needsTerminator) {
+                    FileUtils.writeFully(output, lastLineTerminator);
+                }
+                FileUtils.writeFully(output, separator);
+            }
+            combineTimer.addBytesWritten(output.size());
+        }
+    }
+}
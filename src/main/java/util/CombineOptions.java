@@ -0,0 +1,63 @@
+package util;
+
+/**
+ * Параметры побайтовой компоновки файлов.
+ *
+ * @param separator          строка, которая записывается после содержимого каждого файла.
+ * @param lastLineTerminator строка, которая дописывается к непустому файлу, если он не заканчивается переводом
+ *                           строки, или пустая строка, если файлы нужно копировать как есть.
+ * @param lineSeparator      строка, на которую заменяются переводы строк {@code "\n"}, {@code "\r\n"} и
+ *                           {@code "\r"} внутри файлов, или {@code null}, если переводы строк сохраняются как есть.
+ */
+public record CombineOptions(String separator, String lastLineTerminator, String lineSeparator) {
+    /**
+     * Создаёт параметры, при которых переводы строк внутри файлов сохраняются как есть.
+     *
+     * @param separator          строка, которая записывается после содержимого каждого файла.
+     * @param lastLineTerminator строка, которая дописывается к непустому файлу без перевода строки в конце.
+     */
+    public CombineOptions(String separator, String lastLineTerminator) {
+        this(separator, lastLineTerminator, null);
+    }
+
+    /**
+     * Возвращает параметры, при которых результат побайтово совпадает с
+     * {@link FileUtils#combineFiles(java.util.List, java.nio.file.Path)} для файлов в кодировке UTF-8: переводы
+     * строк заменяются на переводы строк текущей платформы, как при построчном чтении, но файл копируется
+     * частями, и строки целиком в памяти не хранятся.
+     *
+     * @return параметры, совместимые с построчной компоновкой.
+     */
+    public static CombineOptions compatible() {
+        return new CombineOptions(System.lineSeparator(), System.lineSeparator(), System.lineSeparator());
+    }
+
+    /**
+     * Возвращает параметры, при которых файлы копируются как есть, разделяясь только заданной строкой.
+     *
+     * @param separator строка, которая записывается после содержимого каждого файла.
+     * @return параметры побайтовой компоновки.
+     */
+    public static CombineOptions withSeparator(String separator) {
+        return new CombineOptions(separator, "");
+    }
+
+    /**
+     * Возвращает копию параметров, при которых переводы строк внутри файлов заменяются на заданную строку.
+     *
+     * @param lineSeparator строка, на которую заменяются переводы строк.
+     * @return параметры с заменой переводов строк.
+     */
+    public CombineOptions withLineSeparator(String lineSeparator) {
+        return new CombineOptions(separator, lastLineTerminator, lineSeparator);
+    }
+
+    /**
+     * Проверяет, заменяются ли переводы строк внутри файлов.
+     *
+     * @return {@code true}, если переводы строк заменяются, иначе {@code false}.
+     */
+    public boolean normalizesLineSeparators() {
+        return lineSeparator != null;
+    }
+}
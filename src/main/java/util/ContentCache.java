@@ -0,0 +1,137 @@
+package util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Кэш содержимого файлов с ограниченным суммарным размером. Когда размер превышает ограничение, удаляются
+ * файлы, к которым дольше всего не обращались (LRU). Файлы больше ограничения в кэш не попадают.
+ * <p>
+ * Кэш сам не отслеживает изменения файлов: он рассчитан на одну серию компоновок, а если живёт дольше
+ * ({@link LinkSession}), изменившиеся файлы нужно удалять из него ({@link #invalidate(File)}). Экземпляр не
+ * потокобезопасен.
+ */
+public class ContentCache {
+    /**
+     * Наибольший размер файла, который помещается в массив.
+     */
+    private static final int MAX_CONTENT_SIZE = Integer.MAX_VALUE - 8;
+    /**
+     * Ограничение суммарного размера содержимого в байтах.
+     */
+    private final long capacity;
+    /**
+     * Содержимое файлов в порядке обращения к ним: первым идёт файл, к которому дольше всего не обращались.
+     */
+    private final LinkedHashMap<File, byte[]> contents = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * Суммарный размер содержимого в кэше.
+     */
+    private long size;
+    /**
+     * Количество чтений файлов с диска.
+     */
+    private long loadCount;
+
+    /**
+     * @param capacity ограничение суммарного размера содержимого в байтах.
+     */
+    public ContentCache(long capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Возвращает содержимое файла, считывая его с диска, если его нет в кэше.
+     *
+     * @param fileObject файл.
+     * @return содержимое файла или {@code null}, если файл больше ограничения кэша и его нужно читать напрямую.
+     * @throws IOException если файл не удалось прочитать. Например, если файл не существует.
+     */
+    public byte[] getContent(File fileObject) throws IOException {
+        byte[] content = contents.get(fileObject);
+        if (content != null) {
+            return content;
+        }
+
+        try (FileInputStream inputStream = new FileInputStream(fileObject);
+             FileChannel input = inputStream.getChannel()) {
+            long fileSize = input.size();
+            if (fileSize > capacity || fileSize > MAX_CONTENT_SIZE) {
+                return null;
+            }
+            content = readFully(input, (int) fileSize);
+        }
+        ++loadCount;
+        contents.put(fileObject, content);
+        size += content.length;
+        evict();
+        return content;
+    }
+
+    /**
+     * Удаляет файл из кэша, чтобы при следующем обращении он был прочитан с диска заново.
+     *
+     * @param fileObject файл.
+     */
+    public void invalidate(File fileObject) {
+        byte[] content = contents.remove(fileObject);
+        if (content != null) {
+            size -= content.length;
+        }
+    }
+
+    /**
+     * Возвращает количество чтений файлов с диска.
+     *
+     * @return количество чтений файлов с диска.
+     */
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    /**
+     * Возвращает суммарный размер содержимого в кэше.
+     *
+     * @return размер содержимого в байтах.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Удаляет файлы, к которым дольше всего не обращались, пока размер кэша превышает ограничение.
+     */
+    private void evict() {
+        Iterator<Map.Entry<File, byte[]>> iterator = contents.entrySet().iterator();
+        while (size > capacity && iterator.hasNext()) {
+            size -= iterator.next().getValue().length;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Считывает файл целиком. Если размер файла изменился после его определения, считывается не больше
+     * исходного размера.
+     *
+     * @param input    канал файла.
+     * @param fileSize размер файла.
+     * @return содержимое файла.
+     * @throws IOException если возникает ошибка при чтении.
+     */
+    private static byte[] readFully(FileChannel input, int fileSize) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(fileSize);
+        while (buffer.hasRemaining()) {
+            if (input.read(buffer) < 0) {
+                break;
+            }
+        }
+        return buffer.hasRemaining() ? Arrays.copyOf(buffer.array(), buffer.position()) : buffer.array();
+    }
+}
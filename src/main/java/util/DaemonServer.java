@@ -0,0 +1,225 @@
+package util;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сервер на Unix domain socket, принимающий команды для долгоживущего процесса, и клиент к нему
+ * ({@link #forward(Path, Path, List, PrintStream)}). Сервер отвечает только за протокол, а команды выполняет
+ * переданный обработчик.
+ * <p>
+ * Протокол текстовый, в кодировке UTF-8. Запрос: рабочая директория клиента, затем аргументы команды, каждый на
+ * отдельной строке, затем пустая строка. Ответ: сообщения команды, затем строка {@code "exit <код>"}.
+ * <p>
+ * Каждый клиент обслуживается в своём потоке, а соединение, по которому запрос не пришёл целиком за отведённое
+ * время, закрывается, поэтому зависший клиент не мешает остальным.
+ */
+public class DaemonServer {
+    /**
+     * Префикс последней строки ответа, за которым следует код завершения команды.
+     */
+    public static final String EXIT_PREFIX = "exit ";
+    /**
+     * Время в миллисекундах, за которое клиент должен передать запрос целиком, по умолчанию.
+     */
+    public static final long DEFAULT_READ_TIMEOUT_MILLIS = 30_000;
+
+    /**
+     * Путь к сокету.
+     */
+    private final Path socketPath;
+    /**
+     * Время в миллисекундах, за которое клиент должен передать запрос целиком.
+     */
+    private final long readTimeoutMillis;
+    /**
+     * Обработчик запросов.
+     */
+    private final RequestHandler handler;
+    /**
+     * Потоки, обслуживающие клиентов.
+     */
+    private final ExecutorService clientExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "daemon-server-client");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Поток, закрывающий соединения, по которым запрос не пришёл вовремя.
+     */
+    private final ScheduledThreadPoolExecutor deadlineExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "daemon-server-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Обработчик одного запроса.
+     */
+    @FunctionalInterface
+    public interface RequestHandler {
+        /**
+         * Выполняет команду. Об ошибках команды обработчик сообщает клиенту сам, через поток и код завершения.
+         *
+         * @param workingDirectory рабочая директория клиента или {@code null}, если запрос пуст.
+         * @param arguments        аргументы команды.
+         * @param out              поток, в который печатаются сообщения для клиента.
+         * @return код завершения команды.
+         */
+        int handle(String workingDirectory, List<String> arguments, PrintStream out);
+    }
+
+    /**
+     * @param socketPath        путь к сокету, на котором нужно принимать запросы.
+     * @param readTimeoutMillis время в миллисекундах, за которое клиент должен передать запрос целиком.
+     * @param handler           обработчик запросов.
+     */
+    public DaemonServer(Path socketPath, long readTimeoutMillis, RequestHandler handler) {
+        this.socketPath = socketPath;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.handler = handler;
+        deadlineExecutor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Принимает запросы, пока поток не будет прерван. Оставшийся от прошлого запуска файл сокета удаляется.
+     *
+     * @throws IOException если не удалось открыть сокет или поток был прерван во время ожидания клиента.
+     */
+    public void run() throws IOException {
+        Files.deleteIfExists(socketPath);
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            System.out.println("Listening on " + socketPath);
+            while (!Thread.currentThread().isInterrupted()) {
+                SocketChannel client = server.accept();
+                clientExecutor.execute(() -> serve(client));
+            }
+        } finally {
+            clientExecutor.shutdownNow();
+            deadlineExecutor.shutdownNow();
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    /**
+     * Передаёт рабочую директорию и аргументы команды серверу и печатает его ответ. Переводы строк в аргументах
+     * заменяются пробелами, так как разделяют аргументы в запросе.
+     *
+     * @param socketPath       путь к сокету сервера.
+     * @param workingDirectory рабочая директория, относительно которой заданы пути в аргументах.
+     * @param arguments        аргументы команды.
+     * @param out              поток, в который печатается ответ.
+     * @return код завершения, который вернул сервер.
+     * @throws IOException если не удалось связаться с сервером или он закрыл соединение без результата.
+     */
+    public static int forward(Path socketPath, Path workingDirectory, List<String> arguments, PrintStream out)
+            throws IOException {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath))) {
+            Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+            writer.write(workingDirectory + "\n");
+            for (var argument : arguments) {
+                writer.write(argument.replace('\n', ' ') + "\n");
+            }
+            writer.write("\n");
+            writer.flush();
+
+            BufferedReader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+            String line = reader.readLine();
+            while (line != null) {
+                if (line.startsWith(EXIT_PREFIX)) {
+                    return Integer.parseInt(line.substring(EXIT_PREFIX.length()));
+                }
+                out.println(line);
+                line = reader.readLine();
+            }
+        }
+        throw new EOFException("The daemon closed the connection without a result.");
+    }
+
+    /**
+     * Обслуживает одного клиента и закрывает соединение с ним.
+     *
+     * @param client канал подключённого клиента.
+     */
+    private void serve(SocketChannel client) {
+        try (client) {
+            handle(client);
+        } catch (IOException ioException) {
+            System.out.println("Request failed: " + ioException.getMessage());
+        }
+    }
+
+    /**
+     * Читает запрос, выполняет его обработчиком и отправляет ответ.
+     *
+     * @param client канал подключённого клиента.
+     * @throws IOException если не удалось прочитать запрос вовремя или отправить ответ.
+     */
+    private void handle(SocketChannel client) throws IOException {
+        ScheduledFuture<?> deadline = deadlineExecutor.schedule(() -> closeQuietly(client), readTimeoutMillis,
+                TimeUnit.MILLISECONDS);
+        BufferedReader reader = new BufferedReader(Channels.newReader(client, StandardCharsets.UTF_8));
+        String workingDirectory;
+        List<String> arguments = new ArrayList<>();
+        try {
+            workingDirectory = reader.readLine();
+            String line = reader.readLine();
+            while (line != null && !line.isEmpty()) {
+                arguments.add(line);
+                line = reader.readLine();
+            }
+        } catch (AsynchronousCloseException closeException) {
+            throw new IOException(getReadTimeoutMessage(), closeException);
+        }
+        if (!deadline.cancel(false)) {
+            throw new IOException(getReadTimeoutMessage());
+        }
+
+        PrintStream out = new PrintStream(Channels.newOutputStream(client), false, StandardCharsets.UTF_8);
+        int exitCode = handler.handle(workingDirectory, arguments, out);
+        out.println(EXIT_PREFIX + exitCode);
+        out.flush();
+    }
+
+    /**
+     * Возвращает сообщение о том, что запрос не пришёл вовремя.
+     *
+     * @return сообщение.
+     */
+    private String getReadTimeoutMessage() {
+        return "The request was not received in " + readTimeoutMillis + " ms.";
+    }
+
+    /**
+     * Закрывает соединение с клиентом, прерывая ожидание его запроса.
+     *
+     * @param client канал клиента.
+     */
+    private static void closeQuietly(SocketChannel client) {
+        try {
+            client.close();
+        } catch (IOException ioException) {
+            // Соединение уже не используется, поэтому ошибка при закрытии ни на что не влияет.
+        }
+    }
+}
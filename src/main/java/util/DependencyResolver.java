@@ -0,0 +1,176 @@
+package util;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Класс, преобразующий пути из директив require в файлы-зависимости так же, как
+ * {@link DependencyUtils#resolveDependencies(File, File, List)}, но без обращения к файловой системе для
+ * каждой директивы. Существование зависимости проверяется по множеству файлов, уже найденных при обходе
+ * корневой директории, а результат преобразования каждого пути запоминается, поэтому популярная зависимость,
+ * указанная в тысячах файлов, разбирается один раз.
+ * <p>
+ * Пути, которых нет среди найденных файлов (директории, файлы вне корневой директории), проверяются через
+ * {@link File#exists()}, и этот результат тоже запоминается. Экземпляр рассчитан на одно сканирование: файлы,
+ * созданные или удалённые после обхода, он не замечает. Методы можно вызывать из нескольких потоков.
+ * <p>
+ * Каждая существующая зависимость один раз интернируется в {@link PathTrie}, и её номер запоминается вместе с
+ * результатом преобразования, поэтому {@link #resolveIds(File, List)} возвращает номера путей зависимостей без
+ * создания объекта на каждую директиву. Несуществующие и некорректные пути не интернируются, поэтому номера
+ * дерева путей остаются номерами вершин графа.
+ */
+public class DependencyResolver {
+    /**
+     * Номер пути зависимости, которая не интернировалась.
+     */
+    private static final int NO_ID = -1;
+
+    /**
+     * Корневая директория, относительно которой располагаются зависимости.
+     */
+    private final File rootDirectory;
+    /**
+     * Файлы, найденные при обходе корневой директории, по их абсолютным нормализованным путям.
+     */
+    private final Map<File, File> knownFiles;
+    /**
+     * Дерево путей, в котором интернируются зависимости, или {@code null}, если номера путей не нужны.
+     */
+    private final PathTrie paths;
+    /**
+     * Результаты преобразования путей из директив require.
+     */
+    private final ConcurrentHashMap<String, Resolution> resolutions = new ConcurrentHashMap<>();
+
+    /**
+     * @param rootDirectory корневая директория, относительно которой располагаются зависимости.
+     * @param knownFiles    файлы, найденные при обходе корневой директории.
+     */
+    public DependencyResolver(File rootDirectory, Collection<File> knownFiles) {
+        this(rootDirectory, knownFiles, null);
+    }
+
+    /**
+     * @param rootDirectory корневая директория, относительно которой располагаются зависимости.
+     * @param knownFiles    файлы, найденные при обходе корневой директории.
+     * @param paths         дерево путей, в котором интернируются зависимости, или {@code null}, если нужны только
+     *                      файлы-зависимости ({@link #resolve(File, List)}).
+     */
+    public DependencyResolver(File rootDirectory, Collection<File> knownFiles, PathTrie paths) {
+        this.rootDirectory = rootDirectory;
+        this.paths = paths;
+        this.knownFiles = new HashMap<>(knownFiles.size() * 4 / 3 + 1);
+        for (var file : knownFiles) {
+            this.knownFiles.put(file.toPath().toAbsolutePath().normalize().toFile(), file);
+        }
+    }
+
+    /**
+     * Преобразует пути из директив require файла в файлы-зависимости.
+     *
+     * @param file          файл, в котором были найдены директивы.
+     * @param requiredPaths пути из директив require.
+     * @return список зависимостей файла.
+     * @throws InvalidPathException  если в директиве require указан некорректный путь.
+     * @throws FileNotFoundException если зависимость не существует.
+     */
+    public List<File> resolve(File file, List<String> requiredPaths)
+            throws InvalidPathException, FileNotFoundException {
+        ArrayList<File> result = new ArrayList<>(requiredPaths.size());
+        for (var match : requiredPaths) {
+            result.add(getResolution(file, match).dependency());
+        }
+
+        return result;
+    }
+
+    /**
+     * Преобразует пути из директив require файла в номера путей зависимостей в {@link PathTrie}, переданном в
+     * конструктор.
+     *
+     * @param file          файл, в котором были найдены директивы.
+     * @param requiredPaths пути из директив require.
+     * @return номера путей зависимостей файла.
+     * @throws InvalidPathException  если в директиве require указан некорректный путь.
+     * @throws FileNotFoundException если зависимость не существует.
+     */
+    public int[] resolveIds(File file, List<String> requiredPaths)
+            throws InvalidPathException, FileNotFoundException {
+        int[] result = new int[requiredPaths.size()];
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = getResolution(file, requiredPaths.get(i)).id();
+        }
+
+        return result;
+    }
+
+    /**
+     * Возвращает результат преобразования пути из директивы require, проверяя, что путь корректен и
+     * зависимость существует.
+     *
+     * @param file  файл, в котором была найдена директива.
+     * @param match путь из директивы require.
+     * @return результат преобразования.
+     * @throws InvalidPathException  если путь некорректен.
+     * @throws FileNotFoundException если зависимость не существует.
+     */
+    private Resolution getResolution(File file, String match) throws InvalidPathException, FileNotFoundException {
+        Resolution resolution = resolutions.computeIfAbsent(match, this::resolvePath);
+        if (resolution.invalidReason() != null) {
+            throw new InvalidPathException("In file "
+                    + file.toPath()
+                    + " the path to the dependency is specified incorrectly.",
+                    resolution.invalidReason());
+        }
+        if (!resolution.exists()) {
+            throw new FileNotFoundException("Error in file " + file.toPath() +
+                    " | Dependency \"" + match + "\" doesn't exist.");
+        }
+        return resolution;
+    }
+
+    /**
+     * Преобразует путь из директивы require в файл и проверяет, существует ли он. Путь интернируется только
+     * после проверки, так что несуществующая зависимость не получает номер.
+     *
+     * @param match путь из директивы require.
+     * @return результат преобразования.
+     */
+    private Resolution resolvePath(String match) {
+        try {
+            Path path = rootDirectory.toPath().resolve(Paths.get(match).normalize());
+            File dependency = path.toAbsolutePath().normalize().toFile();
+            File knownFile = knownFiles.get(dependency);
+            if (dependency.equals(knownFile)) {
+                // Граф хранит один объект на файл: зависимость и найденный при обходе файл -- одна вершина.
+                dependency = knownFile;
+            }
+            boolean exists = knownFile != null || dependency.exists();
+            int id = exists && paths != null ? paths.intern(dependency.toPath()) : NO_ID;
+            return new Resolution(dependency, id, exists, null);
+        } catch (InvalidPathException invalidPathException) {
+            return new Resolution(null, NO_ID, false, invalidPathException.getReason());
+        }
+    }
+
+    /**
+     * Результат преобразования пути из директивы require.
+     *
+     * @param dependency    файл-зависимость.
+     * @param id            номер пути зависимости в дереве путей или {@link #NO_ID}, если путь некорректен,
+     *                      зависимость не существует или дерево путей не задано.
+     * @param exists        существует ли зависимость.
+     * @param invalidReason причина, по которой путь некорректен, или {@code null}, если путь корректен.
+     */
+    private record Resolution(File dependency, int id, boolean exists, String invalidReason) {
+    }
+}
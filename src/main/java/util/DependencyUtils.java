@@ -1,14 +1,27 @@
 package util;
 
 import graph.DependencyGraph;
+import graph.FrozenDependencyGraph;
+import graph.GraphAnalysis;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Класс, содержащий статические методы для работы с зависимостями.
@@ -23,15 +36,590 @@ public class DependencyUtils {
      */
     public static DependencyGraph<File> getDependencies(File rootDirectory) throws IOException {
         DependencyGraph<File> dependencyGraph = new DependencyGraph<>();
+        List<File> files = walk(rootDirectory);
+        DependencyResolver resolver = new DependencyResolver(rootDirectory, files);
 
-        for (var file : FileUtils.getAllFiles(rootDirectory)) {
-            var fileDependencies = findDependenciesInFile(rootDirectory, file);
-            dependencyGraph.addDependencies(file, fileDependencies);
+        try (LinkMetrics.PhaseTimer parseTimer = LinkMetrics.begin(LinkPhase.PARSE);
+             LinkMetrics.PhaseTimer graphTimer = LinkMetrics.begin(LinkPhase.GRAPH)) {
+            for (var file : files) {
+                List<String> requiredPaths = findRequiredPaths(file, parseTimer);
+                long graphCallStartTime = graphTimer.startCall();
+                var fileDependencies = resolver.resolve(file, requiredPaths);
+                addDependencies(dependencyGraph, file, fileDependencies, graphTimer);
+                graphTimer.endCall(graphCallStartTime);
+            }
+        }
+
+        return dependencyGraph;
+    }
+
+    /**
+     * Возвращает построенный граф зависимостей по данной корневой директории, разбирая файлы параллельно на
+     * переданном пуле потоков. Если передан {@link ForkJoinPool}, директории тоже обходятся параллельно
+     * ({@link ParallelFileWalker}), и файлы разбираются по мере их нахождения.
+     * Результаты разбора добавляются в граф в том же порядке, что и при последовательном обходе, поэтому граф и
+     * сообщение об ошибке (первая отсутствующая зависимость или некорректный путь) совпадают с
+     * {@link #getDependencies(File)}.
+     *
+     * @param rootDirectory корневая директория, по которой нужно построить граф зависимостей.
+     * @param executor      пул потоков, на котором будут разбираться файлы.
+     * @return построенный граф зависимостей.
+     * @throws InvalidPathException если в директиве require указан некорректный путь.
+     * @throws IOException          если возникает некоторая ошибка, связанная с файловым вводом и выводом.
+     */
+    public static DependencyGraph<File> getDependencies(File rootDirectory, ExecutorService executor)
+            throws InvalidPathException, IOException {
+        List<File> files = new ArrayList<>();
+        List<ParsedFile> parsedFiles = scanInParallel(rootDirectory, null, executor, files);
+        return buildFileGraph(rootDirectory, files, parsedFiles);
+    }
+
+    /**
+     * Возвращает построенный граф зависимостей по данной корневой директории, разбирая заново только те файлы,
+     * которые изменились с момента их разбора, сохранённого в индексе. Индекс обновляется: в него добавляются
+     * новые результаты разбора и из него удаляются записи исчезнувших файлов.
+     *
+     * @param rootDirectory корневая директория, по которой нужно построить граф зависимостей.
+     * @param scanIndex     индекс разобранных файлов этой директории.
+     * @param executor      пул потоков, на котором будут разбираться файлы.
+     * @return построенный граф зависимостей.
+     * @throws InvalidPathException если в директиве require указан некорректный путь.
+     * @throws IOException          если возникает некоторая ошибка, связанная с файловым вводом и выводом.
+     */
+    public static DependencyGraph<File> getDependencies(File rootDirectory, ScanIndex scanIndex,
+                                                        ExecutorService executor)
+            throws InvalidPathException, IOException {
+        List<File> files = new ArrayList<>();
+        List<ParsedFile> parsedFiles = scanInParallel(rootDirectory, scanIndex, executor, files);
+        DependencyGraph<File> dependencyGraph = buildFileGraph(rootDirectory, files, parsedFiles);
+        retainScannedFiles(rootDirectory, scanIndex, files);
+        return dependencyGraph;
+    }
+
+    /**
+     * Возвращает граф зависимостей, вершины которого -- номера путей файлов в дереве путей
+     * ({@link PathTrie}). Граф совпадает с {@link #getDependencies(File, ScanIndex, ExecutorService)}, но
+     * строится сразу в неизменяемом виде: зависимости хранятся в массивах {@code int[]}, а объект {@link File}
+     * на каждую вершину не хранится; файлы восстанавливаются по номерам через {@link PathTrie#getFile(int)}.
+     * Номера выдаются только файлам и их существующим зависимостям, поэтому они идут подряд, и номер пути
+     * служит номером вершины в сжатом построчном представлении графа ({@link FrozenDependencyGraph.IdBuilder}).
+     * Если передан индекс, он обновляется так же.
+     *
+     * @param rootDirectory корневая директория, по которой нужно построить граф зависимостей.
+     * @param paths         пустое дерево путей, в котором интернируются файлы.
+     * @param scanIndex     индекс разобранных файлов этой директории или {@code null}, если все файлы нужно
+     *                      разобрать заново.
+     * @param executor      пул потоков, на котором будут разбираться файлы.
+     * @return граф зависимостей номеров путей.
+     * @throws IllegalArgumentException если дерево путей не пустое.
+     * @throws InvalidPathException     если в директиве require указан некорректный путь.
+     * @throws IOException              если возникает некоторая ошибка, связанная с файловым вводом и выводом.
+     */
+    public static FrozenDependencyGraph<Integer> getDependencies(File rootDirectory, PathTrie paths,
+                                                                 ScanIndex scanIndex, ExecutorService executor)
+            throws IllegalArgumentException, InvalidPathException, IOException {
+        if (paths.size() != 0) {
+            throw new IllegalArgumentException("The path trie must be empty: its ids become the graph vertices.");
+        }
+        List<File> files = new ArrayList<>();
+        List<ParsedFile> parsedFiles = scanInParallel(rootDirectory, scanIndex, executor, files);
+        FrozenDependencyGraph<Integer> dependencyGraph = buildIdGraph(rootDirectory, paths, files, parsedFiles);
+        retainScannedFiles(rootDirectory, scanIndex, files);
+        return dependencyGraph;
+    }
+
+    /**
+     * Возвращает граф зависимостей, в который входят только файлы, достижимые из входных файлов по директивам
+     * require. Корневая директория целиком не обходится: разбираются только входные файлы и их прямые и
+     * косвенные зависимости. Для достижимых файлов граф совпадает с подграфом {@link #getDependencies(File)}:
+     * зависимости вне корневой директории и директории не разбираются и остаются вершинами без зависимостей.
+     * Ошибки в недостижимых файлах не обнаруживаются.
+     *
+     * @param rootDirectory корневая директория, относительно которой располагаются зависимости.
+     * @param entryFiles    входные файлы, от которых начинается поиск зависимостей.
+     * @return граф зависимостей достижимых файлов.
+     * @throws InvalidPathException если в директиве require указан некорректный путь.
+     * @throws IOException          если возникает некоторая ошибка, связанная с файловым вводом и выводом. Например,
+     *                              если входной файл не существует.
+     */
+    public static DependencyGraph<File> getDependenciesReachableFrom(File rootDirectory, List<File> entryFiles)
+            throws InvalidPathException, IOException {
+        Path rootPath = rootDirectory.toPath().toAbsolutePath().normalize();
+        DependencyResolver resolver = new DependencyResolver(rootDirectory, List.of());
+        DependencyGraph<File> dependencyGraph = new DependencyGraph<>();
+        Set<File> discoveredFiles = new HashSet<>();
+        Queue<File> queue = new ArrayDeque<>();
+        for (var entryFile : entryFiles) {
+            File file = entryFile.toPath().toAbsolutePath().normalize().toFile();
+            if (discoveredFiles.add(file)) {
+                queue.add(file);
+            }
+        }
+
+        try (LinkMetrics.PhaseTimer parseTimer = LinkMetrics.begin(LinkPhase.PARSE);
+             LinkMetrics.PhaseTimer graphTimer = LinkMetrics.begin(LinkPhase.GRAPH)) {
+            while (!queue.isEmpty()) {
+                File file = queue.poll();
+                List<String> requiredPaths = findRequiredPaths(file, parseTimer);
+                long graphCallStartTime = graphTimer.startCall();
+                var fileDependencies = resolver.resolve(file, requiredPaths);
+                addDependencies(dependencyGraph, file, fileDependencies, graphTimer);
+                graphTimer.endCall(graphCallStartTime);
+                for (var dependency : fileDependencies) {
+                    if (discoveredFiles.add(dependency) && dependency.toPath().startsWith(rootPath)
+                            && dependency.isFile() && !ScanIndex.isIndexFile(rootPath.toFile(), dependency)) {
+                        queue.add(dependency);
+                    }
+                }
+            }
+        }
+
+        return dependencyGraph;
+    }
+
+    /**
+     * Возвращает построенный граф зависимостей по данной корневой директории, используя индекс, сохранённый в
+     * файле {@link ScanIndex#FILE_NAME} корневой директории, и сохраняя туда обновлённый индекс.
+     *
+     * @param rootDirectory корневая директория, по которой нужно построить граф зависимостей.
+     * @param executor      пул потоков, на котором будут разбираться файлы.
+     * @return построенный граф зависимостей.
+     * @throws InvalidPathException если в директиве require указан некорректный путь.
+     * @throws IOException          если возникает некоторая ошибка, связанная с файловым вводом и выводом.
+     */
+    public static DependencyGraph<File> getDependenciesIncrementally(File rootDirectory, ExecutorService executor)
+            throws InvalidPathException, IOException {
+        Path indexPath = rootDirectory.toPath().resolve(ScanIndex.FILE_NAME);
+        ScanIndex scanIndex = ScanIndex.load(indexPath);
+        DependencyGraph<File> dependencyGraph = getDependencies(rootDirectory, scanIndex, executor);
+        saveScanIndex(scanIndex, indexPath);
+        return dependencyGraph;
+    }
+
+    /**
+     * Возвращает граф зависимостей номеров путей ({@link #getDependencies(File, PathTrie, ScanIndex,
+     * ExecutorService)}), используя индекс, сохранённый в файле {@link ScanIndex#FILE_NAME} корневой директории,
+     * и сохраняя туда обновлённый индекс.
+     *
+     * @param rootDirectory корневая директория, по которой нужно построить граф зависимостей.
+     * @param paths         пустое дерево путей, в котором интернируются файлы.
+     * @param executor      пул потоков, на котором будут разбираться файлы.
+     * @return граф зависимостей номеров путей.
+     * @throws IllegalArgumentException если дерево путей не пустое.
+     * @throws InvalidPathException     если в директиве require указан некорректный путь.
+     * @throws IOException              если возникает некоторая ошибка, связанная с файловым вводом и выводом.
+     */
+    public static FrozenDependencyGraph<Integer> getDependenciesIncrementally(File rootDirectory, PathTrie paths,
+                                                                              ExecutorService executor)
+            throws IllegalArgumentException, InvalidPathException, IOException {
+        Path indexPath = rootDirectory.toPath().resolve(ScanIndex.FILE_NAME);
+        ScanIndex scanIndex = ScanIndex.load(indexPath);
+        FrozenDependencyGraph<Integer> dependencyGraph = getDependencies(rootDirectory, paths, scanIndex, executor);
+        saveScanIndex(scanIndex, indexPath);
+        return dependencyGraph;
+    }
+
+    /**
+     * Возвращает пути вершин графа номеров путей, которые лежат вне корневой директории. Обход корневой
+     * директории их не находит, поэтому их отметки нужно снимать отдельно
+     * ({@link GraphSnapshot.FileStamps#withFiles(Collection)}), чтобы граф, взятый из кэша или снимка, устаревал
+     * и при их изменении.
+     *
+     * @param rootDirectory   корневая директория.
+     * @param dependencyGraph граф зависимостей номеров путей.
+     * @param paths           дерево путей, в котором интернированы вершины графа.
+     * @return пути вершин вне корневой директории.
+     */
+    public static List<Path> getPathsOutside(File rootDirectory, FrozenDependencyGraph<Integer> dependencyGraph,
+                                             PathTrie paths) {
+        Path rootPath = rootDirectory.toPath().toAbsolutePath().normalize();
+        List<Path> outsidePaths = new ArrayList<>();
+        for (var id : dependencyGraph.getVertices()) {
+            Path path = paths.getPath(id);
+            if (!path.toAbsolutePath().normalize().startsWith(rootPath)) {
+                outsidePaths.add(path);
+            }
+        }
+        return outsidePaths;
+    }
+
+    /**
+     * Сохраняет индекс разобранных файлов. Индекс лишь ускоряет следующий запуск, поэтому невозможность его
+     * сохранить не является ошибкой.
+     *
+     * @param scanIndex индекс разобранных файлов.
+     * @param indexPath путь к файлу индекса.
+     */
+    private static void saveScanIndex(ScanIndex scanIndex, Path indexPath) {
+        try {
+            scanIndex.save(indexPath);
+        } catch (IOException ioException) {
+            // Следующий запуск просто разберёт файлы заново.
+        }
+    }
+
+    /**
+     * Удаляет из индекса записи файлов, которые не были найдены при сканировании.
+     *
+     * @param rootDirectory корневая директория.
+     * @param scanIndex     индекс разобранных файлов или {@code null}.
+     * @param scannedFiles  файлы, найденные при сканировании.
+     */
+    private static void retainScannedFiles(File rootDirectory, ScanIndex scanIndex, List<File> scannedFiles) {
+        if (scanIndex != null) {
+            Set<String> keys = new HashSet<>();
+            for (var file : scannedFiles) {
+                keys.add(getIndexKey(rootDirectory, file));
+            }
+            scanIndex.retainAll(keys);
+        }
+    }
+
+    /**
+     * Находит файлы корневой директории и разбирает их параллельно. Результаты разбора возвращаются в порядке
+     * обхода в ширину, как в {@link FileUtils#getAllFiles(File)}. Если файл разобрать не удалось, следующие за
+     * ним результаты не возвращаются: при построении графа ошибка этого файла будет первой.
+     *
+     * @param rootDirectory корневая директория, относительно которой располагаются зависимости.
+     * @param scanIndex     индекс разобранных файлов или {@code null}, если все файлы нужно разобрать заново.
+     * @param executor      пул потоков, на котором будут разбираться файлы.
+     * @param scannedFiles  список, в который добавляются найденные файлы в порядке обхода.
+     * @return результаты разбора файлов в порядке обхода.
+     * @throws IOException если обход был прерван или разбор завершился непредвиденным исключением.
+     */
+    private static List<ParsedFile> scanInParallel(File rootDirectory, ScanIndex scanIndex, ExecutorService executor,
+                                                   List<File> scannedFiles)
+            throws IOException {
+        if (executor instanceof ForkJoinPool pool) {
+            return walkAndParse(rootDirectory, scanIndex, pool, scannedFiles);
+        }
+
+        scannedFiles.addAll(walk(rootDirectory));
+        List<Future<ParsedFile>> futures = new ArrayList<>(scannedFiles.size());
+        List<ParsedFile> parsedFiles = new ArrayList<>(scannedFiles.size());
+        try (LinkMetrics.PhaseTimer parseTimer = LinkMetrics.begin(LinkPhase.PARSE)) {
+            for (var file : scannedFiles) {
+                futures.add(executor.submit(() -> parseFile(rootDirectory, file, scanIndex, parseTimer)));
+            }
+            for (var future : futures) {
+                ParsedFile parsedFile = awaitResult(future);
+                parsedFiles.add(parsedFile);
+                if (parsedFile.error() != null) {
+                    break;
+                }
+            }
+        } finally {
+            for (var future : futures) {
+                future.cancel(true);
+            }
+        }
+        return parsedFiles;
+    }
+
+    /**
+     * Обходит корневую директорию параллельно, разбирая каждый файл сразу после того, как он найден, и затем
+     * упорядочивает результаты в порядке обхода в ширину.
+     *
+     * @param rootDirectory корневая директория, относительно которой располагаются зависимости.
+     * @param scanIndex     индекс разобранных файлов или {@code null}, если все файлы нужно разобрать заново.
+     * @param pool          пул потоков, на котором выполняется обход и разбор.
+     * @param scannedFiles  список, в который добавляются найденные файлы в порядке обхода.
+     * @return результаты разбора файлов в порядке обхода.
+     * @throws IOException если возникает некоторая ошибка, связанная с файловым вводом и выводом.
+     */
+    private static List<ParsedFile> walkAndParse(File rootDirectory, ScanIndex scanIndex, ForkJoinPool pool,
+                                                 List<File> scannedFiles)
+            throws IOException {
+        List<ScannedFile> results = new ArrayList<>();
+        try (LinkMetrics.PhaseTimer walkTimer = LinkMetrics.begin(LinkPhase.WALK);
+             LinkMetrics.PhaseTimer parseTimer = LinkMetrics.begin(LinkPhase.PARSE)) {
+            ParallelFileWalker.walk(rootDirectory, pool, (order, file) -> {
+                walkTimer.addFiles(1);
+                if (ScanIndex.isIndexFile(rootDirectory, file)) {
+                    return;
+                }
+                ScannedFile result = new ScannedFile(order, file,
+                        parseFile(rootDirectory, file, scanIndex, parseTimer));
+                synchronized (results) {
+                    results.add(result);
+                }
+            });
+        }
+        results.sort(Comparator.comparing(ScannedFile::order, ParallelFileWalker.ORDER));
+        List<ParsedFile> parsedFiles = new ArrayList<>(results.size());
+        for (var result : results) {
+            scannedFiles.add(result.file());
+            parsedFiles.add(result.parsedFile());
         }
+        return parsedFiles;
+    }
 
+    /**
+     * Строит граф зависимостей файлов по результатам разбора. Зависимости проверяются по множеству найденных
+     * файлов ({@link DependencyResolver}).
+     *
+     * @param rootDirectory корневая директория, относительно которой располагаются зависимости.
+     * @param scannedFiles  найденные файлы в порядке обхода.
+     * @param parsedFiles   результаты разбора первых найденных файлов в том же порядке.
+     * @return граф зависимостей файлов.
+     * @throws InvalidPathException если в директиве require указан некорректный путь.
+     * @throws IOException          если возникает некоторая ошибка, связанная с файловым вводом и выводом.
+     */
+    private static DependencyGraph<File> buildFileGraph(File rootDirectory, List<File> scannedFiles,
+                                                        List<ParsedFile> parsedFiles)
+            throws InvalidPathException, IOException {
+        DependencyGraph<File> dependencyGraph = new DependencyGraph<>();
+        DependencyResolver resolver = new DependencyResolver(rootDirectory, scannedFiles);
+        try (LinkMetrics.PhaseTimer graphTimer = LinkMetrics.begin(LinkPhase.GRAPH)) {
+            for (int i = 0; i < parsedFiles.size(); ++i) {
+                File file = scannedFiles.get(i);
+                addDependencies(dependencyGraph, file,
+                        resolver.resolve(file, parsedFiles.get(i).requiredPathsOrThrow()), graphTimer);
+            }
+        }
         return dependencyGraph;
     }
 
+    /**
+     * Строит неизменяемый граф зависимостей номеров путей по результатам разбора так же, как
+     * {@link #buildFileGraph(File, List, List)}.
+     *
+     * @param rootDirectory корневая директория, относительно которой располагаются зависимости.
+     * @param paths         дерево путей, в котором интернируются файлы.
+     * @param scannedFiles  найденные файлы в порядке обхода.
+     * @param parsedFiles   результаты разбора первых найденных файлов в том же порядке.
+     * @return граф зависимостей номеров путей.
+     * @throws InvalidPathException если в директиве require указан некорректный путь.
+     * @throws IOException          если возникает некоторая ошибка, связанная с файловым вводом и выводом.
+     */
+    private static FrozenDependencyGraph<Integer> buildIdGraph(File rootDirectory, PathTrie paths,
+                                                               List<File> scannedFiles, List<ParsedFile> parsedFiles)
+            throws InvalidPathException, IOException {
+        FrozenDependencyGraph.IdBuilder builder = new FrozenDependencyGraph.IdBuilder();
+        DependencyResolver resolver = new DependencyResolver(rootDirectory, scannedFiles, paths);
+        try (LinkMetrics.PhaseTimer graphTimer = LinkMetrics.begin(LinkPhase.GRAPH)) {
+            for (int i = 0; i < parsedFiles.size(); ++i) {
+                File file = scannedFiles.get(i);
+                int[] fileDependencies = resolver.resolveIds(file, parsedFiles.get(i).requiredPathsOrThrow());
+                builder.addDependencies(paths.intern(file.toPath()), fileDependencies);
+                graphTimer.addFiles(1);
+                graphTimer.addEdges(fileDependencies.length);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Анализирует граф зависимостей ({@link DependencyGraph#analyze()}), измеряя этап {@link LinkPhase#ANALYZE}.
+     * Если граф уже был проанализирован, возвращается сохранённый результат.
+     *
+     * @param dependencyGraph граф зависимостей.
+     * @param <T>             тип объектов, хранящихся в графе.
+     * @return результат анализа графа.
+     */
+    public static <T> GraphAnalysis<T> analyze(DependencyGraph<T> dependencyGraph) {
+        try (LinkMetrics.PhaseTimer analyzeTimer = LinkMetrics.begin(LinkPhase.ANALYZE)) {
+            GraphAnalysis<T> analysis = dependencyGraph.analyze();
+            analyzeTimer.addFiles(analysis.getOrderedList().size());
+            return analysis;
+        }
+    }
+
+    /**
+     * Анализирует неизменяемый граф зависимостей ({@link FrozenDependencyGraph#analyze()}), измеряя этап
+     * {@link LinkPhase#ANALYZE}. Если граф уже был проанализирован, возвращается сохранённый результат.
+     *
+     * @param dependencyGraph граф зависимостей.
+     * @param <T>             тип объектов, хранящихся в графе.
+     * @return результат анализа графа.
+     */
+    public static <T> GraphAnalysis<T> analyze(FrozenDependencyGraph<T> dependencyGraph) {
+        try (LinkMetrics.PhaseTimer analyzeTimer = LinkMetrics.begin(LinkPhase.ANALYZE)) {
+            GraphAnalysis<T> analysis = dependencyGraph.analyze();
+            analyzeTimer.addFiles(analysis.getOrderedList().size());
+            return analysis;
+        }
+    }
+
+    /**
+     * Находит все файлы корневой директории, измеряя этап {@link LinkPhase#WALK}. Файлы индекса сканирования
+     * ({@link ScanIndex#isIndexFile(File, File)}) пропускаются, даже если индекс не используется: их мог записать
+     * предыдущий запуск, и они не должны попасть в граф и в выходной файл.
+     *
+     * @param rootDirectory корневая директория.
+     * @return файлы в порядке обхода в ширину.
+     */
+    private static List<File> walk(File rootDirectory) {
+        try (LinkMetrics.PhaseTimer walkTimer = LinkMetrics.begin(LinkPhase.WALK)) {
+            List<File> files = FileUtils.getAllFiles(rootDirectory);
+            walkTimer.addFiles(files.size());
+            files.removeIf(file -> ScanIndex.isIndexFile(rootDirectory, file));
+            return files;
+        }
+    }
+
+    /**
+     * Добавляет зависимости файла в граф и учитывает их в таймере этапа {@link LinkPhase#GRAPH}.
+     *
+     * @param dependencyGraph  граф зависимостей.
+     * @param file             файл.
+     * @param fileDependencies зависимости файла.
+     * @param graphTimer       таймер этапа построения графа.
+     * @param <T>              тип вершин графа.
+     */
+    private static <T> void addDependencies(DependencyGraph<T> dependencyGraph, T file, List<T> fileDependencies,
+                                            LinkMetrics.PhaseTimer graphTimer) {
+        dependencyGraph.addDependencies(file, fileDependencies);
+        graphTimer.addFiles(1);
+        graphTimer.addEdges(fileDependencies.size());
+    }
+
+    /**
+     * Разобранный файл вместе с его порядковым ключом обхода.
+     *
+     * @param order      порядковый ключ файла.
+     * @param file       файл.
+     * @param parsedFile результат разбора файла.
+     */
+    private record ScannedFile(int[] order, File file, ParsedFile parsedFile) {
+    }
+
+    /**
+     * Результат разбора одного файла: либо пути из его директив require, либо исключение, возникшее при разборе.
+     * Исключение сохраняется как есть, чтобы пул потоков не оборачивал его в свои типы.
+     *
+     * @param requiredPaths пути из директив require.
+     * @param error         исключение, возникшее при разборе.
+     */
+    record ParsedFile(List<String> requiredPaths, Exception error) {
+        /**
+         * Возвращает пути из директив require файла или пробрасывает исключение, возникшее при его разборе.
+         *
+         * @return пути из директив require.
+         * @throws IOException если при разборе возникла ошибка ввода-вывода.
+         */
+        List<String> requiredPathsOrThrow() throws IOException {
+            if (error instanceof IOException ioException) {
+                throw ioException;
+            } else if (error instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            return requiredPaths;
+        }
+    }
+
+    /**
+     * Находит пути из директив require файла, не выбрасывая исключений разбора. Пути преобразуются в зависимости
+     * позже, когда известны все файлы корневой директории.
+     *
+     * @param rootDirectory корневая директория, относительно которой располагаются зависимости.
+     * @param file          файл, в котором производится поиск зависимостей.
+     * @param scanIndex     индекс разобранных файлов или {@code null}, если файл нужно разобрать заново.
+     * @param parseTimer    таймер этапа разбора, в котором учитываются разобранные файлы.
+     * @return результат разбора файла.
+     */
+    static ParsedFile parseFile(File rootDirectory, File file, ScanIndex scanIndex,
+                                LinkMetrics.PhaseTimer parseTimer) {
+        try {
+            List<String> requiredPaths = scanIndex == null
+                    ? findRequiredPaths(file, parseTimer)
+                    : findRequiredPaths(rootDirectory, file, scanIndex, parseTimer);
+            return new ParsedFile(requiredPaths, null);
+        } catch (IOException | RuntimeException exception) {
+            return new ParsedFile(null, exception);
+        }
+    }
+
+    /**
+     * Возвращает пути из директив require файла, беря их из индекса, если файл не изменился, и разбирая файл
+     * заново (с обновлением индекса) иначе. Вызов измеряется в таймере этапа разбора, так как разбор
+     * выполняется вперемешку с обходом директорий или построением графа.
+     *
+     * @param rootDirectory корневая директория.
+     * @param file          файл, в котором производится поиск директив.
+     * @param scanIndex     индекс разобранных файлов.
+     * @param parseTimer    таймер этапа разбора, в котором учитываются разобранные файлы.
+     * @return пути из директив require.
+     * @throws IOException если возникает некоторая ошибка, связанная с файловым вводом и выводом.
+     */
+    private static List<String> findRequiredPaths(File rootDirectory, File file, ScanIndex scanIndex,
+                                                  LinkMetrics.PhaseTimer parseTimer)
+            throws IOException {
+        long callStartTime = parseTimer.startCall();
+        try {
+            String key = getIndexKey(rootDirectory, file);
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            long modified = attributes.lastModifiedTime().toMillis();
+            List<String> requiredPaths = scanIndex.getRequiredPaths(key, attributes.size(), modified);
+            if (requiredPaths == null) {
+                long parsedAt = System.currentTimeMillis();
+                requiredPaths = RequireDirectiveScanner.findRequiredPaths(file);
+                scanIndex.put(key, attributes.size(), modified, parsedAt, requiredPaths);
+                parseTimer.addFiles(1);
+                parseTimer.addBytesRead(attributes.size());
+            }
+            return requiredPaths;
+        } finally {
+            parseTimer.endCall(callStartTime);
+        }
+    }
+
+    /**
+     * Находит пути из директив require файла и учитывает файл и длительность вызова в таймере этапа разбора.
+     *
+     * @param file       файл, в котором производится поиск директив.
+     * @param parseTimer таймер этапа разбора.
+     * @return пути из директив require.
+     * @throws IOException если возникает некоторая ошибка, связанная с файловым вводом и выводом.
+     */
+    private static List<String> findRequiredPaths(File file, LinkMetrics.PhaseTimer parseTimer)
+            throws IOException {
+        long callStartTime = parseTimer.startCall();
+        try {
+            List<String> requiredPaths = RequireDirectiveScanner.findRequiredPaths(file);
+            parseTimer.addFiles(1);
+            if (parseTimer.isEnabled()) {
+                parseTimer.addBytesRead(file.length());
+            }
+            return requiredPaths;
+        } finally {
+            parseTimer.endCall(callStartTime);
+        }
+    }
+
+    /**
+     * Возвращает ключ файла в индексе -- путь к файлу относительно корневой директории.
+     *
+     * @param rootDirectory корневая директория.
+     * @param file          файл.
+     * @return ключ файла в индексе.
+     */
+    private static String getIndexKey(File rootDirectory, File file) {
+        return rootDirectory.toPath().relativize(file.toPath()).toString();
+    }
+
+    /**
+     * Дожидается результата задачи.
+     *
+     * @param future задача.
+     * @param <R>    тип результата задачи.
+     * @return результат задачи.
+     * @throws IOException если ожидание было прервано или задача завершилась непредвиденным исключением.
+     */
+    static <R> R awaitResult(Future<R> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Dependency scan was interrupted.");
+        } catch (ExecutionException executionException) {
+            if (executionException.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(executionException.getCause());
+        }
+    }
+
     /**
      * Нахоодит все зависимости в указанном файле.
      *
@@ -44,24 +632,31 @@ public class DependencyUtils {
      */
     public static List<File> findDependenciesInFile(File rootDirectory, File file) throws InvalidPathException,
             IOException {
-        ArrayList<File> result = new ArrayList<>();
-        try (FileReader fileReader = new FileReader(file);
-             BufferedReader bufferedReader = new BufferedReader(fileReader)) {
-            String line = bufferedReader.readLine();
-            while (line != null) {
-                Scanner scanner = new Scanner(line);
-                var matches = scanner.findAll("require '(.*)'").map(x -> x.group(1)).toList();
-                for (var match : matches) {
-                    Path path = rootDirectory.toPath().resolve(Paths.get(match).normalize());
-                    File dependency = path.toAbsolutePath().normalize().toFile();
-                    if (!dependency.exists()) {
-                        throw new FileNotFoundException("Error in file " + file.toPath() +
-                                " | Dependency \"" + match + "\" doesn't exist.");
-                    }
-                    result.add(dependency);
-                }
+        return resolveDependencies(rootDirectory, file, RequireDirectiveScanner.findRequiredPaths(file));
+    }
 
-                line = bufferedReader.readLine();
+    /**
+     * Преобразует пути из директив require файла в файлы-зависимости.
+     *
+     * @param rootDirectory корневая директория, относительно которой располагаются зависимости.
+     * @param file          файл, в котором были найдены директивы.
+     * @param requiredPaths пути из директив require.
+     * @return список зависимостей файла.
+     * @throws InvalidPathException  если в директиве require указан некорректный путь.
+     * @throws FileNotFoundException если зависимость не существует.
+     */
+    public static List<File> resolveDependencies(File rootDirectory, File file, List<String> requiredPaths)
+            throws InvalidPathException, FileNotFoundException {
+        ArrayList<File> result = new ArrayList<>(requiredPaths.size());
+        try {
+            for (var match : requiredPaths) {
+                Path path = rootDirectory.toPath().resolve(Paths.get(match).normalize());
+                File dependency = path.toAbsolutePath().normalize().toFile();
+                if (!dependency.exists()) {
+                    throw new FileNotFoundException("Error in file " + file.toPath() +
+                            " | Dependency \"" + match + "\" doesn't exist.");
+                }
+                result.add(dependency);
             }
         } catch (InvalidPathException invalidPathException) {
             throw new InvalidPathException("In file "
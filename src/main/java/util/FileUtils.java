@@ -1,8 +1,12 @@
 package util;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -10,6 +14,10 @@ import java.util.stream.Collectors;
  * Класс, содержащий статические методы для работы с файлами.
  */
 public class FileUtils {
+    /**
+     * Размер буфера, через который копируются файлы, если их нельзя скопировать ядром.
+     */
+    static final int COPY_BUFFER_SIZE = 64 * 1024;
 
     /**
      * Возвращает путь к текущей рабочей директории.
@@ -43,11 +51,173 @@ public class FileUtils {
      *                     для чтения не существует/перестал существовать.
      */
     public static void combineFiles(List<File> filesToCombine, Path outputPath) throws IOException {
-        try (FileWriter fileWriter = new FileWriter(outputPath.toFile(), false);
-             PrintWriter printWriter = new PrintWriter(fileWriter)) {
+        try (LinkMetrics.PhaseTimer combineTimer = beginCombine(filesToCombine)) {
+            try (FileWriter fileWriter = new FileWriter(outputPath.toFile(), false);
+                 PrintWriter printWriter = new PrintWriter(fileWriter)) {
+                for (var fileObject : filesToCombine) {
+                    writeFileContent(printWriter, fileObject);
+                }
+            }
+            combineTimer.addBytesWritten(outputPath.toFile().length());
+        }
+    }
+
+    /**
+     * Побайтово компонует несколько файлов в один. Содержимое файлов не декодируется и копируется ядром
+     * ({@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}), поэтому переводы
+     * строк и кодировка файлов сохраняются. Если в параметрах задана замена переводов строк, файлы копируются
+     * частями через буфер фиксированного размера, и переводы строк заменяются по ходу копирования.
+     *
+     * @param filesToCombine файлы, которые нужно скомпоновать.
+     * @param outputPath     путь к файлу, в который нужно скомпоновать файлы.
+     * @param options        параметры компоновки.
+     * @throws IOException если возникает некоторая ошибка, связанная с файловым вводом и выводом. Например, если файл
+     *                     для чтения не существует/перестал существовать.
+     */
+    public static void transferFiles(List<File> filesToCombine, Path outputPath, CombineOptions options)
+            throws IOException {
+        byte[] separator = options.separator().getBytes(StandardCharsets.UTF_8);
+        byte[] lastLineTerminator = options.lastLineTerminator().getBytes(StandardCharsets.UTF_8);
+        LineSeparatorNormalizer normalizer = options.normalizesLineSeparators()
+                ? new LineSeparatorNormalizer(options.lineSeparator().getBytes(StandardCharsets.UTF_8), COPY_BUFFER_SIZE)
+                : null;
+        ByteBuffer buffer = normalizer != null ? ByteBuffer.allocateDirect(COPY_BUFFER_SIZE) : null;
+        try (LinkMetrics.PhaseTimer combineTimer = beginCombine(filesToCombine);
+             FileChannel output = FileChannel.open(outputPath, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (var fileObject : filesToCombine) {
+                if (copyFile(fileObject, output, buffer, normalizer)) {
+                    writeFully(output, lastLineTerminator);
+                }
+                writeFully(output, separator);
+            }
+            combineTimer.addBytesWritten(output.size());
+        }
+    }
+
+    /**
+     * Запускает таймер этапа компоновки и учитывает в нём компонуемые файлы. Размеры файлов запрашиваются,
+     * только если значения этапа куда-либо записываются.
+     *
+     * @param filesToCombine файлы, которые нужно скомпоновать.
+     * @return запущенный таймер этапа {@link LinkPhase#COMBINE}.
+     */
+    static LinkMetrics.PhaseTimer beginCombine(List<File> filesToCombine) {
+        LinkMetrics.PhaseTimer combineTimer = LinkMetrics.begin(LinkPhase.COMBINE);
+        combineTimer.addFiles(filesToCombine.size());
+        if (combineTimer.isEnabled()) {
             for (var fileObject : filesToCombine) {
-                writeFileContent(printWriter, fileObject);
+                combineTimer.addBytesRead(fileObject.length());
+            }
+        }
+        return combineTimer;
+    }
+
+    /**
+     * Копирует содержимое файла в канал: ядром, если переводы строк сохраняются, или частями через буфер, если
+     * их нужно заменить.
+     *
+     * @param fileObject файл, который нужно скопировать.
+     * @param output     канал, в который нужно скопировать файл.
+     * @param buffer     буфер для чтения файла; не используется, если {@code normalizer} равен {@code null}.
+     * @param normalizer объект, заменяющий переводы строк, или {@code null}, если они сохраняются.
+     * @return {@code true}, если файл непустой и не заканчивается переводом строки, иначе {@code false}.
+     * @throws IOException если возникает ошибка при чтении или записи.
+     */
+    static boolean copyFile(File fileObject, FileChannel output, ByteBuffer buffer,
+                            LineSeparatorNormalizer normalizer) throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(fileObject);
+             FileChannel input = inputStream.getChannel()) {
+            return normalizer == null
+                    ? transferFully(input, output)
+                    : copyNormalized(input, output, buffer, normalizer);
+        }
+    }
+
+    /**
+     * Копирует всё содержимое файла в канал.
+     *
+     * @param input  канал файла, который нужно скопировать.
+     * @param output канал, в который нужно скопировать файл.
+     * @return {@code true}, если файл непустой и не заканчивается переводом строки, иначе {@code false}.
+     * @throws IOException если возникает ошибка при чтении или записи.
+     */
+    private static boolean transferFully(FileChannel input, FileChannel output) throws IOException {
+        long size = input.size();
+        long position = 0;
+        while (position < size) {
+            long transferred = input.transferTo(position, size - position, output);
+            if (transferred <= 0) {
+                break;
             }
+            position += transferred;
+        }
+        return position > 0 && !isLineBreak(readByte(input, position - 1));
+    }
+
+    /**
+     * Копирует всё содержимое файла в канал частями, заменяя переводы строк.
+     *
+     * @param input      канал файла, который нужно скопировать.
+     * @param output     канал, в который нужно скопировать файл.
+     * @param buffer     буфер для чтения файла.
+     * @param normalizer объект, заменяющий переводы строк.
+     * @return {@code true}, если файл непустой и не заканчивается переводом строки, иначе {@code false}.
+     * @throws IOException если возникает ошибка при чтении или записи.
+     */
+    private static boolean copyNormalized(FileChannel input, FileChannel output, ByteBuffer buffer,
+                                          LineSeparatorNormalizer normalizer) throws IOException {
+        boolean needsTerminator = false;
+        buffer.clear();
+        while (input.read(buffer) >= 0) {
+            if (buffer.position() == 0) {
+                continue;
+            }
+            needsTerminator = !isLineBreak(buffer.get(buffer.position() - 1));
+            normalizer.write(buffer.flip(), output);
+            buffer.clear();
+        }
+        normalizer.finishFile(output);
+        return needsTerminator;
+    }
+
+    /**
+     * Считывает один байт файла.
+     *
+     * @param channel  канал файла.
+     * @param position позиция байта.
+     * @return считанный байт.
+     * @throws IOException если возникает ошибка при чтении или файл короче, чем ожидалось.
+     */
+    static byte readByte(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        if (channel.read(buffer, position) != 1) {
+            throw new EOFException("File was truncated while combining.");
+        }
+        return buffer.get(0);
+    }
+
+    /**
+     * Проверяет, является ли байт символом перевода строки.
+     *
+     * @param value байт.
+     * @return {@code true}, если байт -- {@code '\n'} или {@code '\r'}, иначе {@code false}.
+     */
+    static boolean isLineBreak(byte value) {
+        return value == '\n' || value == '\r';
+    }
+
+    /**
+     * Записывает все байты в канал.
+     *
+     * @param output канал, в который нужно записать байты.
+     * @param bytes  байты для записи.
+     * @throws IOException если возникает ошибка при записи.
+     */
+    static void writeFully(FileChannel output, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
         }
     }
 
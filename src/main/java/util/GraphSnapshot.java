@@ -0,0 +1,853 @@
+package util;
+
+import graph.FrozenDependencyGraph;
+import graph.GraphAnalysis;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * Снимок графа зависимостей в компактном бинарном файле, позволяющий при следующем запуске не сканировать и не
+ * разбирать файлы корневой директории, пока они не изменились. Файл снимка отображается в память
+ * ({@link FileChannel#map}), и граф читается прямо из отображения: загрузка сверяет только заголовок и его
+ * контрольную сумму, не читает разделы файла и не создаёт объектов для вершин, а объекты {@link File}
+ * создаются только для файлов, которые нужно скомпоновать.
+ * <p>
+ * Формат файла (целые числа записаны в порядке big-endian):
+ * <ul>
+ *     <li>заголовок: сигнатура, версия, время снятия отметок файлов, флаги (бит {@code 0} -- в графе есть
+ *     циклы), число вершин {@code N}, рёбер {@code E}, путей {@code P}, отметок файлов {@code S}, ячеек
+ *     хэш-таблицы путей {@code T} и байтов путей {@code B}, по которым вычисляются смещения разделов;</li>
+ *     <li>контрольная сумма CRC32C заголовка {@code int};</li>
+ *     <li>отметки файлов: размеры {@code long[S]}, времена изменения {@code long[S]} и номера путей
+ *     {@code int[S]};</li>
+ *     <li>пути: смещения {@code int[P + 1]} в таблице байтов, хэш-таблица с открытой адресацией {@code int[T]},
+ *     хранящая номер пути, увеличенный на единицу, и номер отметки каждого пути {@code int[P]} ({@code -1},
+ *     если отметки нет);</li>
+ *     <li>рёбра в сжатом построчном представлении: смещения {@code int[N + 1]} и зависимости {@code int[E]};</li>
+ *     <li>вершины в топологическом порядке {@code int[N]};</li>
+ *     <li>пути в кодировке UTF-8 {@code byte[B]}.</li>
+ * </ul>
+ * Файл с неверной контрольной суммой заголовка или с размером, который не совпадает с размерами разделов,
+ * считается повреждённым. Разделы контрольной суммой не защищены, чтобы загрузка не читала весь файл: от
+ * прерванной записи их защищает замена файла целиком ({@link #save}), а номер вершины или смещение вне
+ * допустимых границ приводит к {@link IllegalStateException} при обращении к графу. Искажение внутри границ,
+ * например, повреждение носителя, не обнаруживается.
+ * Вершины -- это пути с номерами от {@code 0} до {@code N - 1}; остальные пути принадлежат файлам, которые
+ * попали в отметки, но не в граф.
+ * <p>
+ * Снимок годен, пока набор файлов корневой директории, их размеры и времена изменения совпадают с отметками,
+ * снятыми до сканирования ({@link FileStamps#capture(File)}), а зависимости вне корневой директории -- с
+ * отметками, добавленными к ним ({@link FileStamps#withFiles(Collection)}). Проверка ({@link #isUpToDate(File)})
+ * обходит всё дерево директорий и для каждого файла читает его атрибуты и ищет путь в хэш-таблице снимка, то
+ * есть занимает время, пропорциональное числу файлов; снимок избавляет только от чтения и разбора их
+ * содержимого.
+ */
+public class GraphSnapshot {
+    /**
+     * Сигнатура файла снимка.
+     */
+    private static final int MAGIC = 0x46434753;
+    /**
+     * Версия формата файла снимка.
+     */
+    private static final int VERSION = 3;
+    /**
+     * Размер заголовка в байтах.
+     */
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + Long.BYTES + 7 * Integer.BYTES;
+    /**
+     * Размер контрольной суммы заголовка в байтах.
+     */
+    private static final int CHECKSUM_SIZE = Integer.BYTES;
+    /**
+     * Флаг заголовка: в графе есть петли или циклы.
+     */
+    private static final int HAS_CYCLES = 1;
+    /**
+     * Точность времени изменения файла в файловых системах, в миллисекундах. Файл, изменённый менее чем за это
+     * время до снятия отметок, мог измениться ещё раз с тем же временем изменения, поэтому снимок с такой
+     * отметкой считается устаревшим.
+     */
+    private static final long TIMESTAMP_GRANULARITY_MILLIS = 2000;
+
+    /**
+     * Время снятия отметок файлов в миллисекундах.
+     */
+    private final long capturedAt;
+    /**
+     * Есть ли в графе петли или циклы.
+     */
+    private final boolean hasCycles;
+    /**
+     * Число вершин.
+     */
+    private final int vertexCount;
+    /**
+     * Размеры файлов по номерам отметок.
+     */
+    private final LongBuffer stampSizes;
+    /**
+     * Времена изменения файлов по номерам отметок.
+     */
+    private final LongBuffer stampModified;
+    /**
+     * Номера путей по номерам отметок.
+     */
+    private final IntBuffer stampPaths;
+    /**
+     * Смещения путей в таблице байтов.
+     */
+    private final IntBuffer pathOffsets;
+    /**
+     * Хэш-таблица путей.
+     */
+    private final IntBuffer slots;
+    /**
+     * Номера отметок по номерам путей.
+     */
+    private final IntBuffer pathStamps;
+    /**
+     * Смещения зависимостей каждой вершины.
+     */
+    private final IntBuffer edgeOffsets;
+    /**
+     * Зависимости вершин.
+     */
+    private final IntBuffer edgeTargets;
+    /**
+     * Вершины в топологическом порядке.
+     */
+    private final IntBuffer order;
+    /**
+     * Пути в кодировке UTF-8.
+     */
+    private final ByteBuffer pathBytes;
+
+    /**
+     * Отметки файлов корневой директории: размер и время изменения каждого файла, снятые до сканирования.
+     */
+    public static final class FileStamps {
+        /**
+         * Отметка одного файла.
+         *
+         * @param path     путь к файлу.
+         * @param size     размер файла в байтах.
+         * @param modified время изменения файла в миллисекундах.
+         */
+        private record Stamp(Path path, long size, long modified) {
+        }
+
+        /**
+         * Время снятия отметок в миллисекундах.
+         */
+        private final long capturedAt;
+        /**
+         * Отметки файлов.
+         */
+        private final List<Stamp> stamps;
+
+        /**
+         * @param capturedAt время снятия отметок.
+         * @param stamps     отметки файлов.
+         */
+        private FileStamps(long capturedAt, List<Stamp> stamps) {
+            this.capturedAt = capturedAt;
+            this.stamps = stamps;
+        }
+
+        /**
+         * Снимает отметки всех файлов корневой директории, кроме файлов индекса сканирования. Вызывается до
+         * сканирования, чтобы файл, изменённый во время сканирования, сделал снимок устаревшим.
+         *
+         * @param rootDirectory корневая директория.
+         * @return отметки файлов.
+         * @throws IOException если не удалось обойти корневую директорию.
+         */
+        public static FileStamps capture(File rootDirectory) throws IOException {
+            long capturedAt = System.currentTimeMillis();
+            List<Stamp> stamps = new ArrayList<>();
+            walkFiles(rootDirectory, (path, attributes) -> {
+                stamps.add(new Stamp(path, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                return true;
+            });
+            return new FileStamps(capturedAt, stamps);
+        }
+
+        /**
+         * Возвращает отметки, дополненные отметками данных файлов, например, зависимостей вне корневой
+         * директории, которые обход не находит. Уже отмеченные и недоступные файлы пропускаются: недоступный
+         * файл при следующем сравнении считается удалённым.
+         *
+         * @param files пути к файлам.
+         * @return новые отметки; время их снятия остаётся прежним.
+         */
+        public FileStamps withFiles(Collection<Path> files) {
+            List<Stamp> extendedStamps = new ArrayList<>(stamps);
+            Set<Path> stampedPaths = new HashSet<>(stamps.size() * 4 / 3 + 1);
+            for (var stamp : stamps) {
+                stampedPaths.add(stamp.path());
+            }
+            for (var path : files) {
+                if (!stampedPaths.add(path)) {
+                    continue;
+                }
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    extendedStamps.add(new Stamp(path, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                } catch (IOException ioException) {
+                    // Файл не отмечается и при следующем сравнении окажется изменившимся.
+                }
+            }
+            return new FileStamps(capturedAt, extendedStamps);
+        }
+
+        /**
+         * Возвращает количество отметок.
+         *
+         * @return количество файлов, отметки которых сняты.
+         */
+        public int size() {
+            return stamps.size();
+        }
+
+        /**
+         * Сравнивает эти отметки с отметками, снятыми позже, и возвращает файлы, которые могли измениться между
+         * ними: добавленные, удалённые и файлы с другим размером или временем изменения. Файлы, изменённые
+         * незадолго до снятия этих отметок, тоже возвращаются, так же как они делают снимок устаревшим
+         * ({@link #isUpToDate(File)}).
+         *
+         * @param later отметки той же корневой директории, снятые позже.
+         * @return пути файлов, которые могли измениться; пустой список, если все файлы остались прежними.
+         */
+        public List<Path> getChangedPaths(FileStamps later) {
+            Map<Path, Stamp> earlier = new HashMap<>(stamps.size() * 4 / 3 + 1);
+            for (var stamp : stamps) {
+                earlier.put(stamp.path(), stamp);
+            }
+            List<Path> changedPaths = new ArrayList<>();
+            for (var stamp : later.stamps) {
+                Stamp previous = earlier.remove(stamp.path());
+                if (previous == null || previous.size() != stamp.size() || previous.modified() != stamp.modified()
+                        || previous.modified() + TIMESTAMP_GRANULARITY_MILLIS >= capturedAt) {
+                    changedPaths.add(stamp.path());
+                }
+            }
+            changedPaths.addAll(earlier.keySet());
+            return changedPaths;
+        }
+    }
+
+    /**
+     * Обработчик файла при обходе корневой директории.
+     */
+    @FunctionalInterface
+    private interface StampVisitor {
+        /**
+         * Обрабатывает файл.
+         *
+         * @param path       путь к файлу.
+         * @param attributes атрибуты файла.
+         * @return {@code true}, если обход нужно продолжить, иначе {@code false}.
+         */
+        boolean visit(Path path, BasicFileAttributes attributes);
+    }
+
+    /**
+     * Читает граф из отображённого в память файла снимка, проверяя заголовок, его контрольную сумму и размеры
+     * разделов. Из разделов читаются только последние смещения путей и рёбер.
+     *
+     * @param buffer отображение файла снимка.
+     * @throws IOException если файл не является снимком поддерживаемой версии или повреждён.
+     */
+    private GraphSnapshot(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE + CHECKSUM_SIZE || buffer.getInt(0) != MAGIC
+                || buffer.getInt(4) != VERSION) {
+            throw new IOException("The file is not a graph snapshot of version " + VERSION + ".");
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.slice(0, HEADER_SIZE));
+        if ((int) checksum.getValue() != buffer.getInt(HEADER_SIZE)) {
+            throw new IOException("The graph snapshot checksum does not match its header.");
+        }
+        capturedAt = buffer.getLong(8);
+        int flags = buffer.getInt(16);
+        vertexCount = buffer.getInt(20);
+        int edgeCount = buffer.getInt(24);
+        int pathCount = buffer.getInt(28);
+        int stampCount = buffer.getInt(32);
+        int slotCount = buffer.getInt(36);
+        int pathByteCount = buffer.getInt(40);
+        if (vertexCount < 0 || edgeCount < 0 || pathCount < vertexCount || stampCount < 0 || stampCount > pathCount
+                || slotCount <= pathCount || Integer.bitCount(slotCount) != 1 || pathByteCount < 0) {
+            throw new IOException("The graph snapshot header is corrupted.");
+        }
+        long expectedSize = HEADER_SIZE + CHECKSUM_SIZE + 2L * Long.BYTES * stampCount
+                + (long) Integer.BYTES * (stampCount + pathCount + 1 + slotCount + pathCount + vertexCount + 1
+                + edgeCount + vertexCount)
+                + pathByteCount;
+        if (buffer.capacity() != expectedSize) {
+            throw new IOException("The graph snapshot is truncated or corrupted.");
+        }
+
+        hasCycles = (flags & HAS_CYCLES) != 0;
+        int offset = HEADER_SIZE + CHECKSUM_SIZE;
+        stampSizes = buffer.slice(offset, stampCount * Long.BYTES).asLongBuffer();
+        offset += stampCount * Long.BYTES;
+        stampModified = buffer.slice(offset, stampCount * Long.BYTES).asLongBuffer();
+        offset += stampCount * Long.BYTES;
+        stampPaths = sliceInts(buffer, offset, stampCount);
+        offset += stampCount * Integer.BYTES;
+        pathOffsets = sliceInts(buffer, offset, pathCount + 1);
+        offset += (pathCount + 1) * Integer.BYTES;
+        slots = sliceInts(buffer, offset, slotCount);
+        offset += slotCount * Integer.BYTES;
+        pathStamps = sliceInts(buffer, offset, pathCount);
+        offset += pathCount * Integer.BYTES;
+        edgeOffsets = sliceInts(buffer, offset, vertexCount + 1);
+        offset += (vertexCount + 1) * Integer.BYTES;
+        edgeTargets = sliceInts(buffer, offset, edgeCount);
+        offset += edgeCount * Integer.BYTES;
+        order = sliceInts(buffer, offset, vertexCount);
+        offset += vertexCount * Integer.BYTES;
+        pathBytes = buffer.slice(offset, pathByteCount);
+        if (pathOffsets.get(pathCount) != pathByteCount || edgeOffsets.get(vertexCount) != edgeCount) {
+            throw new IOException("The graph snapshot is corrupted.");
+        }
+    }
+
+    /**
+     * Загружает снимок, отображая файл в память. Читается только заголовок, а разделы файла -- по мере
+     * обращения к графу.
+     *
+     * @param snapshotPath путь к файлу снимка.
+     * @return снимок графа.
+     * @throws IOException если файл не удалось прочитать, он не является снимком поддерживаемой версии или
+     *                     повреждён.
+     */
+    public static GraphSnapshot load(Path snapshotPath) throws IOException {
+        try (LinkMetrics.PhaseTimer graphTimer = LinkMetrics.begin(LinkPhase.GRAPH);
+             FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("The graph snapshot " + snapshotPath + " is too large.");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            GraphSnapshot snapshot = new GraphSnapshot(buffer);
+            graphTimer.addFiles(snapshot.size());
+            graphTimer.addEdges(snapshot.getEdgeCount());
+            graphTimer.addBytesRead(size);
+            return snapshot;
+        }
+    }
+
+    /**
+     * Сохраняет граф зависимостей вместе с отметками файлов. Снимок сначала записывается во временный файл,
+     * который затем заменяет прежний, поэтому прерванная запись не повреждает сохранённый снимок.
+     *
+     * @param dependencyGraph граф зависимостей номеров путей.
+     * @param paths           дерево путей, в котором интернированы вершины графа.
+     * @param stamps          отметки файлов, снятые до построения графа.
+     * @param snapshotPath    путь к файлу снимка.
+     * @throws IOException если возникает некоторая ошибка, связанная с файловым вводом и выводом.
+     */
+    public static void save(FrozenDependencyGraph<Integer> dependencyGraph, PathTrie paths, FileStamps stamps,
+                            Path snapshotPath) throws IOException {
+        GraphAnalysis<Integer> analysis = DependencyUtils.analyze(dependencyGraph);
+        List<Integer> vertices = dependencyGraph.getVertices();
+        int vertexCount = vertices.size();
+        int[] snapshotIds = new int[paths.size()];
+        Arrays.fill(snapshotIds, -1);
+        List<byte[]> pathList = new ArrayList<>(vertexCount + stamps.size());
+        for (var vertex : vertices) {
+            snapshotIds[vertex] = pathList.size();
+            pathList.add(paths.getPath(vertex).toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        int stampCount = stamps.size();
+        int[] stampPaths = new int[stampCount];
+        for (int i = 0; i < stampCount; ++i) {
+            Path path = stamps.stamps.get(i).path();
+            int id = paths.find(path);
+            if (id >= 0 && snapshotIds[id] >= 0) {
+                stampPaths[i] = snapshotIds[id];
+            } else {
+                stampPaths[i] = pathList.size();
+                pathList.add(path.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int pathCount = pathList.size();
+        int[] pathStamps = new int[pathCount];
+        Arrays.fill(pathStamps, -1);
+        for (int i = 0; i < stampCount; ++i) {
+            pathStamps[stampPaths[i]] = i;
+        }
+
+        int[] pathOffsets = new int[pathCount + 1];
+        int slotCount = Integer.highestOneBit(Math.max(8, pathCount) * 2 - 1) * 2;
+        int[] slots = new int[slotCount];
+        for (int i = 0; i < pathCount; ++i) {
+            byte[] bytes = pathList.get(i);
+            pathOffsets[i + 1] = pathOffsets[i] + bytes.length;
+            int slot = hash(new String(bytes, StandardCharsets.UTF_8)) & (slotCount - 1);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (slotCount - 1);
+            }
+            slots[slot] = i + 1;
+        }
+
+        int[] edgeOffsets = new int[vertexCount + 1];
+        graph.algorithm.IntBuffer edgeTargets = new graph.algorithm.IntBuffer();
+        for (int i = 0; i < vertexCount; ++i) {
+            for (var dependency : dependencyGraph.getDependencies(vertices.get(i))) {
+                edgeTargets.add(snapshotIds[dependency]);
+            }
+            edgeOffsets[i + 1] = edgeTargets.size();
+        }
+
+        Path temporaryPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putLong(stamps.capturedAt)
+                .putInt(analysis.hasCycles() ? HAS_CYCLES : 0)
+                .putInt(vertexCount)
+                .putInt(edgeTargets.size())
+                .putInt(pathCount)
+                .putInt(stampCount)
+                .putInt(slotCount)
+                .putInt(pathOffsets[pathCount]);
+        CRC32C checksum = new CRC32C();
+        checksum.update(header.array());
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporaryPath)))) {
+            output.write(header.array());
+            output.writeInt((int) checksum.getValue());
+            for (var stamp : stamps.stamps) {
+                output.writeLong(stamp.size());
+            }
+            for (var stamp : stamps.stamps) {
+                output.writeLong(stamp.modified());
+            }
+            writeInts(output, stampPaths, stampCount);
+            writeInts(output, pathOffsets, pathCount + 1);
+            writeInts(output, slots, slotCount);
+            writeInts(output, pathStamps, pathCount);
+            writeInts(output, edgeOffsets, vertexCount + 1);
+            for (int i = 0; i < edgeTargets.size(); ++i) {
+                output.writeInt(edgeTargets.get(i));
+            }
+            for (var vertex : analysis.getOrderedList()) {
+                output.writeInt(snapshotIds[vertex]);
+            }
+            for (var bytes : pathList) {
+                output.write(bytes);
+            }
+        }
+        Files.move(temporaryPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Проверяет, соответствует ли снимок текущему состоянию корневой директории: набор файлов, их размеры и
+     * времена изменения совпадают с отметками. Обход прекращается на первом расхождении. Отметки, которые обход
+     * не встретил, допустимы только для файлов вне корневой директории ({@link FileStamps#withFiles(Collection)}),
+     * и такие файлы проверяются по отдельности.
+     *
+     * @param rootDirectory корневая директория.
+     * @return {@code true}, если граф можно взять из снимка, иначе {@code false}.
+     * @throws IOException если не удалось обойти корневую директорию.
+     */
+    public boolean isUpToDate(File rootDirectory) throws IOException {
+        int stampCount = stampPaths.capacity();
+        BitSet matched = new BitSet(stampCount);
+        boolean[] isFresh = {true};
+        try (LinkMetrics.PhaseTimer walkTimer = LinkMetrics.begin(LinkPhase.WALK)) {
+            walkFiles(rootDirectory, (path, attributes) -> {
+                int pathId = findPath(path.toString());
+                int stamp = pathId < 0 ? -1 : pathStamps.get(pathId);
+                if (stamp >= stampCount) {
+                    throw corrupted();
+                }
+                if (stamp < 0 || !matches(stamp, attributes)) {
+                    isFresh[0] = false;
+                    return false;
+                }
+                matched.set(stamp);
+                return true;
+            });
+            walkTimer.addFiles(matched.cardinality());
+        }
+        if (!isFresh[0]) {
+            return false;
+        }
+
+        Path rootPath = rootDirectory.toPath().toAbsolutePath().normalize();
+        for (int stamp = matched.nextClearBit(0); stamp < stampCount; stamp = matched.nextClearBit(stamp + 1)) {
+            int pathId = stampPaths.get(stamp);
+            if (pathId < 0 || pathId >= pathStamps.capacity()) {
+                throw corrupted();
+            }
+            Path path = getFile(pathId).toPath();
+            if (path.toAbsolutePath().normalize().startsWith(rootPath)) {
+                return false;
+            }
+            try {
+                if (!matches(stamp, Files.readAttributes(path, BasicFileAttributes.class))) {
+                    return false;
+                }
+            } catch (IOException ioException) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Сравнивает атрибуты файла с его отметкой. Файл, изменённый незадолго до снятия отметок, считается
+     * изменившимся.
+     *
+     * @param stamp      номер отметки.
+     * @param attributes текущие атрибуты файла.
+     * @return {@code true}, если файл не изменился, иначе {@code false}.
+     */
+    private boolean matches(int stamp, BasicFileAttributes attributes) {
+        long modified = attributes.lastModifiedTime().toMillis();
+        return stampSizes.get(stamp) == attributes.size() && stampModified.get(stamp) == modified
+                && modified + TIMESTAMP_GRANULARITY_MILLIS < capturedAt;
+    }
+
+    /**
+     * Возвращает количество вершин графа.
+     *
+     * @return количество вершин.
+     */
+    public int size() {
+        return vertexCount;
+    }
+
+    /**
+     * Возвращает количество рёбер графа.
+     *
+     * @return количество рёбер.
+     */
+    public int getEdgeCount() {
+        return edgeTargets.capacity();
+    }
+
+    /**
+     * Проверяет граф на наличие петель и циклов.
+     *
+     * @return {@code true}, если граф содержит петли или циклы, иначе {@code false}.
+     */
+    public boolean hasCycles() {
+        return hasCycles;
+    }
+
+    /**
+     * Возвращает номер вершины файла.
+     *
+     * @param file файл.
+     * @return номер вершины или {@code -1}, если файла нет в графе.
+     */
+    public int getId(File file) {
+        int pathId = findPath(file.getPath());
+        return pathId < vertexCount ? pathId : -1;
+    }
+
+    /**
+     * Восстанавливает файл по номеру вершины.
+     *
+     * @param id номер вершины.
+     * @return файл.
+     */
+    public File getFile(int id) {
+        int start = pathOffsets.get(id);
+        int end = pathOffsets.get(id + 1);
+        if (start < 0 || start > end || end > pathBytes.capacity()) {
+            throw corrupted();
+        }
+        byte[] bytes = new byte[end - start];
+        pathBytes.get(start, bytes);
+        return new File(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Возвращает количество зависимостей вершины.
+     *
+     * @param id номер вершины.
+     * @return количество зависимостей.
+     */
+    public int getDependencyCount(int id) {
+        return getEdgeOffset(id + 1) - getEdgeOffset(id);
+    }
+
+    /**
+     * Возвращает зависимость вершины.
+     *
+     * @param id    номер вершины.
+     * @param index индекс зависимости от {@code 0} до {@link #getDependencyCount(int)}.
+     * @return номер вершины-зависимости.
+     */
+    public int getDependency(int id, int index) {
+        return checkVertex(edgeTargets.get(getEdgeOffset(id) + index));
+    }
+
+    /**
+     * Возвращает файлы графа в топологическом порядке, сохранённом в снимке. Если граф содержит циклы, порядок
+     * внутри них произволен.
+     *
+     * @return список файлов, в котором каждая зависимость стоит раньше зависящих от неё файлов.
+     */
+    public List<File> toOrderedList() {
+        List<File> orderedList = new ArrayList<>(vertexCount);
+        for (int i = 0; i < vertexCount; ++i) {
+            orderedList.add(getFile(checkVertex(order.get(i))));
+        }
+        return orderedList;
+    }
+
+    /**
+     * Возвращает входные файлы и все их зависимости в топологическом порядке, сохранённом в снимке.
+     *
+     * @param entryFiles входные файлы.
+     * @return список файлов, в котором каждая зависимость стоит раньше зависящих от неё файлов.
+     * @throws NoSuchElementException если входного файла нет в графе.
+     */
+    public List<File> toOrderedList(Collection<File> entryFiles) throws NoSuchElementException {
+        BitSet reachable = new BitSet(vertexCount);
+        int[] stack = new int[vertexCount];
+        int stackSize = 0;
+        for (var entryFile : entryFiles) {
+            int id = getId(entryFile);
+            if (id < 0) {
+                throw new NoSuchElementException("There is no vertex " + entryFile + " in the graph.");
+            }
+            if (!reachable.get(id)) {
+                reachable.set(id);
+                stack[stackSize++] = id;
+            }
+        }
+        while (stackSize > 0) {
+            int vertex = stack[--stackSize];
+            for (int i = getEdgeOffset(vertex); i < getEdgeOffset(vertex + 1); ++i) {
+                int dependency = checkVertex(edgeTargets.get(i));
+                if (!reachable.get(dependency)) {
+                    reachable.set(dependency);
+                    stack[stackSize++] = dependency;
+                }
+            }
+        }
+
+        List<File> orderedList = new ArrayList<>(reachable.cardinality());
+        for (int i = 0; i < vertexCount; ++i) {
+            int vertex = checkVertex(order.get(i));
+            if (reachable.get(vertex)) {
+                orderedList.add(getFile(vertex));
+            }
+        }
+        return orderedList;
+    }
+
+    /**
+     * Восстанавливает граф зависимостей, например, чтобы найти компоненты сильной связности. Вершины
+     * интернируются в порядке их номеров в снимке, поэтому в пустом дереве путей номер пути совпадает с номером
+     * вершины снимка.
+     *
+     * @param paths пустое дерево путей, в котором интернируются вершины.
+     * @return граф зависимостей номеров путей с теми же рёбрами.
+     * @throws IllegalArgumentException если дерево путей не пустое.
+     */
+    public FrozenDependencyGraph<Integer> toDependencyGraph(PathTrie paths) throws IllegalArgumentException {
+        if (paths.size() != 0) {
+            throw new IllegalArgumentException("The path trie must be empty: its ids become the graph vertices.");
+        }
+        FrozenDependencyGraph.IdBuilder builder = new FrozenDependencyGraph.IdBuilder();
+        for (int i = 0; i < vertexCount; ++i) {
+            paths.intern(getFile(i).toPath());
+            int[] dependencies = new int[getDependencyCount(i)];
+            for (int j = 0; j < dependencies.length; ++j) {
+                dependencies[j] = getDependency(i, j);
+            }
+            builder.addDependencies(i, dependencies);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Возвращает смещение зависимостей вершины, проверяя, что оно не выходит за раздел рёбер.
+     *
+     * @param id номер вершины от {@code 0} до {@code N}.
+     * @return смещение зависимостей вершины.
+     * @throws IllegalStateException если смещение повреждено.
+     */
+    private int getEdgeOffset(int id) throws IllegalStateException {
+        int offset = edgeOffsets.get(id);
+        if (offset < 0 || offset > edgeTargets.capacity()) {
+            throw corrupted();
+        }
+        return offset;
+    }
+
+    /**
+     * Проверяет номер вершины, прочитанный из разделов снимка.
+     *
+     * @param id номер вершины.
+     * @return тот же номер вершины.
+     * @throws IllegalStateException если номера нет среди вершин графа.
+     */
+    private int checkVertex(int id) throws IllegalStateException {
+        if (id < 0 || id >= vertexCount) {
+            throw corrupted();
+        }
+        return id;
+    }
+
+    /**
+     * Создаёт исключение о повреждённом разделе снимка.
+     *
+     * @return исключение.
+     */
+    private static IllegalStateException corrupted() {
+        return new IllegalStateException("The graph snapshot is corrupted.");
+    }
+
+    /**
+     * Находит номер пути в хэш-таблице снимка.
+     *
+     * @param path путь.
+     * @return номер пути или {@code -1}, если пути нет в снимке.
+     */
+    private int findPath(String path) {
+        byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+        int mask = slots.capacity() - 1;
+        int slot = hash(path) & mask;
+        for (int probe = 0; probe <= mask && slots.get(slot) != 0; ++probe, slot = (slot + 1) & mask) {
+            int pathId = slots.get(slot) - 1;
+            if (pathId >= pathStamps.capacity()) {
+                throw corrupted();
+            }
+            if (equalsPath(pathId, bytes)) {
+                return pathId;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Сравнивает путь из снимка с байтами пути.
+     *
+     * @param pathId номер пути в снимке.
+     * @param bytes  путь в кодировке UTF-8.
+     * @return {@code true}, если пути совпадают, иначе {@code false}.
+     */
+    private boolean equalsPath(int pathId, byte[] bytes) {
+        int start = pathOffsets.get(pathId);
+        int end = pathOffsets.get(pathId + 1);
+        if (start < 0 || start > end || end > pathBytes.capacity()) {
+            throw corrupted();
+        }
+        if (end - start != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; ++i) {
+            if (pathBytes.get(start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Вычисляет хэш пути для хэш-таблицы снимка. Используется {@link String#hashCode()}, значение которого
+     * закреплено спецификацией и не меняется между запусками.
+     *
+     * @param path путь.
+     * @return хэш пути.
+     */
+    private static int hash(String path) {
+        int hash = path.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Обходит файлы корневой директории, следуя по символическим ссылкам так же, как
+     * {@link FileUtils#getAllFiles(File)}. Файлы индекса сканирования и недоступные директории пропускаются.
+     *
+     * @param rootDirectory корневая директория.
+     * @param visitor       обработчик файла.
+     * @throws IOException если не удалось обойти корневую директорию.
+     */
+    private static void walkFiles(File rootDirectory, StampVisitor visitor) throws IOException {
+        Files.walkFileTree(rootDirectory.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                        if (!attributes.isRegularFile() || ScanIndex.isIndexFile(rootDirectory, file.toFile())) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                        return visitor.visit(file, attributes) ? FileVisitResult.CONTINUE
+                                : FileVisitResult.TERMINATE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exception) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+    }
+
+    /**
+     * Возвращает представление части отображения в виде массива целых чисел.
+     *
+     * @param buffer отображение файла снимка.
+     * @param offset смещение раздела в байтах.
+     * @param count  количество чисел в разделе.
+     * @return представление раздела.
+     */
+    private static IntBuffer sliceInts(ByteBuffer buffer, int offset, int count) {
+        return buffer.slice(offset, count * Integer.BYTES).asIntBuffer();
+    }
+
+    /**
+     * Записывает начало массива целых чисел.
+     *
+     * @param output поток для записи.
+     * @param values массив.
+     * @param count  количество записываемых чисел.
+     * @throws IOException если возникает ошибка при записи.
+     */
+    private static void writeInts(DataOutputStream output, int[] values, int count) throws IOException {
+        for (int i = 0; i < count; ++i) {
+            output.writeInt(values[i]);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Класс, потоково заменяющий переводы строк {@code "\n"}, {@code "\r\n"} и {@code "\r"} на заданную строку, как
+ * это делает построчное чтение {@link java.io.BufferedReader#readLine()} с последующей записью
+ * {@link java.io.PrintWriter#println(String)}. Данные обрабатываются частями произвольного размера: перевод
+ * строки {@code "\r\n"}, разрезанный границей частей, распознаётся верно. Память ограничена одним выходным
+ * буфером, поэтому длина строк не важна.
+ * <p>
+ * Экземпляр не потокобезопасен и рассчитан на последовательную обработку файлов: после каждого файла нужно
+ * вызвать {@link #finishFile(WritableByteChannel)}.
+ */
+class LineSeparatorNormalizer {
+    /**
+     * Строка, на которую заменяются переводы строк.
+     */
+    private final byte[] lineSeparator;
+    /**
+     * Буфер для преобразованных байт.
+     */
+    private final ByteBuffer output;
+    /**
+     * Был ли последний обработанный байт файла символом {@code '\r'}.
+     */
+    private boolean afterCarriageReturn;
+
+    /**
+     * @param lineSeparator строка, на которую заменяются переводы строк, в байтах.
+     * @param bufferSize    размер выходного буфера; не меньше длины {@code lineSeparator}.
+     */
+    LineSeparatorNormalizer(byte[] lineSeparator, int bufferSize) {
+        this.lineSeparator = lineSeparator;
+        this.output = ByteBuffer.allocate(Math.max(bufferSize, lineSeparator.length));
+    }
+
+    /**
+     * Преобразует очередную часть файла и записывает результат в канал по мере заполнения выходного буфера.
+     *
+     * @param input   очередная часть файла; считывается полностью.
+     * @param channel канал, в который записывается результат.
+     * @throws IOException если возникает ошибка при записи.
+     */
+    void write(ByteBuffer input, WritableByteChannel channel) throws IOException {
+        while (input.hasRemaining()) {
+            byte value = input.get();
+            if (value == '\n' && afterCarriageReturn) {
+                afterCarriageReturn = false;
+                continue;
+            }
+            afterCarriageReturn = value == '\r';
+            if (FileUtils.isLineBreak(value)) {
+                if (output.remaining() < lineSeparator.length) {
+                    flush(channel);
+                }
+                output.put(lineSeparator);
+            } else {
+                if (!output.hasRemaining()) {
+                    flush(channel);
+                }
+                output.put(value);
+            }
+        }
+    }
+
+    /**
+     * Записывает в канал остаток преобразованного файла и готовит экземпляр к обработке следующего файла.
+     *
+     * @param channel канал, в который записывается результат.
+     * @throws IOException если возникает ошибка при записи.
+     */
+    void finishFile(WritableByteChannel channel) throws IOException {
+        flush(channel);
+        afterCarriageReturn = false;
+    }
+
+    /**
+     * Записывает содержимое выходного буфера в канал.
+     *
+     * @param channel канал, в который записывается результат.
+     * @throws IOException если возникает ошибка при записи.
+     */
+    private void flush(WritableByteChannel channel) throws IOException {
+        output.flip();
+        while (output.hasRemaining()) {
+            channel.write(output);
+        }
+        output.clear();
+    }
+}
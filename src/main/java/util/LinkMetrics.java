@@ -0,0 +1,352 @@
+package util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Сводка времени и счётчиков этапов компоновки за один запуск. Этапы измеряются таймерами
+ * ({@link #begin(LinkPhase)}), каждый из которых по завершении записывает событие JDK Flight Recorder
+ * {@code filecombiner.LinkPhase} и, если сводка собирается ({@link #start()}), добавляет свои значения в неё.
+ * Если не идёт ни запись JFR, ни сбор сводки, таймеры почти ничего не стоят.
+ * <p>
+ * Время этапа -- время между началом и концом таймера. Этапы, выполняющиеся одновременно (обход директорий и
+ * разбор файлов при параллельном сканировании, разбор файлов и построение графа), перекрываются по времени,
+ * поэтому такие этапы дополнительно измеряют каждый свой вызов ({@link PhaseTimer#startCall()}) и сообщают
+ * сумму этих измерений -- занятое время этапа. При разборе на нескольких потоках занятое время складывается
+ * по всем потокам и может превышать время этапа. Одновременно собирается одна сводка на процесс.
+ */
+public class LinkMetrics {
+    /**
+     * Сводка, которая собирается сейчас, или {@code null}.
+     */
+    private static volatile LinkMetrics current;
+
+    /**
+     * Суммарные значения этапов.
+     */
+    private final Map<LinkPhase, Totals> totals = new EnumMap<>(LinkPhase.class);
+    /**
+     * Время начала сбора сводки в наносекундах.
+     */
+    private final long startTime = System.nanoTime();
+    /**
+     * Длительность сбора сводки в наносекундах или -1, если сбор не завершён.
+     */
+    private long duration = -1;
+
+    /**
+     * Начинает собирать сводку. Сводка, которая собиралась до этого, больше не пополняется.
+     *
+     * @return новая сводка.
+     */
+    public static LinkMetrics start() {
+        LinkMetrics metrics = new LinkMetrics();
+        current = metrics;
+        return metrics;
+    }
+
+    /**
+     * Заканчивает собирать сводку.
+     */
+    public synchronized void stop() {
+        if (current == this) {
+            current = null;
+        }
+        if (duration < 0) {
+            duration = System.nanoTime() - startTime;
+        }
+    }
+
+    /**
+     * Запускает таймер этапа.
+     *
+     * @param phase этап.
+     * @return запущенный таймер, который нужно закрыть по окончании этапа.
+     */
+    public static PhaseTimer begin(LinkPhase phase) {
+        return new PhaseTimer(phase, current);
+    }
+
+    /**
+     * Добавляет значения завершённого этапа в сводку.
+     *
+     * @param phase        этап.
+     * @param duration     длительность этапа в наносекундах.
+     * @param calls        число измеренных вызовов этапа.
+     * @param busyTime     суммарная длительность измеренных вызовов в наносекундах.
+     * @param files        число обработанных файлов.
+     * @param edges        число зависимостей.
+     * @param bytesRead    число прочитанных байт.
+     * @param bytesWritten число записанных байт.
+     */
+    private synchronized void add(LinkPhase phase, long duration, long calls, long busyTime, long files, long edges,
+                                  long bytesRead, long bytesWritten) {
+        Totals phaseTotals = totals.computeIfAbsent(phase, key -> new Totals());
+        ++phaseTotals.count;
+        phaseTotals.duration += duration;
+        phaseTotals.calls += calls;
+        phaseTotals.busyTime += busyTime;
+        phaseTotals.files += files;
+        phaseTotals.edges += edges;
+        phaseTotals.bytesRead += bytesRead;
+        phaseTotals.bytesWritten += bytesWritten;
+    }
+
+    /**
+     * Возвращает сводку в формате JSON: общую длительность и для каждого выполнявшегося этапа число запусков,
+     * суммарную длительность, счётчики и пропускную способность (файлов и байт, прочитанных и записанных, в
+     * секунду). Для этапов, измерявших свои вызовы, добавляется занятое время ({@code busyMillis}), и
+     * пропускная способность считается по нему, а не по длительности, в которую входит время других этапов.
+     *
+     * @return сводка в формате JSON.
+     */
+    public synchronized String toJson() {
+        long totalDuration = duration < 0 ? System.nanoTime() - startTime : duration;
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"durationMillis\": ").append(formatMillis(totalDuration)).append(",\n  \"phases\": [");
+        String delimiter = "\n";
+        for (var entry : totals.entrySet()) {
+            Totals phaseTotals = entry.getValue();
+            double seconds = (phaseTotals.calls > 0 ? phaseTotals.busyTime : phaseTotals.duration) / 1e9;
+            json.append(delimiter)
+                    .append("    {\"phase\": \"").append(entry.getKey().getName()).append('"')
+                    .append(", \"count\": ").append(phaseTotals.count)
+                    .append(", \"durationMillis\": ").append(formatMillis(phaseTotals.duration));
+            if (phaseTotals.calls > 0) {
+                json.append(", \"busyMillis\": ").append(formatMillis(phaseTotals.busyTime));
+            }
+            json.append(", \"files\": ").append(phaseTotals.files)
+                    .append(", \"edges\": ").append(phaseTotals.edges)
+                    .append(", \"bytesRead\": ").append(phaseTotals.bytesRead)
+                    .append(", \"bytesWritten\": ").append(phaseTotals.bytesWritten)
+                    .append(", \"filesPerSecond\": ").append(formatRate(phaseTotals.files, seconds))
+                    .append(", \"bytesPerSecond\": ")
+                    .append(formatRate(phaseTotals.bytesRead + phaseTotals.bytesWritten, seconds))
+                    .append('}');
+            delimiter = ",\n";
+        }
+        json.append(totals.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+        return json.toString();
+    }
+
+    /**
+     * Записывает сводку в формате JSON ({@link #toJson()}) в файл.
+     *
+     * @param path путь к файлу.
+     * @throws IOException если не удалось записать файл.
+     */
+    public void writeJson(Path path) throws IOException {
+        Files.writeString(path, toJson(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Форматирует длительность в миллисекундах.
+     *
+     * @param nanos длительность в наносекундах.
+     * @return длительность в миллисекундах с тремя знаками после точки.
+     */
+    private static String formatMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    /**
+     * Форматирует пропускную способность.
+     *
+     * @param amount  количество обработанных единиц.
+     * @param seconds время обработки в секундах.
+     * @return число единиц в секунду, округлённое до целого, или 0, если время равно нулю.
+     */
+    private static String formatRate(long amount, double seconds) {
+        return Long.toString(seconds > 0 ? Math.round(amount / seconds) : 0);
+    }
+
+    /**
+     * Суммарные значения одного этапа.
+     */
+    private static class Totals {
+        /**
+         * Число запусков этапа.
+         */
+        long count;
+        /**
+         * Суммарная длительность в наносекундах.
+         */
+        long duration;
+        /**
+         * Число измеренных вызовов этапа.
+         */
+        long calls;
+        /**
+         * Суммарная длительность измеренных вызовов в наносекундах.
+         */
+        long busyTime;
+        /**
+         * Число обработанных файлов.
+         */
+        long files;
+        /**
+         * Число зависимостей.
+         */
+        long edges;
+        /**
+         * Число прочитанных байт.
+         */
+        long bytesRead;
+        /**
+         * Число записанных байт.
+         */
+        long bytesWritten;
+    }
+
+    /**
+     * Таймер одного запуска этапа. Счётчики можно пополнять из нескольких потоков одновременно.
+     */
+    public static final class PhaseTimer implements AutoCloseable {
+        /**
+         * Этап.
+         */
+        private final LinkPhase phase;
+        /**
+         * Сводка, в которую добавляются значения этапа, или {@code null}.
+         */
+        private final LinkMetrics metrics;
+        /**
+         * Событие JFR этапа.
+         */
+        private final PhaseEvent event = new PhaseEvent();
+        /**
+         * Время начала этапа в наносекундах.
+         */
+        private final long startTime;
+        /**
+         * Число измеренных вызовов этапа.
+         */
+        private final LongAdder calls = new LongAdder();
+        /**
+         * Суммарная длительность измеренных вызовов в наносекундах.
+         */
+        private final LongAdder busyTime = new LongAdder();
+        /**
+         * Число обработанных файлов.
+         */
+        private final LongAdder files = new LongAdder();
+        /**
+         * Число зависимостей.
+         */
+        private final LongAdder edges = new LongAdder();
+        /**
+         * Число прочитанных байт.
+         */
+        private final LongAdder bytesRead = new LongAdder();
+        /**
+         * Число записанных байт.
+         */
+        private final LongAdder bytesWritten = new LongAdder();
+
+        /**
+         * @param phase   этап.
+         * @param metrics сводка, в которую добавляются значения этапа, или {@code null}.
+         */
+        private PhaseTimer(LinkPhase phase, LinkMetrics metrics) {
+            this.phase = phase;
+            this.metrics = metrics;
+            event.begin();
+            startTime = System.nanoTime();
+        }
+
+        /**
+         * Проверяет, записываются ли значения этапа куда-либо. Счётчики, подсчёт которых требует
+         * дополнительной работы, стоит пополнять, только если этот метод возвращает {@code true}.
+         *
+         * @return {@code true}, если идёт запись JFR или сбор сводки, иначе {@code false}.
+         */
+        public boolean isEnabled() {
+            return metrics != null || event.isEnabled();
+        }
+
+        /**
+         * Начинает измерение одного вызова этапа, выполняющегося вперемешку с другими этапами. Вызов
+         * завершается методом {@link #endCall(long)}; вызовы можно измерять из нескольких потоков
+         * одновременно.
+         *
+         * @return время начала вызова в наносекундах.
+         */
+        public long startCall() {
+            return System.nanoTime();
+        }
+
+        /**
+         * Завершает измерение вызова этапа и добавляет его длительность к занятому времени этапа.
+         *
+         * @param callStartTime время начала вызова, которое вернул {@link #startCall()}.
+         */
+        public void endCall(long callStartTime) {
+            busyTime.add(System.nanoTime() - callStartTime);
+            calls.increment();
+        }
+
+        /**
+         * Увеличивает число обработанных файлов.
+         *
+         * @param count число файлов.
+         */
+        public void addFiles(long count) {
+            files.add(count);
+        }
+
+        /**
+         * Увеличивает число зависимостей.
+         *
+         * @param count число зависимостей.
+         */
+        public void addEdges(long count) {
+            edges.add(count);
+        }
+
+        /**
+         * Увеличивает число прочитанных байт.
+         *
+         * @param count число байт.
+         */
+        public void addBytesRead(long count) {
+            bytesRead.add(count);
+        }
+
+        /**
+         * Увеличивает число записанных байт.
+         *
+         * @param count число байт.
+         */
+        public void addBytesWritten(long count) {
+            bytesWritten.add(count);
+        }
+
+        /**
+         * Завершает этап: записывает событие JFR и добавляет значения в сводку.
+         */
+        @Override
+        public void close() {
+            long duration = System.nanoTime() - startTime;
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = phase.getName();
+                event.busyTime = busyTime.sum();
+                event.files = files.sum();
+                event.edges = edges.sum();
+                event.bytesRead = bytesRead.sum();
+                event.bytesWritten = bytesWritten.sum();
+                event.commit();
+            }
+            if (metrics != null) {
+                metrics.add(phase, duration, calls.sum(), busyTime.sum(), files.sum(), edges.sum(), bytesRead.sum(),
+                        bytesWritten.sum());
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package util;
+
+/**
+ * Этапы компоновки, время и счётчики которых собирает {@link LinkMetrics}.
+ */
+public enum LinkPhase {
+    /**
+     * Обход корневой директории.
+     */
+    WALK("walk"),
+    /**
+     * Поиск директив require в файлах.
+     */
+    PARSE("parse"),
+    /**
+     * Проверка зависимостей и построение графа.
+     */
+    GRAPH("graph"),
+    /**
+     * Поиск компонент сильной связности, проверка на циклы и топологическая сортировка. Все три выполняются за
+     * один проход алгоритма Тарьяна ({@link graph.GraphAnalysis}), поэтому измеряются вместе.
+     */
+    ANALYZE("analyze"),
+    /**
+     * Запись файлов в выходной файл.
+     */
+    COMBINE("combine");
+
+    /**
+     * Имя этапа в событиях и в сводке.
+     */
+    private final String name;
+
+    /**
+     * @param name имя этапа в событиях и в сводке.
+     */
+    LinkPhase(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Возвращает имя этапа.
+     *
+     * @return имя этапа в событиях и в сводке.
+     */
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,160 @@
+package util;
+
+import graph.FrozenDependencyGraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Состояние компоновки одной корневой директории, которое долгоживущий процесс хранит между командами: индекс
+ * сканирования, построенный граф зависимостей и кэш содержимого файлов. Перед каждой командой состояние
+ * проверяется ({@link #refresh(ExecutorService)}): дерево директорий обходится, и отметки файлов (размер и
+ * время изменения) сравниваются с отметками, снятыми при построении графа. Содержимое файлов при этом не
+ * читается. Зависимости вне корневой директории, которые обход не находит, отмечаются и проверяются
+ * отдельно. Если ни один файл не изменился, граф и результат его анализа используются повторно; иначе
+ * изменившиеся файлы удаляются из кэша, а граф строится заново по индексу, так что разбираются только они.
+ * <p>
+ * Экземпляр не потокобезопасен: команды одной корневой директории должны выполняться по очереди.
+ */
+public class LinkSession {
+    /**
+     * Корневая директория.
+     */
+    private final File rootDirectory;
+    /**
+     * Индекс сканирования корневой директории.
+     */
+    private final ScanIndex scanIndex;
+    /**
+     * Кэш содержимого файлов, общий для всех команд.
+     */
+    private final ContentCache contentCache = new ContentCache(BatchLinker.DEFAULT_CACHE_CAPACITY);
+    /**
+     * Отметки файлов, с которыми согласованы граф и кэш, или {@code null}, если они ещё не сняты.
+     */
+    private GraphSnapshot.FileStamps stamps;
+    /**
+     * Пути вершин графа вне корневой директории, отметки которых снимаются вместе с отметками её файлов.
+     */
+    private List<Path> outsidePaths = List.of();
+    /**
+     * Дерево путей, в котором интернированы вершины графа.
+     */
+    private PathTrie paths;
+    /**
+     * Граф зависимостей или {@code null}, если его нужно построить.
+     */
+    private FrozenDependencyGraph<Integer> dependencyGraph;
+
+    /**
+     * Создаёт состояние, загружая индекс из файла {@link ScanIndex#FILE_NAME} корневой директории.
+     *
+     * @param rootDirectory абсолютный путь к корневой директории.
+     */
+    public LinkSession(File rootDirectory) {
+        this.rootDirectory = rootDirectory;
+        this.scanIndex = ScanIndex.load(getIndexPath());
+    }
+
+    /**
+     * Проверяет, изменились ли файлы корневой директории с построения графа, и строит граф заново, если
+     * изменились или граф ещё не построен. Если построить граф не удалось, он будет построен при следующей
+     * проверке.
+     *
+     * @param executor пул потоков, на котором сканируется корневая директория.
+     * @return {@code true}, если граф был построен заново, иначе {@code false}.
+     * @throws InvalidPathException если в директиве require указан некорректный путь.
+     * @throws IOException          если возникает некоторая ошибка, связанная с файловым вводом и выводом.
+     */
+    public boolean refresh(ExecutorService executor) throws InvalidPathException, IOException {
+        GraphSnapshot.FileStamps currentStamps;
+        try (LinkMetrics.PhaseTimer walkTimer = LinkMetrics.begin(LinkPhase.WALK)) {
+            currentStamps = GraphSnapshot.FileStamps.capture(rootDirectory).withFiles(outsidePaths);
+            walkTimer.addFiles(currentStamps.size());
+        }
+        if (stamps != null) {
+            List<Path> changedPaths = stamps.getChangedPaths(currentStamps);
+            if (changedPaths.isEmpty() && dependencyGraph != null) {
+                return false;
+            }
+            for (var path : changedPaths) {
+                contentCache.invalidate(path.toFile());
+            }
+        }
+
+        stamps = currentStamps;
+        dependencyGraph = null;
+        paths = new PathTrie();
+        FrozenDependencyGraph<Integer> newGraph = DependencyUtils.getDependencies(rootDirectory, paths, scanIndex,
+                executor);
+        // Новые зависимости вне корневой директории отмечаются после построения графа: если такой файл
+        // изменился во время построения, отметка окажется свежее времени снятия отметок, и следующая проверка
+        // всё равно построит граф заново.
+        outsidePaths = DependencyUtils.getPathsOutside(rootDirectory, newGraph, paths);
+        stamps = stamps.withFiles(outsidePaths);
+        dependencyGraph = newGraph;
+        return true;
+    }
+
+    /**
+     * Возвращает граф зависимостей, построенный при последней проверке.
+     *
+     * @return граф зависимостей номеров путей.
+     * @throws IllegalStateException если граф не построен.
+     */
+    public FrozenDependencyGraph<Integer> getDependencyGraph() throws IllegalStateException {
+        if (dependencyGraph == null) {
+            throw new IllegalStateException("The dependency graph of " + rootDirectory + " is not built.");
+        }
+        return dependencyGraph;
+    }
+
+    /**
+     * Возвращает дерево путей, в котором интернированы вершины графа.
+     *
+     * @return дерево путей.
+     */
+    public PathTrie getPaths() {
+        return paths;
+    }
+
+    /**
+     * Возвращает отметки файлов, снятые перед построением графа.
+     *
+     * @return отметки файлов.
+     */
+    public GraphSnapshot.FileStamps getStamps() {
+        return stamps;
+    }
+
+    /**
+     * Возвращает кэш содержимого файлов.
+     *
+     * @return кэш содержимого файлов.
+     */
+    public ContentCache getContentCache() {
+        return contentCache;
+    }
+
+    /**
+     * Сохраняет индекс сканирования в файл {@link ScanIndex#FILE_NAME} корневой директории.
+     *
+     * @throws IOException если не удалось записать файл.
+     */
+    public void saveScanIndex() throws IOException {
+        scanIndex.save(getIndexPath());
+    }
+
+    /**
+     * Возвращает путь к файлу индекса в корневой директории.
+     *
+     * @return путь к файлу индекса.
+     */
+    private Path getIndexPath() {
+        return rootDirectory.toPath().resolve(ScanIndex.FILE_NAME);
+    }
+}
@@ -0,0 +1,14 @@
+package util;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Цель компоновки: входные файлы и выходной файл, в который компонуются они и все их зависимости.
+ *
+ * @param entryFiles входные файлы; если список пуст, компонуются все файлы корневой директории.
+ * @param outputPath путь к выходному файлу.
+ */
+public record LinkTarget(List<File> entryFiles, Path outputPath) {
+}
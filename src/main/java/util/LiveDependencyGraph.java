@@ -0,0 +1,215 @@
+package util;
+
+import graph.DependencyGraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Граф зависимостей файлов корневой директории, который обновляется по изменениям отдельных файлов вместо
+ * повторного сканирования всей директории ({@link #applyChanges(Collection)}). После каждого обновления граф
+ * совпадает с графом, который построил бы {@link DependencyUtils#getDependencies(File)}: вершины -- все файлы
+ * корневой директории и их зависимости вне её, рёбра -- директивы require. Зависимость, которая не является
+ * файлом корневой директории, удаляется из графа, как только от неё перестаёт зависеть последний файл.
+ * <p>
+ * Файлы, в которых зависимости указаны некорректно, остаются в графе без рёбер и запоминаются вместе с
+ * описанием ошибки ({@link #getErrors()}), пока их не исправят. Граф поддерживает топологический порядок
+ * инкрементально ({@link DependencyGraph#enableIncrementalOrder()}).
+ */
+public class LiveDependencyGraph {
+    /**
+     * Корневая директория.
+     */
+    private final File rootDirectory;
+    /**
+     * Путь к выходному файлу, который не компонуется, или {@code null}.
+     */
+    private final Path outputPath;
+    /**
+     * Разобранные файлы корневой директории.
+     */
+    private final Set<File> walkedFiles = new HashSet<>();
+    /**
+     * Файлы, в которых указаны некорректные зависимости, с описанием ошибки.
+     */
+    private final Map<File, String> brokenFiles = new HashMap<>();
+    /**
+     * Граф зависимостей.
+     */
+    private DependencyGraph<File> dependencyGraph = new DependencyGraph<>();
+
+    /**
+     * @param rootDirectory корневая директория.
+     * @param outputPath    путь к выходному файлу, который не нужно компоновать, или {@code null}.
+     */
+    public LiveDependencyGraph(File rootDirectory, Path outputPath) {
+        this.rootDirectory = rootDirectory;
+        this.outputPath = outputPath;
+    }
+
+    /**
+     * Строит граф заново, разбирая все файлы корневой директории.
+     */
+    public void rescan() {
+        walkedFiles.clear();
+        brokenFiles.clear();
+        dependencyGraph = new DependencyGraph<>();
+        for (var file : FileUtils.getAllFiles(rootDirectory)) {
+            if (!isIgnored(file)) {
+                parse(file);
+            }
+        }
+        dependencyGraph.enableIncrementalOrder();
+    }
+
+    /**
+     * Применяет изменения файлов к графу. Новая директория разбирается целиком, изменённый или новый файл --
+     * заново, удалённый файл или директория удаляются из графа вместе с зависимостями, от которых больше ничто
+     * не зависит, а зависевшие от них файлы разбираются заново. Если появились новые файлы, заново разбираются
+     * и некорректные файлы, так как их зависимость могла появиться.
+     *
+     * @param changedPaths пути изменившихся файлов и директорий.
+     * @return {@code true}, если граф или набор некорректных файлов мог измениться, иначе {@code false}.
+     */
+    public boolean applyChanges(Collection<Path> changedPaths) {
+        boolean changed = false;
+        Set<File> filesToParse = new LinkedHashSet<>();
+        boolean hasNewFiles = false;
+        for (var path : changedPaths) {
+            File file = path.toFile();
+            if (isIgnored(file)) {
+                continue;
+            }
+            changed = true;
+            if (Files.isDirectory(path)) {
+                for (var nestedFile : FileUtils.getAllFiles(file)) {
+                    hasNewFiles |= !walkedFiles.contains(nestedFile);
+                    filesToParse.add(nestedFile);
+                }
+            } else if (Files.isRegularFile(path)) {
+                hasNewFiles |= !walkedFiles.contains(file);
+                filesToParse.add(file);
+            } else {
+                filesToParse.addAll(removeFiles(path));
+            }
+        }
+
+        if (hasNewFiles) {
+            filesToParse.addAll(brokenFiles.keySet());
+        }
+        for (var file : filesToParse) {
+            if (!isIgnored(file) && file.isFile()) {
+                parse(file);
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Возвращает граф зависимостей. Граф принадлежит этому объекту и меняется при следующем обновлении.
+     *
+     * @return граф зависимостей.
+     */
+    public DependencyGraph<File> getDependencyGraph() {
+        return dependencyGraph;
+    }
+
+    /**
+     * Возвращает описания ошибок в некорректных файлах.
+     *
+     * @return новый список описаний ошибок; пустой, если некорректных файлов нет.
+     */
+    public List<String> getErrors() {
+        return new ArrayList<>(brokenFiles.values());
+    }
+
+    /**
+     * Проверяет, нужно ли игнорировать файл: выходной файл и файл индекса не компонуются, а изменения в них
+     * не должны вызывать перекомпоновку.
+     *
+     * @param file проверяемый файл.
+     * @return {@code true}, если файл нужно игнорировать, иначе {@code false}.
+     */
+    public boolean isIgnored(File file) {
+        return file.toPath().equals(outputPath) || ScanIndex.isIndexFile(rootDirectory, file);
+    }
+
+    /**
+     * Удаляет из графа файл или все файлы удалённой директории.
+     *
+     * @param path путь к удалённому файлу или директории.
+     * @return файлы, которые зависели от удалённых и должны быть разобраны заново.
+     */
+    private Set<File> removeFiles(Path path) {
+        List<File> removedFiles = new ArrayList<>();
+        for (var file : walkedFiles) {
+            if (file.toPath().startsWith(path)) {
+                removedFiles.add(file);
+            }
+        }
+
+        Set<File> dependents = new HashSet<>();
+        List<File> dependencies = new ArrayList<>();
+        for (var removedFile : removedFiles) {
+            dependents.addAll(dependencyGraph.getDependents(removedFile));
+            dependencies.addAll(dependencyGraph.getDependencies(removedFile));
+            dependencyGraph.remove(removedFile);
+            walkedFiles.remove(removedFile);
+            brokenFiles.remove(removedFile);
+        }
+        removeUnreferenced(dependencies);
+        dependents.removeAll(removedFiles);
+        return dependents;
+    }
+
+    /**
+     * Разбирает файл заново и обновляет его зависимости в графе. Если зависимости указаны некорректно, файл
+     * остаётся в графе без зависимостей и запоминается как некорректный. Зависимости, от которых после этого
+     * больше ничто не зависит, удаляются из графа.
+     *
+     * @param file файл, который нужно разобрать.
+     */
+    private void parse(File file) {
+        List<File> oldDependencies = dependencyGraph.contains(file)
+                ? dependencyGraph.getDependencies(file)
+                : List.of();
+        walkedFiles.add(file);
+        try {
+            dependencyGraph.setDependencies(file, DependencyUtils.findDependenciesInFile(rootDirectory, file));
+            brokenFiles.remove(file);
+        } catch (InvalidPathException invalidPathException) {
+            dependencyGraph.setDependencies(file, List.of());
+            brokenFiles.put(file, invalidPathException.getInput());
+        } catch (IOException ioException) {
+            dependencyGraph.setDependencies(file, List.of());
+            brokenFiles.put(file, ioException.getMessage());
+        }
+        removeUnreferenced(oldDependencies);
+    }
+
+    /**
+     * Удаляет из графа вершины, которые не являются файлами корневой директории и от которых ничто не зависит.
+     *
+     * @param dependencies вершины, от которых, возможно, перестали зависеть.
+     */
+    private void removeUnreferenced(Collection<File> dependencies) {
+        for (var dependency : dependencies) {
+            if (!walkedFiles.contains(dependency) && dependencyGraph.contains(dependency)
+                    && dependencyGraph.getDependents(dependency).isEmpty()) {
+                dependencyGraph.remove(dependency);
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Класс, параллельно обходящий директорию и все её поддиректории на {@link ForkJoinPool}. Каждая поддиректория
+ * читается отдельной задачей через {@link Files#newDirectoryStream(Path)}, для каждого элемента выполняется один
+ * запрос атрибутов, а каждый найденный файл сразу передаётся обработчику отдельной задачей, поэтому обработка
+ * файлов начинается до окончания обхода.
+ * <p>
+ * Вместе с файлом обработчику передаётся его порядковый ключ: номера элементов на пути от корня в порядке
+ * чтения директорий. Файлы, упорядоченные по {@link #ORDER}, идут в том же порядке, что и в
+ * {@link FileUtils#getAllFiles(File)} (обход в ширину).
+ */
+public class ParallelFileWalker {
+    /**
+     * Порядок ключей, совпадающий с порядком обхода в ширину: сначала по глубине, затем лексикографически.
+     */
+    public static final Comparator<int[]> ORDER = Comparator.<int[]>comparingInt(order -> order.length)
+            .thenComparing(Arrays::compare);
+
+    /**
+     * Обработчик найденных файлов. Вызывается одновременно из нескольких потоков.
+     */
+    @FunctionalInterface
+    public interface FileVisitor {
+        /**
+         * Обрабатывает найденный файл.
+         *
+         * @param order порядковый ключ файла.
+         * @param file  найденный файл.
+         */
+        void visit(int[] order, File file);
+    }
+
+    /**
+     * Обходит директорию и все её поддиректории и дожидается обработки всех найденных файлов. Если вместо
+     * директории передан файл, обрабатывается только он. Директории, которые не удалось прочитать, пропускаются,
+     * как и в {@link FileUtils#getAllFiles(File)}.
+     *
+     * @param file    директория, которую нужно обойти.
+     * @param pool    пул потоков, на котором выполняется обход и обработка файлов.
+     * @param visitor обработчик найденных файлов.
+     */
+    public static void walk(File file, ForkJoinPool pool, FileVisitor visitor) {
+        if (file.isFile()) {
+            visitor.visit(new int[0], file);
+            return;
+        }
+        pool.invoke(new DirectoryTask(file.toPath(), new int[0], visitor));
+    }
+
+    /**
+     * Возвращает все файлы в директории и всех её поддиректориях в том же порядке, что и
+     * {@link FileUtils#getAllFiles(File)}, обходя директории параллельно.
+     *
+     * @param file директория, которую нужно обойти.
+     * @param pool пул потоков, на котором выполняется обход.
+     * @return найденные файлы.
+     */
+    public static List<File> getAllFiles(File file, ForkJoinPool pool) {
+        List<OrderedFile> files = new ArrayList<>();
+        walk(file, pool, (order, foundFile) -> {
+            synchronized (files) {
+                files.add(new OrderedFile(order, foundFile));
+            }
+        });
+        files.sort(Comparator.comparing(OrderedFile::order, ORDER));
+        return files.stream().map(OrderedFile::file).toList();
+    }
+
+    /**
+     * Файл вместе с его порядковым ключом.
+     *
+     * @param order порядковый ключ файла.
+     * @param file  файл.
+     */
+    private record OrderedFile(int[] order, File file) {
+    }
+
+    /**
+     * Задача, читающая одну директорию.
+     */
+    @SuppressWarnings("serial")
+    private static class DirectoryTask extends RecursiveAction {
+        /**
+         * Директория, которую нужно прочитать.
+         */
+        private final Path directory;
+        /**
+         * Порядковый ключ директории.
+         */
+        private final int[] order;
+        /**
+         * Обработчик найденных файлов.
+         */
+        private final FileVisitor visitor;
+
+        /**
+         * @param directory директория, которую нужно прочитать.
+         * @param order     порядковый ключ директории.
+         * @param visitor   обработчик найденных файлов.
+         */
+        DirectoryTask(Path directory, int[] order, FileVisitor visitor) {
+            this.directory = directory;
+            this.order = order;
+            this.visitor = visitor;
+        }
+
+        @Override
+        protected void compute() {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                int index = 0;
+                for (Path entry : entries) {
+                    int[] entryOrder = Arrays.copyOf(order, order.length + 1);
+                    entryOrder[order.length] = index++;
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                    } catch (IOException ioException) {
+                        continue;
+                    }
+
+                    if (attributes.isRegularFile()) {
+                        File file = entry.toFile();
+                        tasks.add(ForkJoinTask.adapt(() -> visitor.visit(entryOrder, file)).fork());
+                    } else if (attributes.isDirectory()) {
+                        tasks.add(new DirectoryTask(entry, entryOrder, visitor).fork());
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException exception) {
+                // Нечитаемые директории пропускаются, как и в FileUtils.getAllFiles.
+            }
+
+            for (var task : tasks) {
+                task.join();
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package util;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Префиксное дерево путей, сопоставляющее каждому пути компактный номер. Путь разбивается на компоненты, и
+ * каждая компонента хранится один раз в узле дерева, поэтому общие директории тысяч файлов не повторяются в
+ * памяти, а сравнение и хэширование номера не зависят от длины пути. Номера выдаются подряд, начиная с
+ * {@code 0}, только самим интернированным путям, а не их префиксам-директориям, поэтому по номерам можно
+ * индексировать массивы размера {@link #size()}. Объекты {@link File} и {@link Path} создаются по номеру
+ * только тогда, когда они нужны, например, для чтения файла или сообщения об ошибке.
+ * <p>
+ * Пути интернируются в том виде, в котором переданы, без приведения к абсолютному виду, поэтому два пути
+ * получают один номер тогда же, когда равны соответствующие им объекты {@link File}. Методы можно вызывать из
+ * нескольких потоков.
+ */
+public class PathTrie {
+    /**
+     * Номер родителя узла верхнего уровня.
+     */
+    private static final int NO_PARENT = -1;
+    /**
+     * Номер пути узла, который не был интернирован сам, а является лишь префиксом других путей.
+     */
+    private static final int NO_PATH = -1;
+
+    /**
+     * Номер родительского узла для каждого узла.
+     */
+    private int[] parents = new int[64];
+    /**
+     * Компонента пути для каждого узла; у узла верхнего уровня абсолютного пути -- корень файловой системы.
+     */
+    private String[] names = new String[64];
+    /**
+     * Номер пути для каждого узла или {@link #NO_PATH}.
+     */
+    private int[] pathIds = new int[64];
+    /**
+     * Узел для каждого номера пути.
+     */
+    private int[] pathNodes = new int[64];
+    /**
+     * Дочерние узлы по компонентам пути для каждого узла; {@code null}, если дочерних узлов нет.
+     */
+    private final List<Map<String, Integer>> children = new ArrayList<>();
+    /**
+     * Узлы верхнего уровня по первым компонентам путей.
+     */
+    private final Map<String, Integer> topLevel = new HashMap<>();
+    /**
+     * Количество узлов.
+     */
+    private int nodeCount;
+    /**
+     * Количество интернированных путей.
+     */
+    private int size;
+
+    /**
+     * Возвращает номер пути, добавляя в дерево недостающие компоненты.
+     *
+     * @param path путь.
+     * @return номер пути.
+     */
+    public synchronized int intern(Path path) {
+        int node = NO_PARENT;
+        for (var name : getComponents(path)) {
+            Map<String, Integer> nodeChildren = node == NO_PARENT ? topLevel : getOrCreateChildren(node);
+            Integer child = nodeChildren.get(name);
+            if (child == null) {
+                child = addNode(node, name);
+                nodeChildren.put(name, child);
+            }
+            node = child;
+        }
+        if (pathIds[node] == NO_PATH) {
+            if (size == pathNodes.length) {
+                pathNodes = Arrays.copyOf(pathNodes, size * 2);
+            }
+            pathNodes[size] = node;
+            pathIds[node] = size++;
+        }
+        return pathIds[node];
+    }
+
+    /**
+     * Возвращает номер пути, не добавляя его в дерево.
+     *
+     * @param path путь.
+     * @return номер пути или {@code -1}, если путь не был интернирован.
+     */
+    public synchronized int find(Path path) {
+        int node = NO_PARENT;
+        for (var name : getComponents(path)) {
+            Map<String, Integer> nodeChildren = node == NO_PARENT ? topLevel : children.get(node);
+            Integer child = nodeChildren == null ? null : nodeChildren.get(name);
+            if (child == null) {
+                return -1;
+            }
+            node = child;
+        }
+        return pathIds[node];
+    }
+
+    /**
+     * Восстанавливает путь по номеру.
+     *
+     * @param id номер пути.
+     * @return путь.
+     */
+    public synchronized Path getPath(int id) {
+        int depth = 0;
+        for (int node = pathNodes[id]; node != NO_PARENT; node = parents[node]) {
+            ++depth;
+        }
+        String[] components = new String[depth];
+        for (int node = pathNodes[id]; node != NO_PARENT; node = parents[node]) {
+            components[--depth] = names[node];
+        }
+        return Path.of(components[0], Arrays.copyOfRange(components, 1, components.length));
+    }
+
+    /**
+     * Восстанавливает файл по номеру.
+     *
+     * @param id номер пути.
+     * @return файл.
+     */
+    public File getFile(int id) {
+        return getPath(id).toFile();
+    }
+
+    /**
+     * Восстанавливает файлы по номерам.
+     *
+     * @param ids номера путей.
+     * @return файлы в том же порядке.
+     */
+    public List<File> getFiles(Collection<Integer> ids) {
+        List<File> files = new ArrayList<>(ids.size());
+        for (var id : ids) {
+            files.add(getFile(id));
+        }
+        return files;
+    }
+
+    /**
+     * Возвращает количество интернированных путей без их префиксов, которые не интернировались сами.
+     *
+     * @return количество интернированных путей; номера путей меньше этого числа.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Разбивает путь на компоненты: корень файловой системы, если путь абсолютный, и имена элементов пути.
+     *
+     * @param path путь.
+     * @return компоненты пути.
+     */
+    private static List<String> getComponents(Path path) {
+        List<String> components = new ArrayList<>(path.getNameCount() + 1);
+        if (path.getRoot() != null) {
+            components.add(path.getRoot().toString());
+        }
+        for (var name : path) {
+            components.add(name.toString());
+        }
+        return components;
+    }
+
+    /**
+     * Возвращает таблицу дочерних узлов, создавая её при первом обращении.
+     *
+     * @param node номер узла.
+     * @return дочерние узлы.
+     */
+    private Map<String, Integer> getOrCreateChildren(int node) {
+        Map<String, Integer> nodeChildren = children.get(node);
+        if (nodeChildren == null) {
+            nodeChildren = new HashMap<>(4);
+            children.set(node, nodeChildren);
+        }
+        return nodeChildren;
+    }
+
+    /**
+     * Добавляет узел.
+     *
+     * @param parent номер родительского узла или {@link #NO_PARENT}.
+     * @param name   компонента пути.
+     * @return номер нового узла.
+     */
+    private int addNode(int parent, String name) {
+        if (nodeCount == parents.length) {
+            parents = Arrays.copyOf(parents, nodeCount * 2);
+            names = Arrays.copyOf(names, nodeCount * 2);
+            pathIds = Arrays.copyOf(pathIds, nodeCount * 2);
+        }
+        parents[nodeCount] = parent;
+        names[nodeCount] = name;
+        pathIds[nodeCount] = NO_PATH;
+        children.add(null);
+        return nodeCount++;
+    }
+}
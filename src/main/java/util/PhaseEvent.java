@@ -0,0 +1,61 @@
+package util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Событие JDK Flight Recorder, описывающее один выполненный этап компоновки. Длительность события -- время
+ * выполнения этапа, а для этапов, выполняющихся вперемешку с другими, поле {@link #busyTime} -- сумма
+ * длительностей отдельных вызовов этапа.
+ */
+@Name(PhaseEvent.NAME)
+@Label("Link Phase")
+@Category("FileCombiner")
+@Description("A phase of dependency scanning, analysis or combining")
+@StackTrace(false)
+class PhaseEvent extends Event {
+    /**
+     * Имя типа события.
+     */
+    static final String NAME = "filecombiner.LinkPhase";
+
+    /**
+     * Имя этапа ({@link LinkPhase#getName()}).
+     */
+    @Label("Phase")
+    String phase;
+    /**
+     * Суммарная длительность измеренных вызовов этапа в наносекундах или 0, если вызовы не измерялись.
+     */
+    @Label("Busy Time")
+    @Timespan
+    long busyTime;
+    /**
+     * Число обработанных файлов.
+     */
+    @Label("Files")
+    long files;
+    /**
+     * Число зависимостей.
+     */
+    @Label("Edges")
+    long edges;
+    /**
+     * Число прочитанных байт.
+     */
+    @Label("Bytes Read")
+    @DataAmount
+    long bytesRead;
+    /**
+     * Число записанных байт.
+     */
+    @Label("Bytes Written")
+    @DataAmount
+    long bytesWritten;
+}
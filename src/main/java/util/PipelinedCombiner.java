@@ -0,0 +1,276 @@
+package util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Класс, компонующий файлы последовательно, но с перекрытием чтения и записи. Результат побайтово совпадает с
+ * {@link FileUtils#transferFiles(List, Path, CombineOptions)}.
+ * <p>
+ * Отдельный поток читает файлы в порядке компоновки в буферы из пула и передаёт заполненные буферы через
+ * ограниченную очередь вызывающему потоку, который записывает их в выходной файл и возвращает в пул. Пока
+ * записывается один буфер, читаются следующие, в том числе из следующих файлов. Пул создаётся один раз на
+ * компоновку, поэтому вся используемая память ограничена заданным бюджетом. Если задана замена переводов
+ * строк, она выполняется при записи, и её выходной буфер тоже учитывается в бюджете.
+ */
+public class PipelinedCombiner {
+    /**
+     * Бюджет памяти на буферы по умолчанию в байтах.
+     */
+    public static final int DEFAULT_BUFFER_BUDGET = 1024 * 1024;
+    /**
+     * Наибольший размер одного буфера в байтах.
+     */
+    private static final int MAX_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Компонует файлы в выходной файл с бюджетом памяти {@link #DEFAULT_BUFFER_BUDGET}.
+     *
+     * @param filesToCombine файлы в порядке компоновки.
+     * @param outputPath     путь к выходному файлу.
+     * @param options        параметры компоновки.
+     * @throws IOException если возникает некоторая ошибка, связанная с файловым вводом и выводом. Например, если файл
+     *                     для чтения не существует/перестал существовать.
+     */
+    public static void combine(List<File> filesToCombine, Path outputPath, CombineOptions options)
+            throws IOException {
+        combine(filesToCombine, outputPath, options, DEFAULT_BUFFER_BUDGET);
+    }
+
+    /**
+     * Компонует файлы в выходной файл, читая следующие файлы, пока записываются предыдущие. Память под буферы
+     * не превышает {@code bufferBudget} байт: он делится не менее чем на два буфера чтения размером не больше
+     * {@link #MAX_BUFFER_SIZE} и, если задана замена переводов строк, ещё один выходной буфер того же размера.
+     *
+     * @param filesToCombine файлы в порядке компоновки.
+     * @param outputPath     путь к выходному файлу.
+     * @param options        параметры компоновки.
+     * @param bufferBudget   наибольший суммарный размер буферов в байтах.
+     * @throws IllegalArgumentException если бюджета не хватает на буферы: меньше двух байт или, при замене
+     *                                  переводов строк, меньше трёх длин перевода строки.
+     * @throws IOException              если возникает некоторая ошибка, связанная с файловым вводом и выводом.
+     *                                  Например, если файл для чтения не существует/перестал существовать.
+     */
+    public static void combine(List<File> filesToCombine, Path outputPath, CombineOptions options, int bufferBudget)
+            throws IllegalArgumentException, IOException {
+        int reservedBuffers = options.normalizesLineSeparators() ? 1 : 0;
+        int bufferSize = Math.min(MAX_BUFFER_SIZE, bufferBudget / (2 + reservedBuffers));
+        int minimalBufferSize = options.normalizesLineSeparators()
+                ? options.lineSeparator().getBytes(StandardCharsets.UTF_8).length
+                : 1;
+        if (bufferSize < Math.max(minimalBufferSize, 1)) {
+            throw new IllegalArgumentException("Buffer budget is too small: " + bufferBudget);
+        }
+        int bufferCount = bufferBudget / bufferSize - reservedBuffers;
+        BlockingQueue<ByteBuffer> freeBuffers = new ArrayBlockingQueue<>(bufferCount);
+        for (int i = 0; i < bufferCount; ++i) {
+            freeBuffers.add(ByteBuffer.allocateDirect(bufferSize));
+        }
+        BlockingQueue<Chunk> filledChunks = new ArrayBlockingQueue<>(bufferCount * 2);
+
+        byte[] separator = options.separator().getBytes(StandardCharsets.UTF_8);
+        byte[] lastLineTerminator = options.lastLineTerminator().getBytes(StandardCharsets.UTF_8);
+        LineSeparatorNormalizer normalizer = options.normalizesLineSeparators()
+                ? new LineSeparatorNormalizer(options.lineSeparator().getBytes(StandardCharsets.UTF_8), bufferSize)
+                : null;
+        Thread reader = new Thread(() -> read(filesToCombine, freeBuffers, filledChunks), "combine-reader");
+        reader.setDaemon(true);
+        try (LinkMetrics.PhaseTimer combineTimer = FileUtils.beginCombine(filesToCombine);
+             FileChannel output = FileChannel.open(outputPath, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            reader.start();
+            write(output, freeBuffers, filledChunks, normalizer, lastLineTerminator, separator);
+            combineTimer.addBytesWritten(output.size());
+        } finally {
+            reader.interrupt();
+        }
+    }
+
+    /**
+     * Записывает в выходной файл заполненные буферы из очереди, пока не получит признак конца компоновки.
+     *
+     * @param output             канал выходного файла.
+     * @param freeBuffers        пул свободных буферов.
+     * @param filledChunks       очередь заполненных буферов и признаков конца файлов.
+     * @param normalizer         объект, заменяющий переводы строк, или {@code null}, если они сохраняются.
+     * @param lastLineTerminator перевод строки, дописываемый к файлу без перевода строки в конце.
+     * @param separator          разделитель, записываемый после каждого файла.
+     * @throws IOException если возникает ошибка при чтении или записи.
+     */
+    private static void write(FileChannel output, BlockingQueue<ByteBuffer> freeBuffers,
+                              BlockingQueue<Chunk> filledChunks, LineSeparatorNormalizer normalizer,
+                              byte[] lastLineTerminator, byte[] separator)
+            throws IOException {
+        while (true) {
+            Chunk chunk = take(filledChunks);
+            if (chunk.error() != null) {
+                rethrow(chunk.error());
+            } else if (chunk.data() != null) {
+                ByteBuffer data = chunk.data();
+                if (normalizer != null) {
+                    normalizer.write(data, output);
+                }
+                while (data.hasRemaining()) {
+                    output.write(data);
+                }
+                data.clear();
+                freeBuffers.add(data);
+            } else if (chunk.endOfFile()) {
+                if (normalizer != null) {
+                    normalizer.finishFile(output);
+                }
+                if (chunk.needsTerminator()) {
+                    FileUtils.writeFully(output, lastLineTerminator);
+                }
+                FileUtils.writeFully(output, separator);
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Читает файлы по порядку в буферы из пула и передаёт их в очередь. После каждого файла в очередь
+     * передаётся признак конца файла, после всех файлов -- признак конца компоновки. Ошибка чтения передаётся в
+     * очередь и завершает чтение. Если поток прерван, чтение завершается без сообщений.
+     *
+     * @param filesToCombine файлы в порядке компоновки.
+     * @param freeBuffers    пул свободных буферов.
+     * @param filledChunks   очередь заполненных буферов и признаков конца файлов.
+     */
+    private static void read(List<File> filesToCombine, BlockingQueue<ByteBuffer> freeBuffers,
+                             BlockingQueue<Chunk> filledChunks) {
+        try {
+            try {
+                for (var fileObject : filesToCombine) {
+                    filledChunks.put(Chunk.endOfFile(readFile(fileObject, freeBuffers, filledChunks)));
+                }
+                filledChunks.put(Chunk.END);
+            } catch (InterruptedException interruptedException) {
+                throw interruptedException;
+            } catch (Throwable throwable) {
+                filledChunks.put(Chunk.failure(throwable));
+            }
+        } catch (InterruptedException interruptedException) {
+            // Запись была прервана, и результаты чтения больше не нужны.
+        }
+    }
+
+    /**
+     * Читает один файл в буферы из пула и передаёт их в очередь.
+     *
+     * @param fileObject   файл.
+     * @param freeBuffers  пул свободных буферов.
+     * @param filledChunks очередь заполненных буферов.
+     * @return {@code true}, если файл непустой и не заканчивается переводом строки, иначе {@code false}.
+     * @throws IOException          если возникает ошибка при чтении.
+     * @throws InterruptedException если ожидание свободного буфера было прервано.
+     */
+    private static boolean readFile(File fileObject, BlockingQueue<ByteBuffer> freeBuffers,
+                                    BlockingQueue<Chunk> filledChunks) throws IOException, InterruptedException {
+        boolean needsTerminator = false;
+        try (FileInputStream inputStream = new FileInputStream(fileObject);
+             FileChannel input = inputStream.getChannel()) {
+            ByteBuffer buffer = freeBuffers.take();
+            while (input.read(buffer) >= 0) {
+                if (buffer.hasRemaining()) {
+                    continue;
+                }
+                needsTerminator = !FileUtils.isLineBreak(buffer.get(buffer.position() - 1));
+                filledChunks.put(Chunk.data(buffer.flip()));
+                buffer = freeBuffers.take();
+            }
+
+            if (buffer.position() > 0) {
+                needsTerminator = !FileUtils.isLineBreak(buffer.get(buffer.position() - 1));
+                filledChunks.put(Chunk.data(buffer.flip()));
+            } else {
+                freeBuffers.add(buffer);
+            }
+        }
+        return needsTerminator;
+    }
+
+    /**
+     * Дожидается следующего элемента очереди.
+     *
+     * @param filledChunks очередь заполненных буферов.
+     * @return следующий элемент очереди.
+     * @throws InterruptedIOException если ожидание было прервано.
+     */
+    private static Chunk take(BlockingQueue<Chunk> filledChunks) throws InterruptedIOException {
+        try {
+            return filledChunks.take();
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Combining was interrupted.");
+        }
+    }
+
+    /**
+     * Пробрасывает исключение, возникшее в потоке чтения.
+     *
+     * @param throwable исключение.
+     * @throws IOException если это исключение ввода-вывода.
+     */
+    private static void rethrow(Throwable throwable) throws IOException {
+        if (throwable instanceof IOException ioException) {
+            throw ioException;
+        } else if (throwable instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        } else if (throwable instanceof Error error) {
+            throw error;
+        }
+        throw new IOException(throwable);
+    }
+
+    /**
+     * Элемент очереди между потоком чтения и потоком записи: заполненный буфер, признак конца файла, ошибка
+     * чтения или признак конца компоновки.
+     *
+     * @param data            заполненный буфер, готовый к записи.
+     * @param endOfFile       является ли элемент признаком конца файла.
+     * @param needsTerminator нужно ли дописать к файлу перевод строки.
+     * @param error           исключение, возникшее при чтении.
+     */
+    private record Chunk(ByteBuffer data, boolean endOfFile, boolean needsTerminator, Throwable error) {
+        /**
+         * Признак конца компоновки.
+         */
+        static final Chunk END = new Chunk(null, false, false, null);
+
+        /**
+         * @param data заполненный буфер.
+         * @return элемент с заполненным буфером.
+         */
+        static Chunk data(ByteBuffer data) {
+            return new Chunk(data, false, false, null);
+        }
+
+        /**
+         * @param needsTerminator нужно ли дописать к файлу перевод строки.
+         * @return признак конца файла.
+         */
+        static Chunk endOfFile(boolean needsTerminator) {
+            return new Chunk(null, true, needsTerminator, null);
+        }
+
+        /**
+         * @param error исключение, возникшее при чтении.
+         * @return элемент с ошибкой чтения.
+         */
+        static Chunk failure(Throwable error) {
+            return new Chunk(null, false, false, error);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package util;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Класс, компонующий файлы параллельно. Результат побайтово совпадает с
+ * {@link FileUtils#transferFiles(List, Path, CombineOptions)}.
+ * <p>
+ * Когда порядок файлов известен, известны и их размеры, а значит, и позиция каждого файла в выходном файле.
+ * Поэтому компоновка выполняется в два шага: сначала параллельно определяются размеры файлов и то, нужно ли
+ * дописывать к ним перевод строки, затем выходной файл расширяется до итогового размера, и каждый файл
+ * копируется на свою позицию отдельной задачей через {@link FileChannel#transferFrom}. Разделители
+ * записываются той же задачей позиционной записью. Все задачи пишут в один канал, так как позиционные
+ * операции {@link FileChannel} не меняют его общую позицию и могут выполняться одновременно.
+ */
+public class PositionalCombiner {
+    /**
+     * Компонует файлы в выходной файл, копируя их параллельно на переданном пуле потоков. Если какой-либо файл
+     * не удалось прочитать, выбрасывается исключение для первого такого файла в порядке списка.
+     *
+     * @param filesToCombine файлы в порядке компоновки.
+     * @param outputPath     путь к выходному файлу.
+     * @param options        параметры компоновки.
+     * @param executor       пул потоков, на котором копируются файлы.
+     * @throws IllegalArgumentException если в параметрах задана замена переводов строк: тогда позиции файлов
+     *                                  нельзя вычислить, не прочитав их целиком.
+     * @throws IOException              если возникает некоторая ошибка, связанная с файловым вводом и выводом.
+     *                                  Например, если файл для чтения не существует или изменился во время
+     *                                  компоновки.
+     */
+    public static void combine(List<File> filesToCombine, Path outputPath, CombineOptions options,
+                               ExecutorService executor) throws IllegalArgumentException, IOException {
+        if (options.normalizesLineSeparators()) {
+            throw new IllegalArgumentException("Positional combine copies files as is and cannot replace line "
+                    + "separators.");
+        }
+        byte[] separator = options.separator().getBytes(StandardCharsets.UTF_8);
+        byte[] lastLineTerminator = options.lastLineTerminator().getBytes(StandardCharsets.UTF_8);
+        try (LinkMetrics.PhaseTimer combineTimer = LinkMetrics.begin(LinkPhase.COMBINE)) {
+            combineTimer.addFiles(filesToCombine.size());
+            combine(filesToCombine, outputPath, separator, lastLineTerminator, executor, combineTimer);
+        }
+    }
+
+    /**
+     * Компонует файлы в выходной файл: параллельно измеряет файлы, вычисляет их позиции и параллельно копирует
+     * их на эти позиции.
+     *
+     * @param filesToCombine     файлы в порядке компоновки.
+     * @param outputPath         путь к выходному файлу.
+     * @param separator          разделитель, записываемый после каждого файла.
+     * @param lastLineTerminator перевод строки, дописываемый к файлу без перевода строки в конце.
+     * @param executor           пул потоков, на котором копируются файлы.
+     * @param combineTimer       таймер этапа компоновки.
+     * @throws IOException если возникает некоторая ошибка, связанная с файловым вводом и выводом.
+     */
+    private static void combine(List<File> filesToCombine, Path outputPath, byte[] separator,
+                                byte[] lastLineTerminator, ExecutorService executor,
+                                LinkMetrics.PhaseTimer combineTimer) throws IOException {
+        List<Future<Attempt<Source>>> measuredFiles = new ArrayList<>(filesToCombine.size());
+        for (var fileObject : filesToCombine) {
+            measuredFiles.add(submit(executor, () -> measure(fileObject, lastLineTerminator.length > 0)));
+        }
+        List<Source> sources = awaitAll(measuredFiles);
+
+        long[] offsets = new long[sources.size() + 1];
+        for (int i = 0; i < sources.size(); ++i) {
+            Source source = sources.get(i);
+            offsets[i + 1] = offsets[i] + source.size()
+                    + (source.needsTerminator() ? lastLineTerminator.length : 0) + separator.length;
+            combineTimer.addBytesRead(source.size());
+        }
+
+        try (FileChannel output = FileChannel.open(outputPath, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long totalSize = offsets[sources.size()];
+            if (totalSize > 0) {
+                writeFully(output, new byte[1], totalSize - 1);
+            }
+
+            List<Future<Attempt<Source>>> copiedFiles = new ArrayList<>(filesToCombine.size());
+            for (int i = 0; i < filesToCombine.size(); ++i) {
+                File fileObject = filesToCombine.get(i);
+                Source source = sources.get(i);
+                long offset = offsets[i];
+                copiedFiles.add(submit(executor, () -> {
+                    copy(fileObject, source, output, offset, lastLineTerminator, separator);
+                    return source;
+                }));
+            }
+            awaitAll(copiedFiles);
+            combineTimer.addBytesWritten(totalSize);
+        }
+    }
+
+    /**
+     * Определяет размер файла и то, нужно ли дописывать к нему перевод строки.
+     *
+     * @param fileObject         файл.
+     * @param checkLastLineBreak нужно ли проверять, заканчивается ли файл переводом строки.
+     * @return размер файла и признак недостающего перевода строки.
+     * @throws IOException если файл не удалось прочитать.
+     */
+    private static Source measure(File fileObject, boolean checkLastLineBreak) throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(fileObject);
+             FileChannel input = inputStream.getChannel()) {
+            long size = input.size();
+            boolean needsTerminator = checkLastLineBreak && size > 0
+                    && !FileUtils.isLineBreak(FileUtils.readByte(input, size - 1));
+            return new Source(size, needsTerminator);
+        }
+    }
+
+    /**
+     * Копирует файл на его позицию в выходном файле и дописывает после него перевод строки (если нужно) и
+     * разделитель.
+     *
+     * @param fileObject         файл.
+     * @param source             размер файла и признак недостающего перевода строки.
+     * @param output             канал выходного файла.
+     * @param offset             позиция файла в выходном файле.
+     * @param lastLineTerminator перевод строки, дописываемый к файлу.
+     * @param separator          разделитель.
+     * @throws IOException если файл не удалось прочитать или он стал короче, чем при определении размера.
+     */
+    private static void copy(File fileObject, Source source, FileChannel output, long offset,
+                             byte[] lastLineTerminator, byte[] separator) throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(fileObject);
+             FileChannel input = inputStream.getChannel()) {
+            long copied = 0;
+            while (copied < source.size()) {
+                long transferred = output.transferFrom(input, offset + copied, source.size() - copied);
+                if (transferred <= 0) {
+                    throw new EOFException("File " + fileObject.toPath() + " was truncated while combining.");
+                }
+                copied += transferred;
+            }
+        }
+
+        long position = offset + source.size();
+        if (source.needsTerminator()) {
+            writeFully(output, lastLineTerminator, position);
+            position += lastLineTerminator.length;
+        }
+        writeFully(output, separator, position);
+    }
+
+    /**
+     * Записывает все байты в канал, начиная с заданной позиции.
+     *
+     * @param output   канал, в который нужно записать байты.
+     * @param bytes    байты для записи.
+     * @param position позиция, с которой нужно записать байты.
+     * @throws IOException если возникает ошибка при записи.
+     */
+    private static void writeFully(FileChannel output, byte[] bytes, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            position += output.write(buffer, position);
+        }
+    }
+
+    /**
+     * Отправляет задачу в пул потоков, сохраняя исключение ввода-вывода в результате задачи, чтобы пул потоков
+     * не оборачивал его в свои типы.
+     *
+     * @param executor пул потоков.
+     * @param task     задача.
+     * @param <V>      тип результата задачи.
+     * @return результат задачи.
+     */
+    private static <V> Future<Attempt<V>> submit(ExecutorService executor, IOTask<V> task) {
+        return executor.submit(() -> {
+            try {
+                return new Attempt<>(task.call(), null);
+            } catch (IOException ioException) {
+                return new Attempt<>(null, ioException);
+            }
+        });
+    }
+
+    /**
+     * Дожидается результатов всех задач по порядку и пробрасывает исключение первой неудавшейся задачи. Если
+     * какая-либо задача не удалась, оставшиеся задачи отменяются.
+     *
+     * @param futures задачи.
+     * @param <V>     тип результата задач.
+     * @return результаты задач в том же порядке.
+     * @throws IOException если какая-либо задача не удалась.
+     */
+    private static <V> List<V> awaitAll(List<Future<Attempt<V>>> futures) throws IOException {
+        List<V> results = new ArrayList<>(futures.size());
+        boolean completed = false;
+        try {
+            for (var future : futures) {
+                results.add(DependencyUtils.awaitResult(future).valueOrThrow());
+            }
+            completed = true;
+        } finally {
+            if (!completed) {
+                for (var future : futures) {
+                    future.cancel(false);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Задача, которая может выбросить исключение ввода-вывода.
+     *
+     * @param <V> тип результата задачи.
+     */
+    @FunctionalInterface
+    private interface IOTask<V> {
+        /**
+         * Выполняет задачу.
+         *
+         * @return результат задачи.
+         * @throws IOException если возникает ошибка ввода-вывода.
+         */
+        V call() throws IOException;
+    }
+
+    /**
+     * Результат задачи: либо значение, либо исключение ввода-вывода.
+     *
+     * @param value значение.
+     * @param error исключение ввода-вывода.
+     * @param <V>   тип значения.
+     */
+    private record Attempt<V>(V value, IOException error) {
+        /**
+         * Возвращает значение или пробрасывает исключение.
+         *
+         * @return значение.
+         * @throws IOException если задача завершилась исключением.
+         */
+        V valueOrThrow() throws IOException {
+            if (error != null) {
+                throw error;
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Размер файла и признак того, что к нему нужно дописать перевод строки.
+     *
+     * @param size            размер файла в байтах.
+     * @param needsTerminator нужно ли дописать перевод строки.
+     */
+    private record Source(long size, boolean needsTerminator) {
+    }
+}
@@ -0,0 +1,248 @@
+package util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Класс, находящий директивы {@code require '...'} непосредственно в байтах файла в кодировке UTF-8.
+ * Результат совпадает с поиском регулярного выражения {@code require '(.*)'} по каждой строке файла: в каждом
+ * фрагменте строки (между символами перевода строки, включая {@code U+0085}, {@code U+2028} и {@code U+2029})
+ * берётся первое вхождение {@code require '} и путь до последней кавычки фрагмента.
+ * Файл читается в буфер из небольшого общего пула, а декодируется только найденный путь, поэтому на строки без
+ * директив память не выделяется. Пул ограничен {@link #MAX_DIRECT_BUFFERS} буферами вне кучи, и они
+ * переиспользуются между файлами и потоками; если все они заняты (например, когда файлы разбираются на
+ * виртуальных потоках, по одному на файл), файл читается в обычный буфер в куче, который освобождает сборщик
+ * мусора.
+ */
+public class RequireDirectiveScanner {
+    /**
+     * Байты начала директивы.
+     */
+    private static final byte[] DIRECTIVE = "require '".getBytes(StandardCharsets.UTF_8);
+    /**
+     * Размер буфера чтения.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * Наибольшее число буферов чтения вне кучи.
+     */
+    private static final int MAX_DIRECT_BUFFERS = 2 * Runtime.getRuntime().availableProcessors();
+    /**
+     * Свободные буферы чтения вне кучи.
+     */
+    private static final BlockingQueue<ByteBuffer> BUFFERS = new ArrayBlockingQueue<>(MAX_DIRECT_BUFFERS);
+    /**
+     * Число созданных буферов чтения вне кучи.
+     */
+    private static final AtomicInteger DIRECT_BUFFER_COUNT = new AtomicInteger();
+
+    /**
+     * Находит пути, указанные в директивах require в файле.
+     *
+     * @param file файл, в котором производится поиск директив.
+     * @return пути из директив в порядке их следования в файле.
+     * @throws IOException если возникает некоторая ошибка, связанная с файловым вводом и выводом. Например,
+     *                     если файл для чтения не существует/перестал существовать.
+     */
+    public static List<String> findRequiredPaths(File file) throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(file);
+             FileChannel channel = inputStream.getChannel()) {
+            return findRequiredPaths(channel);
+        }
+    }
+
+    /**
+     * Находит пути, указанные в директивах require, читая канал с его начала.
+     *
+     * @param channel канал файла.
+     * @return пути из директив в порядке их следования в файле.
+     * @throws IOException если возникает ошибка при чтении канала.
+     */
+    public static List<String> findRequiredPaths(FileChannel channel) throws IOException {
+        ByteBuffer buffer = acquireBuffer();
+        try {
+            return findRequiredPaths(channel, buffer);
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    /**
+     * Берёт буфер чтения из пула. Если свободных буферов нет, создаётся буфер вне кучи, пока их меньше
+     * {@link #MAX_DIRECT_BUFFERS}, и буфер в куче после этого.
+     *
+     * @return пустой буфер размера {@link #BUFFER_SIZE}.
+     */
+    private static ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = BUFFERS.poll();
+        if (buffer != null) {
+            return buffer.clear();
+        }
+        if (DIRECT_BUFFER_COUNT.incrementAndGet() <= MAX_DIRECT_BUFFERS) {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        DIRECT_BUFFER_COUNT.decrementAndGet();
+        return ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    /**
+     * Возвращает буфер чтения в пул. Буферы в куче не сохраняются.
+     *
+     * @param buffer буфер, полученный из {@link #acquireBuffer()}.
+     */
+    private static void releaseBuffer(ByteBuffer buffer) {
+        if (buffer.isDirect()) {
+            BUFFERS.offer(buffer);
+        }
+    }
+
+    /**
+     * Находит пути, указанные в директивах require, читая канал с его начала в переданный буфер.
+     *
+     * @param channel канал файла.
+     * @param buffer  пустой буфер чтения.
+     * @return пути из директив в порядке их следования в файле.
+     * @throws IOException если возникает ошибка при чтении канала.
+     */
+    private static List<String> findRequiredPaths(FileChannel channel, ByteBuffer buffer) throws IOException {
+        List<String> result = new ArrayList<>(0);
+        boolean endOfFile = channel.read(buffer, 0) < 0;
+        buffer.flip();
+
+        long base = 0;
+        long directiveStart = -1;
+        long lastQuote = -1;
+        int index = 0;
+        while (true) {
+            int limit = buffer.limit();
+            while (index < limit) {
+                byte current = buffer.get(index);
+                int separatorLength = 0;
+                if (current == '\n' || current == '\r') {
+                    separatorLength = 1;
+                } else if (current == '\'') {
+                    lastQuote = base + index;
+                } else if (current == 'r' && directiveStart < 0) {
+                    if (index + DIRECTIVE.length > limit && !endOfFile) {
+                        break;
+                    }
+                    if (startsWithDirective(buffer, index, limit)) {
+                        directiveStart = base + index;
+                        index += DIRECTIVE.length;
+                        continue;
+                    }
+                } else if (current == (byte) 0xC2 || current == (byte) 0xE2) {
+                    if (index + 3 > limit && !endOfFile) {
+                        break;
+                    }
+                    separatorLength = unicodeSeparatorLength(buffer, index, limit);
+                }
+
+                if (separatorLength > 0) {
+                    addPath(result, channel, buffer, base, directiveStart, lastQuote);
+                    directiveStart = -1;
+                    lastQuote = -1;
+                    index += separatorLength;
+                } else {
+                    ++index;
+                }
+            }
+
+            if (endOfFile && index >= limit) {
+                addPath(result, channel, buffer, base, directiveStart, lastQuote);
+                return result;
+            }
+
+            buffer.position(index);
+            buffer.compact();
+            base += index;
+            index = 0;
+            endOfFile = channel.read(buffer, base + buffer.position()) < 0;
+            buffer.flip();
+        }
+    }
+
+    /**
+     * Проверяет, начинается ли с данной позиции буфера директива require.
+     *
+     * @param buffer буфер.
+     * @param index  позиция в буфере.
+     * @param limit  граница данных в буфере.
+     * @return {@code true}, если с позиции начинается директива, иначе {@code false}.
+     */
+    private static boolean startsWithDirective(ByteBuffer buffer, int index, int limit) {
+        if (index + DIRECTIVE.length > limit) {
+            return false;
+        }
+        for (int i = 1; i < DIRECTIVE.length; ++i) {
+            if (buffer.get(index + i) != DIRECTIVE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Возвращает длину в байтах символа-разделителя строк {@code U+0085}, {@code U+2028} или {@code U+2029},
+     * начинающегося с данной позиции буфера.
+     *
+     * @param buffer буфер.
+     * @param index  позиция в буфере.
+     * @param limit  граница данных в буфере.
+     * @return длина разделителя в байтах или {@code 0}, если с позиции начинается другой символ.
+     */
+    private static int unicodeSeparatorLength(ByteBuffer buffer, int index, int limit) {
+        if (buffer.get(index) == (byte) 0xC2) {
+            return index + 1 < limit && buffer.get(index + 1) == (byte) 0x85 ? 2 : 0;
+        }
+        if (index + 2 < limit && buffer.get(index + 1) == (byte) 0x80) {
+            byte last = buffer.get(index + 2);
+            return last == (byte) 0xA8 || last == (byte) 0xA9 ? 3 : 0;
+        }
+        return 0;
+    }
+
+    /**
+     * Добавляет в результат путь из директивы, найденной в только что закончившемся фрагменте строки.
+     *
+     * @param result         список найденных путей.
+     * @param channel        канал файла, из которого дочитывается путь, если он уже вытеснен из буфера.
+     * @param buffer         буфер.
+     * @param base           смещение начала буфера в файле.
+     * @param directiveStart смещение директивы в файле или {@code -1}, если директивы во фрагменте нет.
+     * @param lastQuote      смещение последней кавычки фрагмента в файле или {@code -1}.
+     * @throws IOException если возникает ошибка при чтении канала.
+     */
+    private static void addPath(List<String> result, FileChannel channel, ByteBuffer buffer, long base,
+                                long directiveStart, long lastQuote) throws IOException {
+        if (directiveStart < 0) {
+            return;
+        }
+        long pathStart = directiveStart + DIRECTIVE.length;
+        if (lastQuote < pathStart) {
+            return;
+        }
+
+        byte[] path = new byte[Math.toIntExact(lastQuote - pathStart)];
+        if (pathStart >= base) {
+            buffer.get((int) (pathStart - base), path);
+        } else {
+            ByteBuffer target = ByteBuffer.wrap(path);
+            while (target.hasRemaining()) {
+                if (channel.read(target, pathStart + target.position()) < 0) {
+                    throw new IOException("File was truncated while scanning for dependencies.");
+                }
+            }
+        }
+        result.add(new String(path, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,238 @@
+package util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс разобранных файлов, позволяющий при повторном построении графа зависимостей разбирать только
+ * изменившиеся файлы. Для каждого файла (путь относительно корневой директории) хранятся его размер, время
+ * изменения и пути из директив require. Индекс сохраняется в компактном бинарном файле {@link #FILE_NAME}
+ * в корневой директории.
+ */
+public class ScanIndex {
+    /**
+     * Имя файла индекса в корневой директории.
+     */
+    public static final String FILE_NAME = ".filecombiner-index";
+    /**
+     * Сигнатура файла индекса.
+     */
+    private static final int MAGIC = 0x46434958;
+    /**
+     * Версия формата файла индекса.
+     */
+    private static final int VERSION = 1;
+    /**
+     * Точность времени изменения файла в файловых системах, в миллисекундах. Если файл был изменён менее чем за
+     * это время до разбора, его время изменения может совпасть со временем следующего изменения, поэтому такая
+     * запись считается ненадёжной и файл разбирается заново.
+     */
+    private static final long TIMESTAMP_GRANULARITY_MILLIS = 2000;
+    /**
+     * Наименьший размер записи в файле индекса: длина ключа, размер, время изменения, время разбора и число
+     * путей.
+     */
+    private static final int MIN_ENTRY_SIZE = Integer.BYTES + 3 * Long.BYTES + Integer.BYTES;
+
+    /**
+     * Запись индекса.
+     *
+     * @param size          размер файла в байтах.
+     * @param modified      время изменения файла в миллисекундах.
+     * @param parsedAt      время начала разбора файла в миллисекундах.
+     * @param requiredPaths пути из директив require.
+     */
+    private record Entry(long size, long modified, long parsedAt, List<String> requiredPaths) {
+        /**
+         * Проверяет, соответствует ли запись текущему состоянию файла.
+         *
+         * @param size     текущий размер файла.
+         * @param modified текущее время изменения файла.
+         * @return {@code true}, если файл можно не разбирать заново, иначе {@code false}.
+         */
+        boolean isFresh(long size, long modified) {
+            return this.size == size && this.modified == modified
+                    && modified + TIMESTAMP_GRANULARITY_MILLIS < parsedAt;
+        }
+    }
+
+    /**
+     * Записи индекса по путям файлов относительно корневой директории.
+     */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Проверяет, является ли файл служебным файлом индекса, который не нужно компоновать.
+     *
+     * @param rootDirectory корневая директория.
+     * @param file          проверяемый файл.
+     * @return {@code true}, если файл -- файл индекса или его временная копия, иначе {@code false}.
+     */
+    public static boolean isIndexFile(File rootDirectory, File file) {
+        return rootDirectory.equals(file.getParentFile()) && file.getName().startsWith(FILE_NAME);
+    }
+
+    /**
+     * Возвращает пути из директив require файла, если файл не изменился с момента его разбора.
+     *
+     * @param key      путь к файлу относительно корневой директории.
+     * @param size     текущий размер файла.
+     * @param modified текущее время изменения файла в миллисекундах.
+     * @return пути из директив require или {@code null}, если файл нужно разобрать заново.
+     */
+    public List<String> getRequiredPaths(String key, long size, long modified) {
+        Entry entry = entries.get(key);
+        return entry != null && entry.isFresh(size, modified) ? entry.requiredPaths() : null;
+    }
+
+    /**
+     * Сохраняет в индекс результат разбора файла.
+     *
+     * @param key           путь к файлу относительно корневой директории.
+     * @param size          размер файла.
+     * @param modified      время изменения файла в миллисекундах.
+     * @param parsedAt      время начала разбора файла в миллисекундах.
+     * @param requiredPaths пути из директив require.
+     */
+    public void put(String key, long size, long modified, long parsedAt, List<String> requiredPaths) {
+        entries.put(key, new Entry(size, modified, parsedAt, List.copyOf(requiredPaths)));
+    }
+
+    /**
+     * Удаляет из индекса записи файлов, которых больше нет. Ключи, переданные не множеством, копируются в
+     * {@link HashSet}, чтобы проверка каждой записи не была линейной.
+     *
+     * @param keys пути к существующим файлам относительно корневой директории.
+     */
+    public void retainAll(Collection<String> keys) {
+        entries.keySet().retainAll(keys instanceof Set<String> set ? set : new HashSet<>(keys));
+    }
+
+    /**
+     * Возвращает количество записей в индексе.
+     *
+     * @return количество записей.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Загружает индекс из файла. Если файла нет или он повреждён, возвращается пустой индекс. Файл читается в
+     * память целиком, и каждая длина, записанная в нём, сверяется с числом оставшихся байтов до выделения
+     * памяти под массив или список.
+     *
+     * @param indexPath путь к файлу индекса.
+     * @return загруженный индекс.
+     */
+    public static ScanIndex load(Path indexPath) {
+        ScanIndex scanIndex = new ScanIndex();
+        try {
+            if (Files.size(indexPath) > Integer.MAX_VALUE - 8) {
+                return scanIndex;
+            }
+            ByteBuffer input = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+            if (input.remaining() < 2 * Integer.BYTES || input.getInt() != MAGIC || input.getInt() != VERSION) {
+                return scanIndex;
+            }
+            int count = readLength(input, MIN_ENTRY_SIZE);
+            for (int i = 0; i < count; ++i) {
+                String key = readString(input);
+                long size = input.getLong();
+                long modified = input.getLong();
+                long parsedAt = input.getLong();
+                int requiredCount = readLength(input, Integer.BYTES);
+                List<String> requiredPaths = new ArrayList<>(requiredCount);
+                for (int j = 0; j < requiredCount; ++j) {
+                    requiredPaths.add(readString(input));
+                }
+                scanIndex.entries.put(key, new Entry(size, modified, parsedAt, requiredPaths));
+            }
+        } catch (IOException | RuntimeException exception) {
+            return new ScanIndex();
+        }
+
+        return scanIndex;
+    }
+
+    /**
+     * Сохраняет индекс в файл. Индекс сначала записывается во временный файл, который затем заменяет прежний,
+     * поэтому прерванная запись не повреждает сохранённый индекс.
+     *
+     * @param indexPath путь к файлу индекса.
+     * @throws IOException если возникает некоторая ошибка, связанная с файловым вводом и выводом.
+     */
+    public void save(Path indexPath) throws IOException {
+        Path temporaryPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporaryPath)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            var snapshot = List.copyOf(entries.entrySet());
+            output.writeInt(snapshot.size());
+            for (var entry : snapshot) {
+                writeString(output, entry.getKey());
+                Entry value = entry.getValue();
+                output.writeLong(value.size());
+                output.writeLong(value.modified());
+                output.writeLong(value.parsedAt());
+                output.writeInt(value.requiredPaths().size());
+                for (var requiredPath : value.requiredPaths()) {
+                    writeString(output, requiredPath);
+                }
+            }
+        }
+        Files.move(temporaryPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Считывает длину массива или списка, проверяя, что его элементы помещаются в оставшуюся часть файла.
+     *
+     * @param input       содержимое файла индекса.
+     * @param elementSize наименьший размер одного элемента в байтах.
+     * @return длина.
+     * @throws IOException если длина отрицательна или элементы не помещаются в файл.
+     */
+    private static int readLength(ByteBuffer input, int elementSize) throws IOException {
+        int length = input.getInt();
+        if (length < 0 || (long) length * elementSize > input.remaining()) {
+            throw new IOException("The scan index is corrupted.");
+        }
+        return length;
+    }
+
+    /**
+     * Считывает строку в кодировке UTF-8, перед которой записана её длина в байтах.
+     *
+     * @param input содержимое файла индекса.
+     * @return считанная строка.
+     * @throws IOException если длина строки некорректна.
+     */
+    private static String readString(ByteBuffer input) throws IOException {
+        byte[] bytes = new byte[readLength(input, 1)];
+        input.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Записывает строку в кодировке UTF-8, предваряя её длиной в байтах.
+     *
+     * @param output поток для записи.
+     * @param value  строка.
+     * @throws IOException если возникает ошибка при записи.
+     */
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+}
@@ -0,0 +1,172 @@
+package tests;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.BatchLinker;
+import util.CombineOptions;
+import util.DaemonServer;
+import util.LinkSession;
+import util.LinkTarget;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DaemonServerTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Поток, в котором работает сервер.
+     */
+    private Thread serverThread;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (serverThread != null) {
+            serverThread.interrupt();
+            serverThread.join(10_000);
+        }
+    }
+
+    @Test
+    void forward_ShouldSendRequestAndReturnOutputAndExitCode() throws Exception {
+        // Arrange
+        List<String> received = new ArrayList<>();
+        Path socketPath = start(10_000, (workingDirectory, arguments, out) -> {
+            received.add(workingDirectory);
+            received.addAll(arguments);
+            out.println("first");
+            out.println("second");
+            return 3;
+        });
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        int exitCode = DaemonServer.forward(socketPath, Paths.get("/work"), List.of("--root", "a\nb"),
+                new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        // Assert
+        assertEquals(3, exitCode);
+        assertEquals(List.of("/work", "--root", "a b"), received);
+        assertEquals("first" + System.lineSeparator() + "second" + System.lineSeparator(),
+                output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void handle_WhenRequestIsIncomplete_ShouldCloseConnectionAfterDeadline() throws Exception {
+        // Arrange
+        List<String> received = new ArrayList<>();
+        Path socketPath = start(200, (workingDirectory, arguments, out) -> {
+            received.add(workingDirectory);
+            return 0;
+        });
+
+        // Act
+        int read;
+        long startTime = System.nanoTime();
+        try (SocketChannel client = SocketChannel.open(UnixDomainSocketAddress.of(socketPath))) {
+            client.write(ByteBuffer.wrap("/work\n--root\n".getBytes(StandardCharsets.UTF_8)));
+            read = client.read(ByteBuffer.allocate(64));
+        }
+        long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+        int nextExitCode = DaemonServer.forward(socketPath, Paths.get("/next"), List.of(),
+                new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8));
+
+        // Assert
+        assertEquals(-1, read);
+        assertTrue(elapsedMillis >= 150, "closed after " + elapsedMillis + " ms");
+        assertEquals(0, nextExitCode);
+        assertEquals(List.of("/next"), received);
+    }
+
+    @Test
+    void forward_WhenServerLinksInSession_ShouldWriteOutputAndReuseGraph() throws Exception {
+        // Arrange
+        Path root = Files.createDirectory(directory.resolve("root"));
+        Files.writeString(root.resolve("A"), "require 'B'\na\n");
+        Files.writeString(root.resolve("B"), "b\n");
+        var modified = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+        Files.setLastModifiedTime(root.resolve("A"), modified);
+        Files.setLastModifiedTime(root.resolve("B"), modified);
+        Path outputPath = directory.resolve("result");
+        LinkSession session = new LinkSession(root.toFile());
+        List<Boolean> rebuilt = new ArrayList<>();
+        Path socketPath = start(10_000, (workingDirectory, arguments, out) -> {
+            try {
+                rebuilt.add(session.refresh(ForkJoinPool.commonPool()));
+                var target = new LinkTarget(List.of(Path.of(workingDirectory, arguments.get(0)).toFile()),
+                        outputPath);
+                var result = new BatchLinker(CombineOptions.compatible(), session.getContentCache())
+                        .link(session.getDependencyGraph(), session.getPaths(), target);
+                out.println("Files have been combined into " + result.target().outputPath());
+                return 0;
+            } catch (IOException ioException) {
+                out.println(ioException.getMessage());
+                return 1;
+            }
+        });
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(output, true, StandardCharsets.UTF_8);
+
+        // Act
+        int firstExitCode = DaemonServer.forward(socketPath, root, List.of("A"), out);
+        int secondExitCode = DaemonServer.forward(socketPath, root, List.of("A"), out);
+        int missingExitCode = DaemonServer.forward(socketPath, root, List.of("missing"), out);
+
+        // Assert
+        assertEquals(0, firstExitCode);
+        assertEquals(0, secondExitCode);
+        assertEquals(1, missingExitCode);
+        assertEquals(List.of(true, false, false), rebuilt);
+        assertEquals("b\n\nrequire 'B'\na\n\n", Files.readString(outputPath));
+        assertTrue(output.toString(StandardCharsets.UTF_8).contains("Files have been combined into " + outputPath));
+    }
+
+    /**
+     * Запускает сервер в отдельном потоке и ждёт, пока он начнёт принимать соединения. Пустые запросы, которыми
+     * проверяется готовность сервера, до обработчика не доходят.
+     *
+     * @param readTimeoutMillis время, за которое клиент должен передать запрос.
+     * @param handler           обработчик запросов.
+     * @return путь к сокету сервера.
+     */
+    private Path start(long readTimeoutMillis, DaemonServer.RequestHandler handler) throws InterruptedException {
+        Path socketPath = directory.resolve("daemon.sock");
+        DaemonServer server = new DaemonServer(socketPath, readTimeoutMillis,
+                (workingDirectory, arguments, out) -> workingDirectory == null
+                        ? 0
+                        : handler.handle(workingDirectory, arguments, out));
+        serverThread = new Thread(() -> {
+            try {
+                server.run();
+            } catch (IOException ioException) {
+                // Сервер остановлен прерыванием потока.
+            }
+        });
+        serverThread.start();
+        for (int i = 0; i < 500; ++i) {
+            try (SocketChannel probe = SocketChannel.open(UnixDomainSocketAddress.of(socketPath))) {
+                return socketPath;
+            } catch (IOException ioException) {
+                // Сокет ещё не создан или сервер ещё не слушает его.
+                Thread.sleep(10);
+            }
+        }
+        return socketPath;
+    }
+}
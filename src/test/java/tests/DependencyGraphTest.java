@@ -1,19 +1,27 @@
 package tests;
 
 import graph.DependencyGraph;
+import graph.FrozenDependencyGraph;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static asserts.Assertions.*;
 
 class DependencyGraphTest {
+    private static final int DEEP_CHAIN_LENGTH = 100_000;
 
     @ParameterizedTest
     @MethodSource("dependenciesWithCyclesProvider")
@@ -101,6 +109,512 @@ class DependencyGraphTest {
         assertThatList(result).ContainsSameComponentsWith(expected);
     }
 
+    @Test
+    void findStronglyConnectedComponents_WhenChainIsDeep_ShouldNotOverflowStack() {
+        // Arrange
+        DependencyGraph<Integer> graph = createDeepChain();
+
+        // Act
+        var result = graph.findStronglyConnectedComponents();
+
+        // Assert
+        assertEquals(DEEP_CHAIN_LENGTH + 1, result.size());
+        assertFalse(graph.hasCycles());
+    }
+
+    @Test
+    void hasCycles_WhenDeepChainIsClosed_ShouldReturnTrue() {
+        // Arrange
+        DependencyGraph<Integer> graph = createDeepChain();
+        graph.addDependency(DEEP_CHAIN_LENGTH, 0);
+
+        // Act
+        var result = graph.findStronglyConnectedComponents();
+
+        // Assert
+        assertEquals(1, result.size());
+        assertTrue(graph.hasCycles());
+    }
+
+    @Test
+    void toOrderedList_WhenChainIsDeep_ShouldPlaceDependenciesFirst() {
+        // Arrange
+        DependencyGraph<Integer> graph = createDeepChain();
+
+        // Act
+        var result = graph.toOrderedList();
+
+        // Assert
+        assertEquals(DEEP_CHAIN_LENGTH + 1, result.size());
+        for (int i = 0; i <= DEEP_CHAIN_LENGTH; ++i) {
+            assertEquals(DEEP_CHAIN_LENGTH - i, result.get(i));
+        }
+    }
+
+    @Test
+    void toOrderedList_WhenFanOutIsWide_ShouldPlaceDependentLast() {
+        // Arrange
+        DependencyGraph<Integer> graph = new DependencyGraph<>();
+        int root = -1;
+        for (int i = 0; i < DEEP_CHAIN_LENGTH; ++i) {
+            graph.addDependency(root, i);
+        }
+
+        // Act
+        var result = graph.toOrderedList();
+
+        // Assert
+        assertEquals(DEEP_CHAIN_LENGTH + 1, result.size());
+        assertEquals(root, result.get(DEEP_CHAIN_LENGTH));
+    }
+
+    @ParameterizedTest
+    @MethodSource("dependenciesWithCyclesProvider")
+    void freeze_WhenCycleExist_ShouldKeepAnswers(HashMap<Integer, List<Integer>> dependencies) {
+        // Arrange
+        DependencyGraph<Integer> graph = new DependencyGraph<>();
+        for (var dependency : dependencies.entrySet()) {
+            graph.addDependencies(dependency.getKey(), dependency.getValue());
+        }
+
+        // Act
+        var frozen = graph.freeze();
+
+        // Assert
+        assertTrue(frozen.hasCycles());
+        assertThatList(frozen.findStronglyConnectedComponents())
+                .ContainsSameComponentsWith(graph.findStronglyConnectedComponents());
+    }
+
+    @Test
+    void freeze_WhenNoCycles_ShouldKeepOrderAndDependencies() {
+        // Arrange
+        DependencyGraph<Integer> graph = new DependencyGraph<>();
+        graph.addDependency(11, 7);
+        graph.addDependency(11, 5);
+        graph.addDependency(8, 3);
+        graph.addDependency(8, 7);
+        graph.addDependency(2, 11);
+        graph.addDependency(9, 11);
+        graph.addDependency(9, 8);
+
+        // Act
+        var frozen = graph.freeze();
+
+        // Assert
+        assertFalse(frozen.hasCycles());
+        assertEquals(graph.toOrderedList(), frozen.toOrderedList());
+        assertEquals(List.of(11, 8), frozen.getDependencies(9));
+        assertFalse(frozen.contains(4));
+    }
+
+    @Test
+    void analyze_WhenGraphChanges_ShouldRecomputeOnlyThen() {
+        // Arrange
+        DependencyGraph<Integer> graph = new DependencyGraph<>();
+        graph.addDependency(1, 0);
+        graph.addDependency(2, 1);
+
+        // Act
+        var first = graph.analyze();
+        var repeated = graph.analyze();
+        graph.addDependency(0, 2);
+        var changed = graph.analyze();
+        graph.remove(2);
+        var removed = graph.analyze();
+
+        // Assert
+        assertSame(first, repeated);
+        assertEquals(List.of(0, 1, 2), first.getOrderedList());
+        assertTrue(changed.hasCycles());
+        assertEquals(1, changed.getCyclicComponents().size());
+        assertFalse(removed.hasCycles());
+    }
+
+    @Test
+    void toOrderedList_WhenResultIsModified_ShouldNotChangeAnalysis() {
+        // Arrange
+        DependencyGraph<Integer> graph = new DependencyGraph<>();
+        graph.addDependency(1, 2);
+        graph.addDependency(2, 1);
+        graph.addDependency(3, 1);
+
+        // Act
+        var orderedList = graph.toOrderedList();
+        orderedList.clear();
+        var components = graph.findStronglyConnectedComponents();
+        components.get(0).sort(null);
+        components.clear();
+
+        // Assert
+        assertEquals(3, graph.toOrderedList().size());
+        assertEquals(2, graph.findStronglyConnectedComponents().size());
+        assertEquals(3, graph.analyze().getOrderedList().size());
+    }
+
+    @Test
+    void remove_ShouldDropAllEdgesOfVertex() {
+        // Arrange
+        DependencyGraph<Integer> graph = new DependencyGraph<>();
+        graph.addDependency(1, 0);
+        graph.addDependency(1, 0);
+        graph.addDependency(2, 1);
+        graph.addDependency(1, 3);
+        graph.addDependency(0, 0);
+
+        // Act
+        graph.remove(0);
+
+        // Assert
+        assertFalse(graph.contains(0));
+        assertEquals(List.of(3), graph.getDependencies(1));
+        assertEquals(List.of(1), graph.getDependents(3));
+    }
+
+    @Test
+    void setDependencies_WhenEdgesAreDuplicated_ShouldKeepOneDependentPerEdge() {
+        // Arrange
+        DependencyGraph<Integer> graph = new DependencyGraph<>();
+        for (int dependent = 1; dependent <= 1000; ++dependent) {
+            graph.addDependencies(dependent, List.of(0, 0));
+        }
+        graph.addDependency(2, 3);
+
+        // Act
+        graph.setDependencies(1, List.of(0));
+        graph.setDependencies(2, List.of());
+        graph.remove(3);
+        graph.remove(4);
+
+        // Assert
+        var dependents = graph.getDependents(0);
+        assertEquals(1 + 2 * 996, dependents.size());
+        assertEquals(List.of(5, 5, 6, 6), dependents.subList(0, 4));
+        assertEquals(1, dependents.get(dependents.size() - 1));
+        assertEquals(List.of(), graph.getDependencies(2));
+        assertFalse(graph.contains(3));
+        assertEquals(997, graph.getAllDependents(0).size());
+        assertFalse(graph.getAllDependents(0).contains(2));
+    }
+
+    @Test
+    void getAllDependents_ShouldReturnTransitiveDependents() {
+        // Arrange
+        DependencyGraph<Integer> graph = new DependencyGraph<>();
+        graph.addDependency(1, 0);
+        graph.addDependency(2, 1);
+        graph.addDependency(3, 1);
+        graph.addDependency(4, 5);
+        graph.addDependency(0, 3);
+
+        // Act
+        var direct = graph.getDependents(1);
+        var all = graph.getAllDependents(0);
+
+        // Assert
+        assertEquals(List.of(2, 3), direct);
+        assertEquals(Set.of(1, 2, 3), all);
+    }
+
+    @Test
+    void getClosure_ShouldContainOnlyTransitiveDependencies() {
+        // Arrange
+        DependencyGraph<Integer> graph = new DependencyGraph<>();
+        graph.addDependency(1, 2);
+        graph.addDependency(2, 3);
+        graph.addDependency(3, 2);
+        graph.addDependency(4, 3);
+        graph.addDependency(5, 6);
+
+        // Act
+        var closure = graph.getClosure(List.of(1, 5));
+
+        // Assert
+        assertEquals(Set.of(1, 2, 3, 5, 6), closure.getVertices());
+        assertEquals(List.of(3), closure.getDependencies(2));
+        assertEquals(List.of(2), closure.getDependents(3));
+        assertTrue(closure.hasCycles());
+        assertThrows(NoSuchElementException.class, () -> graph.getClosure(List.of(7)));
+    }
+
+    @Test
+    void build_WhenDependenciesAreInterleaved_ShouldMatchDependencyGraph() {
+        // Arrange
+        DependencyGraph<Integer> graph = new DependencyGraph<>();
+        FrozenDependencyGraph.Builder<Integer> builder = new FrozenDependencyGraph.Builder<>();
+        int[][] edges = {{1, 2}, {2, 3}, {3, 2}, {4, 3}, {5, 6}, {1, 4}};
+        for (var edge : edges) {
+            graph.addDependency(edge[0], edge[1]);
+            builder.addDependencies(edge[0], List.of(edge[1]));
+        }
+        graph.add(7);
+        builder.add(7);
+
+        // Act
+        var frozen = builder.build();
+        var closure = frozen.getClosure(List.of(1, 5));
+
+        // Assert
+        assertEquals(graph.getVertices(), new HashSet<>(frozen.getVertices()));
+        assertEquals(6, frozen.getEdgeCount());
+        assertEquals(List.of(2, 4), frozen.getDependencies(1));
+        assertEquals(Set.of(1, 2, 3, 4, 5, 6), new HashSet<>(closure.getVertices()));
+        assertEquals(List.of(3), closure.getDependencies(2));
+        assertTrue(closure.hasCycles());
+        assertThatList(closure.findStronglyConnectedComponents())
+                .ContainsSameComponentsWith(graph.getClosure(List.of(1, 5)).findStronglyConnectedComponents());
+        assertThrows(NoSuchElementException.class, () -> frozen.getClosure(List.of(8)));
+    }
+
+    @Test
+    void findStronglyConnectedComponents_WhenSearchedInParallel_ShouldMatchTarjanOnRandomGraphs() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int seed = 0; seed < 60; ++seed) {
+                // Arrange
+                Random random = new Random(seed);
+                int size = 1 + random.nextInt(seed % 10 == 0 ? 20_000 : 300);
+                int edgeCount = (int) (size * (0.5 + random.nextDouble() * 2));
+                DependencyGraph<Integer> graph = new DependencyGraph<>();
+                for (int vertex = 0; vertex < size; ++vertex) {
+                    graph.add(vertex);
+                }
+                for (int i = 0; i < edgeCount; ++i) {
+                    int dependent = random.nextInt(size);
+                    boolean isBackEdge = random.nextInt(20) == 0;
+                    int dependency = isBackEdge ? random.nextInt(size) : random.nextInt(dependent + 1);
+                    graph.addDependency(dependent, dependency);
+                }
+
+                // Act
+                boolean hasCycles = graph.hasCycles(pool);
+                var result = graph.findStronglyConnectedComponents(pool);
+
+                // Assert
+                assertEquals(toComponentSets(graph.findStronglyConnectedComponents()), toComponentSets(result),
+                        "seed " + seed);
+                assertEquals(graph.hasCycles(), hasCycles, "seed " + seed);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void findStronglyConnectedComponents_WhenSearchedInParallelOnDeepChains_ShouldNotOverflowStack() {
+        // Arrange
+        DependencyGraph<Integer> chain = createDeepChain();
+        int pairCount = DEEP_CHAIN_LENGTH / 2;
+        DependencyGraph<Integer> chainOfCycles = new DependencyGraph<>();
+        for (int pair = 0; pair < pairCount; ++pair) {
+            chainOfCycles.addDependency(2 * pair, 2 * pair + 1);
+            chainOfCycles.addDependency(2 * pair + 1, 2 * pair);
+            chainOfCycles.addDependency(2 * pair + 2, 2 * pair);
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            // Act
+            var chainComponents = chain.findStronglyConnectedComponents(pool);
+            var pairComponents = chainOfCycles.findStronglyConnectedComponents(pool);
+
+            // Assert
+            assertEquals(DEEP_CHAIN_LENGTH + 1, chainComponents.size());
+            assertFalse(chain.hasCycles(pool));
+            assertEquals(pairCount + 1, pairComponents.size());
+            assertTrue(chainOfCycles.hasCycles(pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void toLayeredList_WhenGraphIsAcyclic_ShouldPlaceEveryVertexAfterItsDependencies() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int seed = 0; seed < 40; ++seed) {
+                // Arrange
+                Random random = new Random(seed);
+                int size = 1 + random.nextInt(seed % 10 == 0 ? 20_000 : 300);
+                int edgeCount = (int) (size * (0.5 + random.nextDouble() * 2));
+                DependencyGraph<Integer> graph = new DependencyGraph<>();
+                for (int vertex = 0; vertex < size; ++vertex) {
+                    graph.add(vertex);
+                }
+                for (int i = 0; i < edgeCount; ++i) {
+                    int dependent = 1 + random.nextInt(Math.max(size - 1, 1));
+                    if (dependent < size) {
+                        graph.addDependency(dependent, random.nextInt(dependent));
+                    }
+                }
+
+                // Act
+                var levels = graph.toLayeredList(pool);
+
+                // Assert
+                var levelIndexes = new HashMap<Integer, Integer>();
+                for (int level = 0; level < levels.size(); ++level) {
+                    for (var vertex : levels.get(level)) {
+                        assertNull(levelIndexes.put(vertex, level), "seed " + seed);
+                    }
+                }
+                assertEquals(size, levelIndexes.size(), "seed " + seed);
+                for (var vertex : graph.getVertices()) {
+                    int level = levelIndexes.get(vertex);
+                    var dependencyLevels = graph.getDependencies(vertex).stream().map(levelIndexes::get).toList();
+                    assertTrue(dependencyLevels.stream().allMatch(dependencyLevel -> dependencyLevel < level),
+                            "seed " + seed);
+                    assertEquals(level == 0, dependencyLevels.isEmpty(), "seed " + seed);
+                    assertTrue(level == 0 || dependencyLevels.contains(level - 1), "seed " + seed);
+                }
+                assertEquals(levels, graph.toLayeredList(ForkJoinPool.commonPool()), "seed " + seed);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void toLayeredList_WhenGraphHasCycles_ShouldThrow() {
+        // Arrange
+        DependencyGraph<Integer> cycle = new DependencyGraph<>();
+        cycle.addDependency(1, 2);
+        cycle.addDependency(2, 3);
+        cycle.addDependency(3, 1);
+        cycle.addDependency(4, 3);
+        DependencyGraph<Integer> loop = new DependencyGraph<>();
+        loop.addDependency(1, 1);
+
+        // Act, Assert
+        assertThrows(IllegalStateException.class, () -> cycle.toLayeredList(ForkJoinPool.commonPool()));
+        assertThrows(IllegalStateException.class, () -> loop.toLayeredList(ForkJoinPool.commonPool()));
+    }
+
+    @Test
+    void toLayeredList_WhenGraphIsDeepChain_ShouldNotOverflowStack() {
+        // Arrange
+        DependencyGraph<Integer> chain = createDeepChain();
+
+        // Act
+        var levels = chain.toLayeredList(ForkJoinPool.commonPool());
+
+        // Assert
+        assertEquals(DEEP_CHAIN_LENGTH + 1, levels.size());
+        assertTrue(levels.stream().allMatch(level -> level.size() == 1));
+    }
+
+    @Test
+    void toOrderedList_WhenIncrementalOrderEnabled_ShouldMatchFullAnalysisOnRandomEdits() {
+        for (int seed = 0; seed < 20; ++seed) {
+            // Arrange
+            Random random = new Random(seed);
+            int size = 2 + random.nextInt(60);
+            DependencyGraph<Integer> incremental = new DependencyGraph<>();
+            incremental.enableIncrementalOrder();
+            DependencyGraph<Integer> plain = new DependencyGraph<>();
+
+            for (int step = 0; step < 400; ++step) {
+                // Act
+                int dependent = random.nextInt(size);
+                int dependency = random.nextInt(size);
+                int operation = random.nextInt(10);
+                if (operation < 6) {
+                    incremental.addDependency(dependent, dependency);
+                    plain.addDependency(dependent, dependency);
+                } else if (operation < 8) {
+                    boolean isAdded = incremental.tryAddDependency(dependent, dependency);
+                    assertEquals(plain.tryAddDependency(dependent, dependency), isAdded, "seed " + seed);
+                } else if (operation < 9) {
+                    incremental.remove(dependent);
+                    plain.remove(dependent);
+                } else {
+                    incremental.setDependencies(dependent, List.of(dependency));
+                    plain.setDependencies(dependent, List.of(dependency));
+                }
+
+                // Assert
+                assertEquals(plain.hasCycles(), incremental.hasCycles(), "seed " + seed + ", step " + step);
+                if (!plain.hasCycles()) {
+                    var orderedList = incremental.toOrderedList();
+                    var positions = new HashMap<Integer, Integer>();
+                    for (int i = 0; i < orderedList.size(); ++i) {
+                        positions.put(orderedList.get(i), i);
+                    }
+                    assertEquals(plain.getVertices(), positions.keySet(), "seed " + seed + ", step " + step);
+                    for (var vertex : plain.getVertices()) {
+                        for (var vertexDependency : plain.getDependencies(vertex)) {
+                            assertTrue(positions.get(vertexDependency) < positions.get(vertex),
+                                    "seed " + seed + ", step " + step);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void tryAddDependency_WhenDependencyClosesCycle_ShouldRejectIt() {
+        // Arrange
+        DependencyGraph<Integer> plain = new DependencyGraph<>();
+        DependencyGraph<Integer> incremental = new DependencyGraph<>();
+        incremental.enableIncrementalOrder();
+
+        for (var graph : List.of(plain, incremental)) {
+            // Act
+            boolean isFirstAdded = graph.tryAddDependency(1, 2);
+            boolean isSecondAdded = graph.tryAddDependency(2, 3);
+            boolean isCycleAdded = graph.tryAddDependency(3, 1);
+            boolean isLoopAdded = graph.tryAddDependency(4, 4);
+
+            // Assert
+            assertTrue(isFirstAdded);
+            assertTrue(isSecondAdded);
+            assertFalse(isCycleAdded);
+            assertFalse(isLoopAdded);
+            assertEquals(Set.of(1, 2, 3), graph.getVertices());
+            assertEquals(List.of(), graph.getDependencies(3));
+            assertFalse(graph.hasCycles());
+            assertEquals(List.of(3, 2, 1), graph.toOrderedList());
+        }
+    }
+
+    @Test
+    void enableIncrementalOrder_WhenDeepChainIsReordered_ShouldNotOverflowStack() {
+        // Arrange
+        DependencyGraph<Integer> chain = createDeepChain();
+        chain.enableIncrementalOrder();
+
+        // Act
+        chain.addDependency(DEEP_CHAIN_LENGTH, -1);
+        var orderedList = chain.toOrderedList();
+
+        // Assert
+        assertEquals(DEEP_CHAIN_LENGTH + 2, orderedList.size());
+        assertEquals(-1, orderedList.get(0));
+        assertEquals(0, orderedList.get(DEEP_CHAIN_LENGTH + 1));
+        assertFalse(chain.hasCycles());
+        chain.addDependency(-1, 0);
+        assertTrue(chain.hasCycles());
+    }
+
+    /**
+     * Строит цепочку, в которой каждая вершина зависит от следующей, так что обход в глубину от первой вершины
+     * проходит всю цепочку.
+     */
+    private static DependencyGraph<Integer> createDeepChain() {
+        DependencyGraph<Integer> graph = new DependencyGraph<>();
+        for (int i = 0; i < DEEP_CHAIN_LENGTH; ++i) {
+            graph.addDependency(i, i + 1);
+        }
+        return graph;
+    }
+
+    private static <T> Set<Set<T>> toComponentSets(List<List<T>> components) {
+        Set<Set<T>> result = components.stream().map(HashSet::new).collect(Collectors.toSet());
+        assertEquals(components.size(), result.size());
+        return result;
+    }
+
     static Stream<HashMap<Integer, List<Integer>>> dependenciesWithCyclesProvider() {
         return Stream.of(
                 new HashMap<>() {{
@@ -149,4 +663,4 @@ class DependencyGraphTest {
                 }}
         );
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,747 @@
+package tests;
+
+import graph.DependencyGraph;
+import graph.FrozenDependencyGraph;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.BatchLinker;
+import util.CombineOptions;
+import util.ContentCache;
+import util.DependencyResolver;
+import util.DependencyUtils;
+import util.FileUtils;
+import util.GraphSnapshot;
+import util.LinkMetrics;
+import util.LinkSession;
+import util.LinkTarget;
+import util.PathTrie;
+import util.ScanIndex;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyUtilsTest {
+    @TempDir
+    Path rootDirectory;
+
+    @Test
+    void getDependencies_WhenScannedInParallel_ShouldBuildSameGraph() throws IOException {
+        // Arrange
+        for (int i = 0; i < 200; ++i) {
+            Path file = rootDirectory.resolve("dir" + i % 7).resolve("file" + i);
+            Files.createDirectories(file.getParent());
+            String content = i == 0 ? "no requires\n" : "text\nrequire 'dir" + (i - 1) % 7 + "/file" + (i - 1) + "'\n";
+            Files.writeString(file, content);
+        }
+
+        // Act
+        var sequential = DependencyUtils.getDependencies(rootDirectory.toFile());
+        DependencyGraph<File> parallel;
+        ExecutorService executor = new ForkJoinPool(4);
+        try {
+            parallel = DependencyUtils.getDependencies(rootDirectory.toFile(), executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        // Assert
+        var vertices = sequential.toOrderedList();
+        assertEquals(new HashSet<>(vertices), new HashSet<>(parallel.toOrderedList()));
+        for (var vertex : vertices) {
+            assertEquals(sequential.getDependencies(vertex), parallel.getDependencies(vertex));
+        }
+    }
+
+    @Test
+    void getDependencies_WhenScannedInParallel_ShouldReportSameError() throws IOException {
+        // Arrange
+        for (int i = 0; i < 50; ++i) {
+            Files.writeString(rootDirectory.resolve("file" + i), "require 'missing" + i + "'\n");
+        }
+
+        // Act
+        var expected = assertThrows(FileNotFoundException.class,
+                () -> DependencyUtils.getDependencies(rootDirectory.toFile()));
+        ExecutorService executor = new ForkJoinPool(4);
+        try {
+            var actual = assertThrows(FileNotFoundException.class,
+                    () -> DependencyUtils.getDependencies(rootDirectory.toFile(), executor));
+
+            // Assert
+            assertEquals(expected.getMessage(), actual.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void getDependencies_WhenFileUnchanged_ShouldReuseScanIndex() throws IOException {
+        // Arrange
+        Path dependent = rootDirectory.resolve("A");
+        Files.writeString(dependent, "require 'B'\n");
+        Files.writeString(rootDirectory.resolve("B"), "");
+        Files.writeString(rootDirectory.resolve("C"), "");
+        var modified = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+        Files.setLastModifiedTime(dependent, modified);
+        ScanIndex scanIndex = new ScanIndex();
+        ExecutorService executor = new ForkJoinPool(2);
+
+        try {
+            DependencyUtils.getDependencies(rootDirectory.toFile(), scanIndex, executor);
+            Files.writeString(dependent, "require 'C'\n");
+            Files.setLastModifiedTime(dependent, modified);
+
+            // Act
+            var cached = DependencyUtils.getDependencies(rootDirectory.toFile(), scanIndex, executor);
+            Files.setLastModifiedTime(dependent, FileTime.fromMillis(System.currentTimeMillis() - 30_000));
+            var rescanned = DependencyUtils.getDependencies(rootDirectory.toFile(), scanIndex, executor);
+
+            // Assert
+            assertEquals(List.of(rootDirectory.resolve("B").toFile()), cached.getDependencies(dependent.toFile()));
+            assertEquals(List.of(rootDirectory.resolve("C").toFile()), rescanned.getDependencies(dependent.toFile()));
+            assertEquals(3, scanIndex.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void getDependenciesIncrementally_ShouldPersistIndexOutsideOfGraph() throws IOException {
+        // Arrange
+        Files.writeString(rootDirectory.resolve("A"), "require 'B'\n");
+        Files.writeString(rootDirectory.resolve("B"), "");
+        ExecutorService executor = new ForkJoinPool(2);
+
+        try {
+            // Act
+            DependencyUtils.getDependenciesIncrementally(rootDirectory.toFile(), executor);
+            var graph = DependencyUtils.getDependenciesIncrementally(rootDirectory.toFile(), executor);
+
+            // Assert
+            assertTrue(Files.exists(rootDirectory.resolve(ScanIndex.FILE_NAME)));
+            assertEquals(2, graph.toOrderedList().size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void getDependencies_WhenIndexWasSaved_ShouldSkipIndexFile() throws IOException {
+        // Arrange
+        Files.writeString(rootDirectory.resolve("A"), "require 'B'\n");
+        Files.writeString(rootDirectory.resolve("B"), "");
+        File indexFile = rootDirectory.resolve(ScanIndex.FILE_NAME).toFile();
+        ExecutorService executor = new ForkJoinPool(2);
+        ExecutorService fixedExecutor = Executors.newFixedThreadPool(2);
+
+        try {
+            DependencyUtils.getDependenciesIncrementally(rootDirectory.toFile(), executor);
+
+            // Act
+            var sequential = DependencyUtils.getDependencies(rootDirectory.toFile());
+            var forkJoin = DependencyUtils.getDependencies(rootDirectory.toFile(), executor);
+            var fixed = DependencyUtils.getDependencies(rootDirectory.toFile(), fixedExecutor);
+
+            // Assert
+            assertTrue(indexFile.isFile());
+            for (var graph : List.of(sequential, forkJoin, fixed)) {
+                assertFalse(graph.contains(indexFile));
+                assertEquals(2, graph.getVertices().size());
+            }
+        } finally {
+            executor.shutdown();
+            fixedExecutor.shutdown();
+        }
+    }
+
+    @Test
+    void load_WhenIndexLengthsAreCorrupted_ShouldReturnEmptyIndex(@TempDir Path outputs) throws IOException {
+        // Arrange
+        ScanIndex scanIndex = new ScanIndex();
+        scanIndex.put("A", 1, 2, 10_000, List.of("B", "C"));
+        Path indexPath = outputs.resolve(ScanIndex.FILE_NAME);
+        scanIndex.save(indexPath);
+        byte[] valid = Files.readAllBytes(indexPath);
+        List<Integer> corruptedOffsets = List.of(8, 12, 12 + 4 + 1 + 24);
+        List<Integer> corruptedLengths = List.of(-1, Integer.MAX_VALUE, 1 << 28);
+
+        for (var offset : corruptedOffsets) {
+            for (var length : corruptedLengths) {
+                byte[] corrupted = valid.clone();
+                ByteBuffer.wrap(corrupted).putInt(offset, length);
+                Files.write(indexPath, corrupted);
+
+                // Act
+                ScanIndex loaded = ScanIndex.load(indexPath);
+
+                // Assert
+                assertEquals(0, loaded.size());
+            }
+        }
+        Files.write(indexPath, valid);
+        assertEquals(List.of("B", "C"), ScanIndex.load(indexPath).getRequiredPaths("A", 1, 2));
+    }
+
+    @Test
+    void resolve_ShouldMatchResolveDependencies() throws IOException {
+        // Arrange
+        Files.createDirectories(rootDirectory.resolve("dir"));
+        Files.writeString(rootDirectory.resolve("dir/A"), "");
+        File file = rootDirectory.resolve("B").toFile();
+        var resolver = new DependencyResolver(rootDirectory.toFile(), List.of(rootDirectory.resolve("dir/A").toFile()));
+        var requiredPaths = List.of("dir/A", "./dir/../dir/A", "dir", "..", "dir/A");
+
+        // Act
+        var resolved = resolver.resolve(file, requiredPaths);
+
+        // Assert
+        assertEquals(DependencyUtils.resolveDependencies(rootDirectory.toFile(), file, requiredPaths), resolved);
+        var expected = assertThrows(FileNotFoundException.class,
+                () -> DependencyUtils.resolveDependencies(rootDirectory.toFile(), file, List.of("dir/C")));
+        var actual = assertThrows(FileNotFoundException.class, () -> resolver.resolve(file, List.of("dir/C")));
+        assertEquals(expected.getMessage(), actual.getMessage());
+    }
+
+    @Test
+    void pathTrie_ShouldGiveEqualPathsOneIdAndRestoreThem() {
+        // Arrange
+        PathTrie paths = new PathTrie();
+        Path first = rootDirectory.resolve("dir/sub/A");
+        Path second = rootDirectory.resolve("dir/sub/B");
+        Path relative = Path.of("dir", "sub", "A");
+
+        // Act
+        int firstId = paths.intern(first);
+        int secondId = paths.intern(second);
+        int relativeId = paths.intern(relative);
+        int sizeBeforeRepeat = paths.size();
+        int repeatedId = paths.intern(rootDirectory.resolve("dir").resolve("sub").resolve("A"));
+
+        // Assert
+        assertEquals(firstId, repeatedId);
+        assertEquals(3, sizeBeforeRepeat);
+        assertEquals(sizeBeforeRepeat, paths.size());
+        assertNotEquals(firstId, secondId);
+        assertNotEquals(firstId, relativeId);
+        assertEquals(first.toFile(), paths.getFile(firstId));
+        assertEquals(second, paths.getPath(secondId));
+        assertEquals(relative.toFile(), paths.getFile(relativeId));
+        assertEquals(secondId, paths.find(second));
+        assertEquals(-1, paths.find(rootDirectory.resolve("dir/sub/C")));
+        assertEquals(-1, paths.find(rootDirectory.resolve("dir/sub/A/deeper")));
+        assertEquals(-1, paths.find(rootDirectory.resolve("dir/sub")));
+    }
+
+    @Test
+    void getDependencies_WhenKeyedByPathIds_ShouldMatchFileGraph() throws IOException {
+        // Arrange
+        for (int i = 0; i < 100; ++i) {
+            Path file = rootDirectory.resolve("dir" + i % 5).resolve("file" + i);
+            Files.createDirectories(file.getParent());
+            String content = i < 2 ? "" : "require 'dir" + (i - 1) % 5 + "/file" + (i - 1) + "'\n"
+                    + "require 'dir" + (i - 2) % 5 + "/file" + (i - 2) + "'\n";
+            Files.writeString(file, content);
+        }
+        var fileGraph = DependencyUtils.getDependencies(rootDirectory.toFile());
+        PathTrie paths = new PathTrie();
+
+        // Act
+        FrozenDependencyGraph<Integer> idGraph;
+        ExecutorService executor = new ForkJoinPool(4);
+        try {
+            idGraph = DependencyUtils.getDependencies(rootDirectory.toFile(), paths, null, executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        // Assert
+        assertEquals(fileGraph.getVertices().size(), idGraph.size());
+        assertEquals(idGraph.size(), paths.size());
+        for (var id : idGraph.getVertices()) {
+            File file = paths.getFile(id);
+            assertEquals(fileGraph.getDependencies(file), paths.getFiles(idGraph.getDependencies(id)));
+        }
+        assertEquals(paths.getFiles(idGraph.getVertices()).stream().collect(Collectors.toSet()),
+                fileGraph.getVertices());
+        for (int id = 0; id < paths.size(); ++id) {
+            assertEquals(id, idGraph.getVertices().get(id));
+        }
+    }
+
+    @Test
+    void resolveIds_WhenDependencyIsMissing_ShouldNotInternIt() throws IOException {
+        // Arrange
+        File file = Files.writeString(rootDirectory.resolve("A"), "").toFile();
+        File dependency = Files.writeString(rootDirectory.resolve("B"), "").toFile();
+        PathTrie paths = new PathTrie();
+        DependencyResolver resolver = new DependencyResolver(rootDirectory.toFile(), List.of(file, dependency), paths);
+
+        // Act
+        int[] ids = resolver.resolveIds(file, List.of("B", "B"));
+
+        // Assert
+        assertThrows(FileNotFoundException.class, () -> resolver.resolveIds(file, List.of("missing")));
+        assertArrayEquals(new int[]{0, 0}, ids);
+        assertEquals(1, paths.size());
+        assertEquals(-1, paths.find(rootDirectory.resolve("missing")));
+        assertEquals(dependency, paths.getFile(0));
+    }
+
+    @Test
+    void getDependenciesReachableFrom_ShouldBuildOnlyReachableSubgraph() throws IOException {
+        // Arrange
+        Files.createDirectories(rootDirectory.resolve("lib"));
+        Files.writeString(rootDirectory.resolve("A"), "require 'lib/B'\nrequire 'lib'\n");
+        Files.writeString(rootDirectory.resolve("lib/B"), "require 'C'\n");
+        Files.writeString(rootDirectory.resolve("C"), "require 'lib/B'\n");
+        Files.writeString(rootDirectory.resolve("D"), "require 'C'\n");
+        var root = rootDirectory.toFile();
+        var full = DependencyUtils.getDependencies(root);
+        Files.writeString(rootDirectory.resolve("broken"), "require 'missing'\n");
+
+        // Act
+        var reachable = DependencyUtils.getDependenciesReachableFrom(root, List.of(rootDirectory.resolve("A").toFile()));
+
+        // Assert
+        var expectedVertices = List.of("A", "lib/B", "C", "lib");
+        assertEquals(expectedVertices.size(), reachable.getVertices().size());
+        for (var name : expectedVertices) {
+            File vertex = rootDirectory.resolve(name).toFile();
+            assertEquals(full.getDependencies(vertex), reachable.getDependencies(vertex));
+        }
+        assertFalse(reachable.contains(rootDirectory.resolve("D").toFile()));
+    }
+
+    @Test
+    void link_WhenTargetsShareDependencies_ShouldReadThemOnce(@TempDir Path outputs) throws IOException {
+        // Arrange
+        String newline = System.lineSeparator();
+        Files.writeString(rootDirectory.resolve("A"), "require 'Shared'" + newline);
+        Files.writeString(rootDirectory.resolve("B"), "require 'Shared'\r\nb");
+        Files.writeString(rootDirectory.resolve("Shared"), "shared");
+        Files.writeString(rootDirectory.resolve("X"), "require 'Y'\n");
+        Files.writeString(rootDirectory.resolve("Y"), "require 'X'\n");
+        var targets = List.of(
+                new LinkTarget(List.of(rootDirectory.resolve("A").toFile()), outputs.resolve("a")),
+                new LinkTarget(List.of(rootDirectory.resolve("B").toFile()), outputs.resolve("b")),
+                new LinkTarget(List.of(rootDirectory.resolve("X").toFile()), outputs.resolve("x")));
+        var cache = new ContentCache(BatchLinker.DEFAULT_CACHE_CAPACITY);
+        ExecutorService executor = new ForkJoinPool(2);
+
+        try {
+            // Act
+            var results = new BatchLinker(CombineOptions.compatible(), cache)
+                    .link(rootDirectory.toFile(), targets, executor);
+
+            // Assert
+            assertTrue(results.get(0).isLinked());
+            assertTrue(results.get(1).isLinked());
+            assertFalse(results.get(2).isLinked());
+            assertFalse(Files.exists(outputs.resolve("x")));
+            assertEquals(3, cache.getLoadCount());
+            Path expected = outputs.resolve("expected");
+            FileUtils.combineFiles(List.of(rootDirectory.resolve("Shared").toFile(),
+                    rootDirectory.resolve("B").toFile()), expected);
+            assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(outputs.resolve("b")));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void link_WhenCombineExecutorIsGivenAndLineEndingsAreKept_ShouldCopyFilesAsIs(@TempDir Path outputs)
+            throws IOException {
+        // Arrange
+        String newline = System.lineSeparator();
+        Files.writeString(rootDirectory.resolve("A"), "require 'B'\r\na");
+        Files.writeString(rootDirectory.resolve("B"), "b\r\n");
+        var options = new CombineOptions(newline, newline);
+        var cache = new ContentCache(BatchLinker.DEFAULT_CACHE_CAPACITY);
+        var target = new LinkTarget(List.of(rootDirectory.resolve("A").toFile()), outputs.resolve("a"));
+        ExecutorService executor = new ForkJoinPool(2);
+
+        try {
+            // Act
+            var results = new BatchLinker(options, cache, executor).link(rootDirectory.toFile(), List.of(target),
+                    executor);
+
+            // Assert
+            assertTrue(results.get(0).isLinked());
+            assertEquals(0, cache.getLoadCount());
+            Path expected = outputs.resolve("expected");
+            FileUtils.transferFiles(List.of(rootDirectory.resolve("B").toFile(), rootDirectory.resolve("A").toFile()),
+                    expected, options);
+            assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(outputs.resolve("a")));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void graphSnapshot_WhenLoaded_ShouldLinkSameFilesAsGraph(@TempDir Path outputs) throws IOException {
+        // Arrange
+        Files.writeString(rootDirectory.resolve("A"), "require 'B'\nrequire 'C'\n");
+        Files.writeString(rootDirectory.resolve("B"), "require 'C'\n");
+        Files.writeString(rootDirectory.resolve("C"), "c\n");
+        Files.writeString(rootDirectory.resolve("D"), "d\n");
+        Path snapshotPath = outputs.resolve("graph.snapshot");
+        PathTrie paths = new PathTrie();
+        ExecutorService executor = new ForkJoinPool(2);
+        BatchLinker batchLinker = new BatchLinker(CombineOptions.compatible(), new ContentCache(1024));
+
+        try {
+            var stamps = GraphSnapshot.FileStamps.capture(rootDirectory.toFile());
+            var dependencyGraph = DependencyUtils.getDependencies(rootDirectory.toFile(), paths, null, executor);
+            GraphSnapshot.save(dependencyGraph, paths, stamps, snapshotPath);
+
+            // Act
+            GraphSnapshot snapshot = GraphSnapshot.load(snapshotPath);
+            var entryFiles = List.of(rootDirectory.resolve("A").toFile());
+            batchLinker.link(dependencyGraph, paths, new LinkTarget(entryFiles, outputs.resolve("expected")));
+            var result = batchLinker.link(snapshot, new LinkTarget(entryFiles, outputs.resolve("actual")));
+
+            // Assert
+            assertEquals(4, stamps.size());
+            assertEquals(4, snapshot.size());
+            assertEquals(3, snapshot.getEdgeCount());
+            assertFalse(snapshot.hasCycles());
+            int a = snapshot.getId(rootDirectory.resolve("A").toFile());
+            Set<File> dependencies = new HashSet<>();
+            for (int i = 0; i < snapshot.getDependencyCount(a); ++i) {
+                dependencies.add(snapshot.getFile(snapshot.getDependency(a, i)));
+            }
+            assertEquals(Set.of(rootDirectory.resolve("B").toFile(), rootDirectory.resolve("C").toFile()),
+                    dependencies);
+            assertEquals(-1, snapshot.getId(rootDirectory.resolve("E").toFile()));
+            assertEquals(List.of(rootDirectory.resolve("C").toFile(), rootDirectory.resolve("B").toFile(),
+                    rootDirectory.resolve("A").toFile()), snapshot.toOrderedList(entryFiles));
+            assertTrue(result.isLinked());
+            assertArrayEquals(Files.readAllBytes(outputs.resolve("expected")),
+                    Files.readAllBytes(outputs.resolve("actual")));
+            PathTrie snapshotPaths = new PathTrie();
+            assertEquals(new HashSet<>(paths.getFiles(dependencyGraph.getVertices())),
+                    new HashSet<>(snapshotPaths.getFiles(snapshot.toDependencyGraph(snapshotPaths).getVertices())));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void graphSnapshot_WhenFilesChange_ShouldBeOutOfDate(@TempDir Path outputs) throws IOException {
+        // Arrange
+        Path dependent = rootDirectory.resolve("A");
+        Files.writeString(dependent, "require 'B'\n");
+        Files.writeString(rootDirectory.resolve("B"), "");
+        var modified = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+        Files.setLastModifiedTime(dependent, modified);
+        Files.setLastModifiedTime(rootDirectory.resolve("B"), modified);
+        Path snapshotPath = outputs.resolve("graph.snapshot");
+        PathTrie paths = new PathTrie();
+        ExecutorService executor = new ForkJoinPool(2);
+
+        try {
+            var stamps = GraphSnapshot.FileStamps.capture(rootDirectory.toFile());
+            var dependencyGraph = DependencyUtils.getDependencies(rootDirectory.toFile(), paths, null, executor);
+            GraphSnapshot.save(dependencyGraph, paths, stamps, snapshotPath);
+            GraphSnapshot snapshot = GraphSnapshot.load(snapshotPath);
+
+            // Act
+            boolean isUnchangedUpToDate = snapshot.isUpToDate(rootDirectory.toFile());
+            Files.setLastModifiedTime(dependent, FileTime.fromMillis(System.currentTimeMillis() - 30_000));
+            boolean isModifiedUpToDate = snapshot.isUpToDate(rootDirectory.toFile());
+            Files.setLastModifiedTime(dependent, modified);
+            Files.writeString(rootDirectory.resolve("C"), "");
+            Files.setLastModifiedTime(rootDirectory.resolve("C"), modified);
+            boolean isAddedUpToDate = snapshot.isUpToDate(rootDirectory.toFile());
+            Files.delete(rootDirectory.resolve("C"));
+            Files.delete(rootDirectory.resolve("B"));
+            boolean isDeletedUpToDate = snapshot.isUpToDate(rootDirectory.toFile());
+            Files.write(snapshotPath, new byte[]{1, 2, 3});
+
+            // Assert
+            assertTrue(isUnchangedUpToDate);
+            assertFalse(isModifiedUpToDate);
+            assertFalse(isAddedUpToDate);
+            assertFalse(isDeletedUpToDate);
+            assertThrows(IOException.class, () -> GraphSnapshot.load(snapshotPath));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void graphSnapshot_WhenHeaderIsCorrupted_ShouldFailToLoad(@TempDir Path outputs) throws IOException {
+        // Arrange
+        Files.writeString(rootDirectory.resolve("A"), "require 'B'\nrequire 'C'\n");
+        Files.writeString(rootDirectory.resolve("B"), "require 'C'\n");
+        Files.writeString(rootDirectory.resolve("C"), "");
+        Path snapshotPath = outputs.resolve("graph.snapshot");
+        PathTrie paths = new PathTrie();
+        ExecutorService executor = new ForkJoinPool(2);
+
+        try {
+            var stamps = GraphSnapshot.FileStamps.capture(rootDirectory.toFile());
+            var dependencyGraph = DependencyUtils.getDependencies(rootDirectory.toFile(), paths, null, executor);
+            GraphSnapshot.save(dependencyGraph, paths, stamps, snapshotPath);
+        } finally {
+            executor.shutdown();
+        }
+        byte[] valid = Files.readAllBytes(snapshotPath);
+        int headerSize = 48;
+
+        for (int offset = 8; offset < headerSize; ++offset) {
+            byte[] corrupted = valid.clone();
+            corrupted[offset] ^= 0x01;
+            Path corruptedPath = outputs.resolve("corrupted" + offset);
+            Files.write(corruptedPath, corrupted);
+
+            // Act, Assert
+            assertThrows(IOException.class, () -> GraphSnapshot.load(corruptedPath), "offset " + offset);
+        }
+        assertEquals(3, GraphSnapshot.load(snapshotPath).size());
+    }
+
+    @Test
+    void graphSnapshot_WhenBodyIsCorrupted_ShouldFailOnlyWithCorruptionErrors(@TempDir Path outputs)
+            throws IOException {
+        // Arrange
+        Files.writeString(rootDirectory.resolve("A"), "require 'B'\nrequire 'C'\n");
+        Files.writeString(rootDirectory.resolve("B"), "require 'C'\n");
+        Files.writeString(rootDirectory.resolve("C"), "");
+        Path snapshotPath = outputs.resolve("graph.snapshot");
+        PathTrie paths = new PathTrie();
+        ExecutorService executor = new ForkJoinPool(2);
+
+        try {
+            var stamps = GraphSnapshot.FileStamps.capture(rootDirectory.toFile());
+            var dependencyGraph = DependencyUtils.getDependencies(rootDirectory.toFile(), paths, null, executor);
+            GraphSnapshot.save(dependencyGraph, paths, stamps, snapshotPath);
+        } finally {
+            executor.shutdown();
+        }
+        byte[] valid = Files.readAllBytes(snapshotPath);
+        int headerSize = 48;
+        List<File> entryFiles = List.of(rootDirectory.resolve("A").toFile());
+
+        for (int offset = headerSize; offset < valid.length; ++offset) {
+            byte[] corrupted = valid.clone();
+            corrupted[offset] ^= 0x01;
+            Path corruptedPath = outputs.resolve("corrupted" + offset);
+            Files.write(corruptedPath, corrupted);
+
+            // Act, Assert
+            try {
+                GraphSnapshot snapshot = GraphSnapshot.load(corruptedPath);
+                assertEquals(3, snapshot.size(), "offset " + offset);
+                snapshot.toOrderedList();
+                snapshot.toOrderedList(entryFiles);
+                snapshot.isUpToDate(rootDirectory.toFile());
+            } catch (IOException | IllegalStateException | NoSuchElementException expected) {
+                // Повреждение обнаружено при загрузке или при обращении к графу.
+            }
+        }
+    }
+
+    @Test
+    void getChangedPaths_ShouldReturnAddedRemovedAndModifiedFiles() throws IOException {
+        // Arrange
+        var modified = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+        for (var name : List.of("A", "B", "C")) {
+            Files.writeString(rootDirectory.resolve(name), name);
+            Files.setLastModifiedTime(rootDirectory.resolve(name), modified);
+        }
+        var earlier = GraphSnapshot.FileStamps.capture(rootDirectory.toFile());
+        Files.writeString(rootDirectory.resolve("A"), "changed");
+        Files.setLastModifiedTime(rootDirectory.resolve("A"), modified);
+        Files.delete(rootDirectory.resolve("B"));
+        Files.writeString(rootDirectory.resolve("D"), "D");
+        Files.setLastModifiedTime(rootDirectory.resolve("D"), modified);
+
+        // Act
+        var unchangedPaths = earlier.getChangedPaths(earlier);
+        var changedPaths = earlier.getChangedPaths(GraphSnapshot.FileStamps.capture(rootDirectory.toFile()));
+
+        // Assert
+        assertTrue(unchangedPaths.isEmpty());
+        assertEquals(Set.of(rootDirectory.resolve("A"), rootDirectory.resolve("B"), rootDirectory.resolve("D")),
+                new HashSet<>(changedPaths));
+    }
+
+    @Test
+    void refresh_WhenFilesChange_ShouldRebuildGraphAndReloadOnlyChangedFiles(@TempDir Path outputs)
+            throws IOException {
+        // Arrange
+        Path dependent = rootDirectory.resolve("A");
+        Path dependency = rootDirectory.resolve("B");
+        Files.writeString(dependent, "require 'B'\n");
+        Files.writeString(dependency, "b\n");
+        var modified = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+        Files.setLastModifiedTime(dependent, modified);
+        Files.setLastModifiedTime(dependency, modified);
+        var target = new LinkTarget(List.of(dependent.toFile()), outputs.resolve("result"));
+        ExecutorService executor = new ForkJoinPool(2);
+        LinkSession session = new LinkSession(rootDirectory.toFile());
+
+        try {
+            // Act
+            boolean isBuilt = session.refresh(executor);
+            var builtGraph = session.getDependencyGraph();
+            new BatchLinker(CombineOptions.compatible(), session.getContentCache())
+                    .link(builtGraph, session.getPaths(), target);
+            boolean isUnchangedRebuilt = session.refresh(executor);
+            var unchangedGraph = session.getDependencyGraph();
+            Files.writeString(dependency, "changed\n");
+            Files.setLastModifiedTime(dependency, FileTime.fromMillis(System.currentTimeMillis() - 30_000));
+            boolean isChangedRebuilt = session.refresh(executor);
+            var result = new BatchLinker(CombineOptions.compatible(), session.getContentCache())
+                    .link(session.getDependencyGraph(), session.getPaths(), target);
+
+            // Assert
+            assertTrue(isBuilt);
+            assertFalse(isUnchangedRebuilt);
+            assertSame(builtGraph, unchangedGraph);
+            assertTrue(isChangedRebuilt);
+            assertNotSame(builtGraph, session.getDependencyGraph());
+            assertTrue(result.isLinked());
+            assertEquals(3, session.getContentCache().getLoadCount());
+            assertTrue(Files.readString(outputs.resolve("result")).contains("changed"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void refresh_WhenDependencyOutsideRootChanges_ShouldRebuildGraph(@TempDir Path outside, @TempDir Path outputs)
+            throws IOException {
+        // Arrange
+        Path dependency = Files.writeString(outside.resolve("O"), "outside\n");
+        Path dependent = rootDirectory.resolve("A");
+        Files.writeString(dependent, "require '" + rootDirectory.relativize(dependency) + "'\n");
+        var modified = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+        Files.setLastModifiedTime(dependent, modified);
+        Files.setLastModifiedTime(dependency, modified);
+        var target = new LinkTarget(List.of(dependent.toFile()), outputs.resolve("result"));
+        Path snapshotPath = outputs.resolve("graph.snapshot");
+        ExecutorService executor = new ForkJoinPool(2);
+        LinkSession session = new LinkSession(rootDirectory.toFile());
+
+        try {
+            // Act
+            boolean isBuilt = session.refresh(executor);
+            GraphSnapshot.save(session.getDependencyGraph(), session.getPaths(), session.getStamps(), snapshotPath);
+            boolean isSnapshotUpToDate = GraphSnapshot.load(snapshotPath).isUpToDate(rootDirectory.toFile());
+            boolean isUnchangedRebuilt = session.refresh(executor);
+            Files.writeString(dependency, "changed outside\n");
+            Files.setLastModifiedTime(dependency, FileTime.fromMillis(System.currentTimeMillis() - 30_000));
+            boolean isChangedSnapshotUpToDate = GraphSnapshot.load(snapshotPath).isUpToDate(rootDirectory.toFile());
+            boolean isChangedRebuilt = session.refresh(executor);
+            var result = new BatchLinker(CombineOptions.compatible(), session.getContentCache())
+                    .link(session.getDependencyGraph(), session.getPaths(), target);
+
+            // Assert
+            assertTrue(isBuilt);
+            assertTrue(isSnapshotUpToDate);
+            assertFalse(isUnchangedRebuilt);
+            assertFalse(isChangedSnapshotUpToDate);
+            assertTrue(isChangedRebuilt);
+            assertTrue(result.isLinked());
+            assertTrue(Files.readString(outputs.resolve("result")).contains("changed outside"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void linkMetrics_ShouldRecordEveryPhase(@TempDir Path outputs) throws IOException {
+        // Arrange
+        Files.writeString(rootDirectory.resolve("A"), "require 'B'\nrequire 'C'\n");
+        Files.writeString(rootDirectory.resolve("B"), "require 'C'\n");
+        Files.writeString(rootDirectory.resolve("C"), "c\n");
+        Path recordingPath = outputs.resolve("phases.jfr");
+        ExecutorService executor = new ForkJoinPool(2);
+
+        LinkMetrics metrics;
+        try (Recording recording = new Recording()) {
+            recording.enable("filecombiner.LinkPhase");
+            recording.start();
+
+            // Act
+            metrics = LinkMetrics.start();
+            try {
+                var dependencyGraph = DependencyUtils.getDependencies(rootDirectory.toFile(), executor);
+                var analysis = DependencyUtils.analyze(dependencyGraph);
+                FileUtils.transferFiles(analysis.getOrderedList(), outputs.resolve("out"), CombineOptions.compatible());
+            } finally {
+                metrics.stop();
+                executor.shutdown();
+            }
+            recording.stop();
+            recording.dump(recordingPath);
+        }
+
+        // Assert
+        Map<String, RecordedEvent> events = new HashMap<>();
+        for (var event : RecordingFile.readAllEvents(recordingPath)) {
+            events.put(event.getString("phase"), event);
+        }
+        assertEquals(Set.of("walk", "parse", "graph", "analyze", "combine"), events.keySet());
+        assertEquals(3, events.get("parse").getLong("files"));
+        assertTrue(events.get("parse").getDuration("busyTime").isPositive());
+        assertEquals(3, events.get("graph").getLong("edges"));
+        assertEquals(Files.size(outputs.resolve("out")), events.get("combine").getLong("bytesWritten"));
+
+        String json = metrics.toJson();
+        assertTrue(json.contains("{\"phase\": \"graph\", \"count\": 1, "));
+        assertTrue(json.contains("\"files\": 3, \"edges\": 3, "));
+        assertTrue(json.contains("\"bytesWritten\": " + Files.size(outputs.resolve("out"))));
+    }
+
+    @Test
+    void linkMetrics_WhenPhasesInterleave_ShouldReportBusyTimeWithinDuration() throws IOException {
+        // Arrange
+        for (int i = 0; i < 50; ++i) {
+            String content = i == 0 ? "first\n" : "require 'file" + (i - 1) + "'\n";
+            Files.writeString(rootDirectory.resolve("file" + i), content);
+        }
+
+        // Act
+        LinkMetrics metrics = LinkMetrics.start();
+        try {
+            DependencyUtils.getDependencies(rootDirectory.toFile());
+        } finally {
+            metrics.stop();
+        }
+
+        // Assert
+        String json = metrics.toJson();
+        for (var phase : List.of("parse", "graph")) {
+            Matcher matcher = Pattern.compile("\\{\"phase\": \"" + phase
+                    + "\", \"count\": 1, \"durationMillis\": ([0-9.]+), \"busyMillis\": ([0-9.]+), ").matcher(json);
+            assertTrue(matcher.find(), json);
+            assertTrue(Double.parseDouble(matcher.group(2)) <= Double.parseDouble(matcher.group(1)), json);
+        }
+        assertFalse(Pattern.compile("\"phase\": \"walk\"[^}]*\"busyMillis\"").matcher(json).find(), json);
+    }
+}
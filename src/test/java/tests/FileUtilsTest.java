@@ -0,0 +1,198 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.CombineOptions;
+import util.FileUtils;
+import util.ParallelFileWalker;
+import util.PipelinedCombiner;
+import util.PositionalCombiner;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileUtilsTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void transferFiles_WhenCompatible_ShouldMatchCombineFiles() throws IOException {
+        // Arrange
+        String newline = System.lineSeparator();
+        var files = write("first" + newline + "second" + newline, "no trailing newline", "", newline + newline);
+        Path expected = directory.resolve("expected");
+        Path actual = directory.resolve("actual");
+
+        // Act
+        FileUtils.combineFiles(files, expected);
+        FileUtils.transferFiles(files, actual, CombineOptions.compatible());
+
+        // Assert
+        assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(actual));
+    }
+
+    @Test
+    void transferFiles_WhenSeparatorGiven_ShouldCopyBytesAsIs() throws IOException {
+        // Arrange
+        var files = write("a\r\nb", "c\n");
+        Path output = directory.resolve("output");
+
+        // Act
+        FileUtils.transferFiles(files, output, CombineOptions.withSeparator("--"));
+
+        // Assert
+        assertEquals("a\r\nb--c\n--", Files.readString(output));
+    }
+
+    private List<File> write(String... contents) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (var content : contents) {
+            Path path = Files.createTempFile(directory, "file", "");
+            Files.writeString(path, content);
+            files.add(path.toFile());
+        }
+        return files;
+    }
+
+    @Test
+    void getAllFiles_WhenWalkedInParallel_ShouldKeepBreadthFirstOrder() throws IOException {
+        // Arrange
+        for (int i = 0; i < 300; ++i) {
+            Path file = directory.resolve("a" + i % 5).resolve("b" + i % 3).resolve("file" + i);
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, "");
+        }
+        Files.writeString(directory.resolve("top"), "");
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            // Act
+            var result = ParallelFileWalker.getAllFiles(directory.toFile(), pool);
+
+            // Assert
+            assertEquals(FileUtils.getAllFiles(directory.toFile()), result);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void combine_WhenCopiedInParallel_ShouldMatchTransferFiles() throws IOException {
+        // Arrange
+        String newline = System.lineSeparator();
+        List<String> contents = new ArrayList<>(List.of("first" + newline, "no trailing newline", "", "a\r\nb\r"));
+        contents.add("x".repeat(3_000_000));
+        for (int i = 0; i < 100; ++i) {
+            contents.add("file " + i + (i % 2 == 0 ? newline : ""));
+        }
+        var files = write(contents.toArray(new String[0]));
+        Path expected = directory.resolve("expected");
+        Path actual = directory.resolve("actual");
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            for (var options : List.of(new CombineOptions(newline, newline), CombineOptions.withSeparator("--"))) {
+                // Act
+                FileUtils.transferFiles(files, expected, options);
+                PositionalCombiner.combine(files, actual, options, pool);
+
+                // Assert
+                assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(actual));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void combine_WhenFileMissing_ShouldThrowFileNotFound() throws IOException {
+        // Arrange
+        var files = new ArrayList<>(write("a", "b"));
+        files.add(1, directory.resolve("missing").toFile());
+        ForkJoinPool pool = new ForkJoinPool(2);
+
+        try {
+            // Act
+            var exception = assertThrows(FileNotFoundException.class, () -> PositionalCombiner.combine(files,
+                    directory.resolve("output"), CombineOptions.withSeparator(""), pool));
+
+            // Assert
+            assertTrue(exception.getMessage().contains("missing"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void combine_WhenPipelined_ShouldMatchTransferFiles() throws IOException {
+        // Arrange
+        String newline = System.lineSeparator();
+        var files = write("first" + newline, "", "no trailing newline", "12345678", "a\r\nb\r",
+                "y".repeat(20_000), "z".repeat(7) + newline);
+        Path expected = directory.resolve("expected");
+
+        for (int bufferBudget : List.of(6, 16, 17, PipelinedCombiner.DEFAULT_BUFFER_BUDGET)) {
+            for (var options : List.of(CombineOptions.compatible(), CombineOptions.withSeparator("--"),
+                    CombineOptions.withSeparator("").withLineSeparator("\r\n"))) {
+                Path actual = directory.resolve("actual");
+
+                // Act
+                FileUtils.transferFiles(files, expected, options);
+                PipelinedCombiner.combine(files, actual, options, bufferBudget);
+
+                // Assert
+                assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(actual));
+            }
+        }
+    }
+
+    @Test
+    void combine_WhenPipelinedFileMissing_ShouldThrowFileNotFound() throws IOException {
+        // Arrange
+        var files = new ArrayList<>(write("a".repeat(100), "b"));
+        files.add(1, directory.resolve("missing").toFile());
+
+        // Act
+        var exception = assertThrows(FileNotFoundException.class, () -> PipelinedCombiner.combine(files,
+                directory.resolve("output"), CombineOptions.compatible(), 8));
+
+        // Assert
+        assertTrue(exception.getMessage().contains("missing"));
+    }
+
+    @Test
+    void transferFiles_WhenLineSeparatorGiven_ShouldMatchCombineFilesForAnyLineEndings() throws IOException {
+        // Arrange
+        var files = write("a\r\nb\rc\nd", "\r", "\n\r\n\r", "", "x".repeat(200_000) + "\r\n");
+        Path expected = directory.resolve("expected");
+        Path actual = directory.resolve("actual");
+
+        // Act
+        FileUtils.combineFiles(files, expected);
+        FileUtils.transferFiles(files, actual, CombineOptions.compatible());
+
+        // Assert
+        assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(actual));
+    }
+
+    @Test
+    void transferFiles_WhenCarriageReturnOnBufferBoundary_ShouldKeepSingleLineSeparator() throws IOException {
+        // Arrange
+        var files = write("y".repeat(64 * 1024 - 1) + "\r\nz", "\n");
+        Path output = directory.resolve("output");
+
+        // Act
+        FileUtils.transferFiles(files, output, CombineOptions.withSeparator("|").withLineSeparator("<>"));
+
+        // Assert
+        assertEquals("y".repeat(64 * 1024 - 1) + "<>z|<>|", Files.readString(output));
+    }
+}
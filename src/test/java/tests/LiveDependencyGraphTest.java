@@ -0,0 +1,98 @@
+package tests;
+
+import graph.DependencyGraph;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.DependencyUtils;
+import util.LiveDependencyGraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveDependencyGraphTest {
+    @TempDir
+    Path rootDirectory;
+
+    @Test
+    void applyChanges_WhenFilesAreCreatedModifiedAndDeleted_ShouldMatchFullScan(@TempDir Path outside)
+            throws IOException {
+        // Arrange
+        Path outsideFile = Files.writeString(outside.resolve("O"), "outside\n");
+        String outsideRequire = "require '" + rootDirectory.relativize(outsideFile) + "'\n";
+        Files.writeString(rootDirectory.resolve("A"), "require 'B'\n");
+        Files.writeString(rootDirectory.resolve("B"), "");
+        LiveDependencyGraph live = new LiveDependencyGraph(rootDirectory.toFile(), null);
+        live.rescan();
+
+        // Act, Assert
+        Path created = Files.writeString(rootDirectory.resolve("C"), "require 'B'\n" + outsideRequire);
+        assertTrue(live.applyChanges(List.of(created)));
+        assertMatchesFullScan(live);
+        assertTrue(live.getDependencyGraph().contains(outsideFile.toFile()));
+
+        Files.writeString(created, "require 'B'\n");
+        live.applyChanges(List.of(created));
+        assertMatchesFullScan(live);
+        assertFalse(live.getDependencyGraph().contains(outsideFile.toFile()));
+
+        Path directory = Files.createDirectory(rootDirectory.resolve("D"));
+        Files.writeString(directory.resolve("E"), "require 'A'\n" + outsideRequire);
+        live.applyChanges(List.of(directory));
+        assertMatchesFullScan(live);
+
+        Files.delete(directory.resolve("E"));
+        Files.delete(directory);
+        live.applyChanges(List.of(directory));
+        assertMatchesFullScan(live);
+        assertFalse(live.getDependencyGraph().contains(outsideFile.toFile()));
+
+        Files.delete(rootDirectory.resolve("A"));
+        live.applyChanges(List.of(rootDirectory.resolve("A")));
+        assertMatchesFullScan(live);
+        assertTrue(live.getErrors().isEmpty());
+    }
+
+    @Test
+    void applyChanges_WhenFileBreaks_ShouldDropItsEdgesUntilFixed(@TempDir Path outside) throws IOException {
+        // Arrange
+        Path outsideFile = Files.writeString(outside.resolve("O"), "outside\n");
+        Path dependent = rootDirectory.resolve("A");
+        Files.writeString(dependent, "require 'B'\nrequire '" + rootDirectory.relativize(outsideFile) + "'\n");
+        Files.writeString(rootDirectory.resolve("B"), "");
+        LiveDependencyGraph live = new LiveDependencyGraph(rootDirectory.toFile(), null);
+        live.rescan();
+
+        // Act
+        Files.writeString(dependent, "require 'B'\nrequire 'X'\n");
+        live.applyChanges(List.of(dependent));
+        var brokenDependencies = live.getDependencyGraph().getDependencies(dependent.toFile());
+        var brokenErrors = live.getErrors();
+        boolean hasOutsideFile = live.getDependencyGraph().contains(outsideFile.toFile());
+        Path missing = Files.writeString(rootDirectory.resolve("X"), "");
+        live.applyChanges(List.of(missing));
+
+        // Assert
+        assertEquals(List.of(), brokenDependencies);
+        assertEquals(1, brokenErrors.size());
+        assertFalse(hasOutsideFile);
+        assertTrue(live.getErrors().isEmpty());
+        assertMatchesFullScan(live);
+    }
+
+    /**
+     * Проверяет, что граф совпадает с графом, построенным сканированием всей корневой директории.
+     */
+    private void assertMatchesFullScan(LiveDependencyGraph live) throws IOException {
+        DependencyGraph<File> expected = DependencyUtils.getDependencies(rootDirectory.toFile());
+        DependencyGraph<File> actual = live.getDependencyGraph();
+        assertEquals(expected.getVertices(), actual.getVertices());
+        for (var vertex : expected.getVertices()) {
+            assertEquals(expected.getDependencies(vertex), actual.getDependencies(vertex));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import util.RequireDirectiveScanner;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequireDirectiveScannerTest {
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "require 'A'",
+            "text\nrequire 'Folder 1/File 1-1'\r\nrequire 'B'\rrequire 'C'\n",
+            "require 'A' require 'B'",
+            "require 'A\nrequire 'B'",
+            "require 'require '",
+            "require ''",
+            "requir 'A' require 'Путь/к файлу'",
+            "require 'A' require 'B'\u0085require 'C' tail'",
+            "no directive ' quotes ' here"
+    })
+    void findRequiredPaths_ShouldMatchLineRegex(String content) throws IOException {
+        // Arrange
+        File file = write(content);
+
+        // Act
+        var result = RequireDirectiveScanner.findRequiredPaths(file);
+
+        // Assert
+        assertEquals(findWithRegex(file), result);
+    }
+
+    @Test
+    void findRequiredPaths_WhenDirectivesCrossBufferBoundaries_ShouldMatchLineRegex() throws IOException {
+        // Arrange
+        String[] tokens = {"require '", "'", "\n", "\r", "\r\n", " ", "\u0085", "\u2028", "r", "é", "x", " ", "path/файл"};
+        Random random = new Random(42);
+        StringBuilder content = new StringBuilder();
+        while (content.length() < 400_000) {
+            content.append(tokens[random.nextInt(tokens.length)]);
+            if (random.nextInt(5000) == 0) {
+                content.append("require '").append("long".repeat(30_000)).append("'");
+            }
+        }
+        File file = write(content.toString());
+
+        // Act
+        var result = RequireDirectiveScanner.findRequiredPaths(file);
+
+        // Assert
+        assertEquals(findWithRegex(file), result);
+    }
+
+    @Test
+    void findRequiredPaths_WhenThreadsOutnumberPooledBuffers_ShouldMatchLineRegex() throws Exception {
+        // Arrange
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 200; ++i) {
+            files.add(write("text\n" + "require 'A".repeat(i % 3 + 1) + i + "'\n" + "x".repeat(i * 1000)));
+        }
+        List<Future<List<String>>> futures = new ArrayList<>();
+        int threadCount = 8 * Runtime.getRuntime().availableProcessors();
+
+        // Act
+        try (ExecutorService executor = Executors.newFixedThreadPool(threadCount)) {
+            for (var file : files) {
+                futures.add(executor.submit(() -> RequireDirectiveScanner.findRequiredPaths(file)));
+            }
+        }
+
+        // Assert
+        for (int i = 0; i < files.size(); ++i) {
+            assertEquals(findWithRegex(files.get(i)), futures.get(i).get());
+        }
+    }
+
+    private File write(String content) throws IOException {
+        Path path = Files.createTempFile(directory, "file", "");
+        Files.writeString(path, content);
+        return path.toFile();
+    }
+
+    /**
+     * Эталонный поиск директив регулярным выражением по строкам файла.
+     */
+    private static List<String> findWithRegex(File file) throws IOException {
+        List<String> result = new ArrayList<>();
+        try (BufferedReader bufferedReader = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
+            String line = bufferedReader.readLine();
+            while (line != null) {
+                new Scanner(line).findAll("require '(.*)'").map(x -> x.group(1)).forEach(result::add);
+                line = bufferedReader.readLine();
+            }
+        }
+        return result;
+    }
+}